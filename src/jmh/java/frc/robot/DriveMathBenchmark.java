@@ -0,0 +1,95 @@
+package frc.robot;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.Constants.DriveConstants;
+import frc.utils.DriveRateLimiter;
+import frc.utils.SwerveDriveMath;
+
+/**
+ * Benchmarks the math {@code DriveSubsystem.drive()} and
+ * {@code SwerveModule.setDesiredState()} do every loop, by calling the same
+ * {@link DriveRateLimiter} and {@link SwerveDriveMath} helpers they use, with
+ * no SPARK MAXes involved.
+ */
+@State(Scope.Thread)
+public class DriveMathBenchmark {
+
+    private static final int COUNT = 256;
+
+    private static final double[] CHASSIS_ANGULAR_OFFSETS = {
+            DriveConstants.kFrontLeftChassisAngularOffset,
+            DriveConstants.kFrontRightChassisAngularOffset,
+            DriveConstants.kBackLeftChassisAngularOffset,
+            DriveConstants.kBackRightChassisAngularOffset };
+
+    private final double[] xInputs = new double[COUNT];
+    private final double[] yInputs = new double[COUNT];
+    private final double[] rotInputs = new double[COUNT];
+    private final Rotation2d[] headings = new Rotation2d[COUNT];
+    private int index = 0;
+    private double time = 0;
+
+    private DriveRateLimiter rateLimiter;
+    // Where each module points, standing in for the turning encoders
+    private final double[] turningPositions = new double[CHASSIS_ANGULAR_OFFSETS.length];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3407);
+        for (int i = 0; i < COUNT; i++) {
+            xInputs[i] = random.nextDouble() * 2 - 1;
+            yInputs[i] = random.nextDouble() * 2 - 1;
+            rotInputs[i] = random.nextDouble() * 2 - 1;
+            headings[i] = Rotation2d.fromRadians(random.nextDouble() * 2 * Math.PI);
+        }
+        rateLimiter = new DriveRateLimiter(DriveConstants.kDirectionSlewRate, DriveConstants.kMagnitudeSlewRate,
+                DriveConstants.kRotationalSlewRate, 0);
+    }
+
+    @Benchmark
+    public SwerveModuleState[] kinematicsAndDesaturate() {
+        int i = index = (index + 1) & (COUNT - 1);
+        return SwerveDriveMath.toModuleStates(DriveConstants.kDriveKinematics,
+                xInputs[i] * DriveConstants.kMaxSpeedMetersPerSecond,
+                yInputs[i] * DriveConstants.kMaxSpeedMetersPerSecond,
+                rotInputs[i] * DriveConstants.kMaxAngularSpeed, false, null,
+                DriveConstants.kMaxSpeedMetersPerSecond);
+    }
+
+    @Benchmark
+    public SwerveModuleState moduleSetpoint() {
+        int i = index = (index + 1) & (COUNT - 1);
+        return SwerveDriveMath.toModuleSetpoint(
+                new SwerveModuleState(xInputs[i] * DriveConstants.kMaxSpeedMetersPerSecond, headings[i]),
+                DriveConstants.kFrontLeftChassisAngularOffset, rotInputs[i] * Math.PI);
+    }
+
+    /** Rate limit, field-relative conversion, kinematics, desaturate, optimize. */
+    @Benchmark
+    public void fullDrivePath(Blackhole bh) {
+        int i = index = (index + 1) & (COUNT - 1);
+        time += 0.02;
+        rateLimiter.calculate(xInputs[i], yInputs[i], rotInputs[i], time);
+
+        SwerveModuleState[] states = SwerveDriveMath.toModuleStates(DriveConstants.kDriveKinematics,
+                rateLimiter.getXSpeed() * DriveConstants.kMaxSpeedMetersPerSecond,
+                rateLimiter.getYSpeed() * DriveConstants.kMaxSpeedMetersPerSecond,
+                rateLimiter.getRotation() * DriveConstants.kMaxAngularSpeed, true, headings[i],
+                DriveConstants.kMaxSpeedMetersPerSecond);
+        for (int m = 0; m < states.length; m++) {
+            SwerveModuleState setpoint = SwerveDriveMath.toModuleSetpoint(states[m], CHASSIS_ANGULAR_OFFSETS[m],
+                    turningPositions[m]);
+            turningPositions[m] = setpoint.angle.getRadians();
+            bh.consume(setpoint);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package frc.robot;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * Benchmarks odometry and the vision pose estimator against a recorded
+ * trajectory sampled at the odometry thread's rate. {@code historySeconds}
+ * runs the estimator that long before measuring, to show the per-update cost
+ * stays bounded as the match goes on.
+ */
+@State(Scope.Thread)
+public class OdometryBenchmark {
+
+    // Vision frames arrive this long after they were captured
+    private static final double VISION_LATENCY_SECONDS = 0.08;
+
+    @Param({ "2", "30", "150" })
+    public double historySeconds;
+
+    private double dt;
+    private Pose2d[] poses;
+    private double[][] moduleDeltas;
+    private double[][] moduleAngles;
+    private int sample = 0;
+    private double time = 0;
+
+    private final SwerveModulePosition[] positions = {
+            new SwerveModulePosition(), new SwerveModulePosition(),
+            new SwerveModulePosition(), new SwerveModulePosition() };
+
+    private SwerveDriveOdometry odometry;
+    private SwerveDrivePoseEstimator estimator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dt = 1.0 / DriveConstants.kOdometryFrequencyHz;
+        record();
+
+        odometry = new SwerveDriveOdometry(DriveConstants.kDriveKinematics, new Rotation2d(), positions);
+        estimator = new SwerveDrivePoseEstimator(DriveConstants.kDriveKinematics, new Rotation2d(), positions,
+                new Pose2d(),
+                VecBuilder.fill(DriveConstants.kOdometryStdDevXY, DriveConstants.kOdometryStdDevXY,
+                        DriveConstants.kOdometryStdDevTheta),
+                VecBuilder.fill(VisionConstants.kVisionStdDevXY, VisionConstants.kVisionStdDevXY,
+                        VisionConstants.kVisionStdDevTheta));
+        int warmSamples = (int) (historySeconds / dt);
+        for (int i = 0; i < warmSamples; i++) {
+            advance();
+            estimator.updateWithTime(time, poses[sample].getRotation(), positions);
+        }
+    }
+
+    /**
+     * "Records" module readings by driving a generated trajectory through
+     * inverse kinematics at the odometry rate.
+     */
+    private void record() {
+        Trajectory trajectory = TrajectoryGenerator.generateTrajectory(
+                new Pose2d(1, 1, new Rotation2d()),
+                List.of(new Translation2d(4, 3), new Translation2d(7, 1)),
+                new Pose2d(10, 4, Rotation2d.fromDegrees(90)),
+                new TrajectoryConfig(AutoConstants.kMaxSpeedMetersPerSecond,
+                        AutoConstants.kMaxAccelerationMetersPerSecondSquared)
+                        .setKinematics(DriveConstants.kDriveKinematics));
+        int count = (int) (trajectory.getTotalTimeSeconds() / dt);
+        poses = new Pose2d[count];
+        moduleDeltas = new double[count][4];
+        moduleAngles = new double[count][4];
+        for (int i = 0; i < count; i++) {
+            Trajectory.State state = trajectory.sample(i * dt);
+            poses[i] = state.poseMeters;
+            SwerveModuleState[] states = DriveConstants.kDriveKinematics.toSwerveModuleStates(
+                    new ChassisSpeeds(state.velocityMetersPerSecond, 0,
+                            state.velocityMetersPerSecond * state.curvatureRadPerMeter));
+            for (int m = 0; m < 4; m++) {
+                moduleDeltas[i][m] = states[m].speedMetersPerSecond * dt;
+                moduleAngles[i][m] = states[m].angle.getRadians();
+            }
+        }
+    }
+
+    /** Steps to the next recorded sample, looping the trajectory. */
+    private void advance() {
+        sample = (sample + 1) % poses.length;
+        time += dt;
+        for (int m = 0; m < 4; m++) {
+            positions[m].distanceMeters += moduleDeltas[sample][m];
+            positions[m].angle = Rotation2d.fromRadians(moduleAngles[sample][m]);
+        }
+    }
+
+    @Benchmark
+    public Pose2d odometryUpdate() {
+        advance();
+        return odometry.update(poses[sample].getRotation(), positions);
+    }
+
+    @Benchmark
+    public Pose2d poseEstimatorUpdate() {
+        advance();
+        return estimator.updateWithTime(time, poses[sample].getRotation(), positions);
+    }
+
+    /** One odometry step plus a vision measurement captured 80 ms earlier. */
+    @Benchmark
+    public Pose2d poseEstimatorUpdateWithLateVision() {
+        advance();
+        estimator.updateWithTime(time, poses[sample].getRotation(), positions);
+        int lag = (int) (VISION_LATENCY_SECONDS / dt);
+        int captured = Math.floorMod(sample - lag, poses.length);
+        estimator.addVisionMeasurement(poses[captured], time - lag * dt);
+        return estimator.getEstimatedPosition();
+    }
+}
@@ -0,0 +1,100 @@
+package frc.utils;
+
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks one loop of button polling with hundreds of bindings:
+ * {@link ButtonEngine} against one edge-detecting poller per binding that
+ * reads its buttons through a {@link BooleanSupplier}, the way
+ * {@code Trigger} and the old {@code TriggerRunnable} work. Half the bindings
+ * are single buttons, half are two-button chords, and the button state
+ * changes in about one loop in ten, like a driver.
+ */
+@State(Scope.Thread)
+public class ButtonEngineBenchmark {
+
+    private static final int STATES = 1024;
+
+    @Param({ "100", "500" })
+    public int bindings;
+
+    private ButtonEngine engine;
+    private PerBindingPoller[] pollers;
+    private final long[] states = new long[STATES];
+    // Stands in for the driver station's button state
+    private long current = 0;
+    private int index = 0;
+    private double time = 0;
+    private long fired = 0;
+
+    /** One binding polled on its own, like a Trigger. */
+    private final class PerBindingPoller {
+        private final BooleanSupplier condition;
+        private boolean last = false;
+
+        PerBindingPoller(BooleanSupplier condition) {
+            this.condition = condition;
+        }
+
+        void poll() {
+            boolean pressed = condition.getAsBoolean();
+            if (pressed != last) {
+                fired++;
+            }
+            last = pressed;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3407);
+        engine = new ButtonEngine();
+        pollers = new PerBindingPoller[bindings];
+        for (int i = 0; i < bindings; i++) {
+            long mask = ButtonEngine.button(random.nextInt(3), 1 + random.nextInt(12));
+            if (i % 2 == 1) {
+                mask |= ButtonEngine.button(random.nextInt(3), 1 + random.nextInt(12));
+            }
+            long bits = mask;
+            engine.bind(bits, 0, true, () -> fired++, () -> fired++);
+            pollers[i] = new PerBindingPoller(() -> (current & bits) == bits);
+        }
+
+        long state = 0;
+        for (int i = 0; i < STATES; i++) {
+            if (random.nextInt(10) == 0) {
+                state ^= ButtonEngine.button(random.nextInt(3), 1 + random.nextInt(12));
+            }
+            states[i] = state;
+        }
+    }
+
+    private void advance() {
+        index = (index + 1) & (STATES - 1);
+        current = states[index];
+        time += 0.02;
+    }
+
+    @Benchmark
+    public long engine() {
+        advance();
+        engine.poll(current, time);
+        return fired;
+    }
+
+    @Benchmark
+    public long perBinding() {
+        advance();
+        for (PerBindingPoller poller : pollers) {
+            poller.poll();
+        }
+        return fired;
+    }
+}
@@ -0,0 +1,50 @@
+package frc.utils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks what a logging call costs the calling thread: the old string
+ * concatenation plus {@code println}, and {@link ConsoleLog} with and without
+ * its rate limit kicking in. Both print into a stream that throws the bytes
+ * away, so only the Java side is measured, not the terminal.
+ */
+@State(Scope.Thread)
+public class ConsoleLogBenchmark {
+
+    private PrintStream nullStream;
+    private ConsoleLog.Site unlimited;
+    private ConsoleLog.Site limited;
+    private long value = 0;
+
+    @Setup
+    public void setup() {
+        nullStream = new PrintStream(OutputStream.nullOutputStream());
+        ConsoleLog.setOutput(nullStream);
+        unlimited = ConsoleLog.site("unlimited", 0);
+        limited = ConsoleLog.site("limited", 10);
+    }
+
+    @Benchmark
+    public void concatPrintln() {
+        value++;
+        nullStream.println("I2C: SEND(" + (value & 7) + "," + (value & 31) + ")");
+    }
+
+    @Benchmark
+    public void consoleLog() {
+        value++;
+        ConsoleLog.log(unlimited, "I2C: SEND({},{})", value & 7, value & 31);
+    }
+
+    @Benchmark
+    public void consoleLogRateLimited() {
+        value++;
+        ConsoleLog.log(limited, "I2C: SEND({},{})", value & 7, value & 31);
+    }
+}
@@ -0,0 +1,74 @@
+package frc.utils;
+
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks pathfinding queries on the deployed navgrid: walking a
+ * precomputed target field with and without the cache, and a full A* search
+ * between two random points.
+ */
+@State(Scope.Thread)
+public class GridPathfinderBenchmark {
+
+    private static final String NAVGRID = "src/main/deploy/pathplanner/navgrid.json";
+    private static final int COUNT = 1024;
+
+    private GridPathfinder pathfinder;
+    private int speaker;
+    private final double[] startX = new double[COUNT];
+    private final double[] startY = new double[COUNT];
+    private final double[] goalX = new double[COUNT];
+    private final double[] goalY = new double[COUNT];
+    private int index = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        NavGrid grid;
+        try (Reader reader = new FileReader(NAVGRID)) {
+            grid = NavGrid.fromJson(reader);
+        }
+        pathfinder = new GridPathfinder(grid, 64);
+        speaker = pathfinder.addTarget(1.40, 5.55);
+
+        Random random = new Random(3407);
+        for (int i = 0; i < COUNT; i++) {
+            startX[i] = random.nextDouble() * 16.54;
+            startY[i] = random.nextDouble() * 8.21;
+            goalX[i] = random.nextDouble() * 16.54;
+            goalY[i] = random.nextDouble() * 8.21;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (COUNT - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double[] targetCached() {
+        // Only a handful of starts, so nearly every query hits the cache
+        int i = next() & 15;
+        return pathfinder.findPathToTarget(speaker, startX[i], startY[i]);
+    }
+
+    @Benchmark
+    public double[] targetUncached() {
+        int i = next();
+        pathfinder.clearCache();
+        return pathfinder.findPathToTarget(speaker, startX[i], startY[i]);
+    }
+
+    @Benchmark
+    public double[] aStarUncached() {
+        int i = next();
+        pathfinder.clearCache();
+        return pathfinder.findPath(startX[i], startY[i], goalX[i], goalY[i]);
+    }
+}
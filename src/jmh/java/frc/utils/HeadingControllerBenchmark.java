@@ -0,0 +1,36 @@
+package frc.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks one loop of teleop heading hold: {@link HeadingController}
+ * against {@link LegacyHeadingHold}, the Rotation2d-based code
+ * {@code DriveSubsystem.drive()} used before it, which lives with the tests.
+ * Run with the gc profiler to compare allocation per loop.
+ */
+@State(Scope.Thread)
+public class HeadingControllerBenchmark {
+
+    private static final double LOOP_SECONDS = 0.02;
+
+    private final HeadingController controller = new HeadingController(6, 0, 0, 0.5, 2 * Math.PI);
+    private final LegacyHeadingHold legacy = new LegacyHeadingHold(6, 0, 0);
+    private double time = 0;
+    private double heading = 0;
+
+    @Benchmark
+    public double headingController() {
+        time += LOOP_SECONDS;
+        heading = Math.sin(time);
+        return controller.calculate(0.5, heading, time);
+    }
+
+    @Benchmark
+    public double legacy() {
+        time += LOOP_SECONDS;
+        heading = Math.sin(time);
+        return legacy.calculate(0.5, heading, time);
+    }
+}
@@ -0,0 +1,54 @@
+package frc.utils;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Benchmarks shaping one loop's drive axes with a {@link ResponseCurve} table
+ * against working out the deadband and expo directly with
+ * {@code MathUtil.applyDeadband} and {@code Math.pow}.
+ */
+@State(Scope.Thread)
+public class ResponseCurveBenchmark {
+
+    private static final int INPUTS = 1024;
+    private static final double DEADBAND = 0.1;
+    private static final double EXPO = 0.3;
+
+    // Two extra so the last three-axis read stays in bounds
+    private final double[] inputs = new double[INPUTS + 2];
+    private ResponseCurve curve;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3407);
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = random.nextDouble() * 2 - 1;
+        }
+        curve = new ResponseCurve(DEADBAND, EXPO);
+    }
+
+    @Benchmark
+    public double table() {
+        index = (index + 3) & (INPUTS - 1);
+        return curve.apply(inputs[index]) + curve.apply(inputs[index + 1]) + curve.apply(inputs[index + 2]);
+    }
+
+    @Benchmark
+    public double direct() {
+        index = (index + 3) & (INPUTS - 1);
+        return direct(inputs[index]) + direct(inputs[index + 1]) + direct(inputs[index + 2]);
+    }
+
+    private static double direct(double input) {
+        double d = MathUtil.applyDeadband(input, DEADBAND);
+        return (1 - EXPO) * d + EXPO * Math.copySign(Math.pow(Math.abs(d), 3), d);
+    }
+}
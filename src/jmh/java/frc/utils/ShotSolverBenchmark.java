@@ -0,0 +1,62 @@
+package frc.utils;
+
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the deployed shot table: a single interpolated lookup, and a
+ * full shoot-while-moving solve from random positions and velocities.
+ */
+@State(Scope.Thread)
+public class ShotSolverBenchmark {
+
+    private static final String SHOT_TABLE = "src/main/deploy/shots/shot_table.json";
+    private static final int COUNT = 1024;
+
+    private ShotTable table;
+    private ShotSolver solver;
+    private final double[] x = new double[COUNT];
+    private final double[] y = new double[COUNT];
+    private final double[] vx = new double[COUNT];
+    private final double[] vy = new double[COUNT];
+    private int index = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        try (Reader reader = new FileReader(SHOT_TABLE)) {
+            table = ShotTable.fromJson(reader);
+        }
+        solver = new ShotSolver(table, 5, 1e-4);
+
+        Random random = new Random(3407);
+        for (int i = 0; i < COUNT; i++) {
+            x[i] = 1 + random.nextDouble() * 4;
+            y[i] = 2 + random.nextDouble() * 6;
+            vx[i] = (random.nextDouble() - 0.5) * 9.6;
+            vy[i] = (random.nextDouble() - 0.5) * 9.6;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (COUNT - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double lookup() {
+        return table.getRPM(x[next()]);
+    }
+
+    @Benchmark
+    public double solveMoving() {
+        int i = next();
+        solver.solve(x[i], y[i], vx[i], vy[i], 0.0, 5.55);
+        return solver.getRPM() + solver.getHeading();
+    }
+}
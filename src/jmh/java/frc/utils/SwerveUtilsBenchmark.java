@@ -0,0 +1,77 @@
+package frc.utils;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the angle helpers {@code DriveSubsystem.drive()} runs through the
+ * rate limiter every loop.
+ */
+@State(Scope.Thread)
+public class SwerveUtilsBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private final double[] current = new double[COUNT];
+    private final double[] target = new double[COUNT];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3407);
+        for (int i = 0; i < COUNT; i++) {
+            // Include angles several wraps outside 0 to 2*PI
+            current[i] = (random.nextDouble() - 0.5) * 8 * Math.PI;
+            target[i] = (random.nextDouble() - 0.5) * 8 * Math.PI;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (COUNT - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double stepTowards() {
+        int i = next();
+        return SwerveUtils.StepTowards(current[i], target[i], 0.05);
+    }
+
+    @Benchmark
+    public double stepTowardsCircular() {
+        int i = next();
+        return SwerveUtils.StepTowardsCircular(current[i], target[i], 0.05);
+    }
+
+    @Benchmark
+    public double wrapAngle() {
+        return SwerveUtils.WrapAngle(current[next()]);
+    }
+
+    @Benchmark
+    public double angleDifference() {
+        int i = next();
+        return SwerveUtils.AngleDifference(current[i], target[i]);
+    }
+
+    @Benchmark
+    public void rateLimiter(DriveRateLimiterState state, Blackhole bh) {
+        int i = next();
+        state.time += 0.02;
+        state.limiter.calculate(Math.cos(current[i]), Math.sin(current[i]), Math.sin(target[i]), state.time);
+        bh.consume(state.limiter.getXSpeed());
+        bh.consume(state.limiter.getYSpeed());
+        bh.consume(state.limiter.getRotation());
+    }
+
+    @State(Scope.Thread)
+    public static class DriveRateLimiterState {
+        double time = 0;
+        DriveRateLimiter limiter = new DriveRateLimiter(1.2, 2.0, 2.0, 0);
+    }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.utils.ConsoleLog;
+
+/**
+ * Builds every PathPlanner auto command ahead of time so the first autonomous
+ * loop does not pay for it.
+ * <p>
+ * A background thread first parses each {@code .path} file for both
+ * alliances. Nothing it parses is kept: {@link PathPlannerAuto} reads the
+ * files again when it is built. It only reports broken files and how long
+ * each took, and gets the path loading code loaded and warmed up before the
+ * main thread needs it.
+ * The auto commands themselves touch the CommandScheduler when they are
+ * composed, so they are built on the main thread, one per
+ * {@link #buildNext()} call while disabled, and handed out ready to run by
+ * {@link #getCommand(String)}.
+ */
+public class AutoLibrary {
+
+  private static final String kAutoExtension = ".auto";
+  private static final String kPathExtension = ".path";
+  private static final ConsoleLog.Site kLog = ConsoleLog.site("AutoLibrary", 0);
+
+  private final File m_autoDirectory = new File(Filesystem.getDeployDirectory(), "pathplanner/autos");
+  private final File m_pathDirectory = new File(Filesystem.getDeployDirectory(), "pathplanner/paths");
+
+  private final List<String> m_autoNames;
+  private final SendableChooser<String> m_chooser = new SendableChooser<>();
+
+  // Written by the loader thread, read anywhere
+  private volatile boolean m_filesLoaded = false;
+  private Thread m_loader = null;
+
+  // Main thread only
+  private final Map<String, Command> m_commands = new HashMap<>();
+
+  public AutoLibrary() {
+    m_autoNames = listNames(m_autoDirectory, kAutoExtension);
+    m_chooser.setDefaultOption("None", "");
+    for (String name : m_autoNames) {
+      m_chooser.addOption(name, name);
+    }
+  }
+
+  /** Starts reading the files on a background thread. Safe to call again. */
+  public synchronized void startLoading() {
+    if (m_loader != null) {
+      return;
+    }
+    m_loader = new Thread(this::loadFiles, "AutoLibrary");
+    m_loader.setDaemon(true);
+    m_loader.start();
+  }
+
+  private void loadFiles() {
+    long start = System.nanoTime();
+    List<String> pathNames = listNames(m_pathDirectory, kPathExtension);
+    for (String name : pathNames) {
+      long fileStart = System.nanoTime();
+      try {
+        PathPlannerPath.fromPathFile(name).flipPath();
+      } catch (RuntimeException e) {
+        ConsoleLog.log(kLog, "AutoLibrary: failed to load path {}: {}", name, e);
+      }
+      ConsoleLog.log(kLog, "AutoLibrary: {} {} ms", name + kPathExtension,
+          (System.nanoTime() - fileStart) * 1e-6);
+    }
+    m_filesLoaded = true;
+    ConsoleLog.log(kLog, "AutoLibrary: checked {} paths in {} ms", pathNames.size(),
+        (System.nanoTime() - start) * 1e-6);
+  }
+
+  /**
+   * Builds the next auto command that is not cached yet. Call every disabled
+   * loop; does at most one auto per call so no loop overruns.
+   */
+  public void buildNext() {
+    if (!m_filesLoaded) {
+      return;
+    }
+    for (String name : m_autoNames) {
+      if (!m_commands.containsKey(name)) {
+        m_commands.put(name, new PathPlannerAuto(name));
+        return;
+      }
+    }
+  }
+
+  /**
+   * Hands out the command for an auto. A command can only be composed once, so
+   * the cached one is removed and built again on a later {@link #buildNext()}.
+   * Builds it on the spot if it is not cached.
+   *
+   * @param name Auto file name without extension, or "" for no auto.
+   * @return The auto command.
+   */
+  public Command getCommand(String name) {
+    if (name == null || name.isEmpty()) {
+      return Commands.none();
+    }
+    Command command = m_commands.remove(name);
+    return command != null ? command : new PathPlannerAuto(name);
+  }
+
+  /** @return Command for the auto picked on the dashboard. */
+  public Command getSelectedCommand() {
+    return getCommand(m_chooser.getSelected());
+  }
+
+  /** @return The dashboard chooser listing every auto. */
+  public SendableChooser<String> getChooser() {
+    return m_chooser;
+  }
+
+  private static List<String> listNames(File directory, String extension) {
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(extension));
+    List<String> names = new ArrayList<>();
+    if (files != null) {
+      Arrays.sort(files);
+      for (File file : files) {
+        names.add(file.getName().substring(0, file.getName().length() - extension.length()));
+      }
+    }
+    return names;
+  }
+}
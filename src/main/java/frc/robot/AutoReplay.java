@@ -0,0 +1,117 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.util.PathPlannerLogging;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.IntakeConstants;
+
+/**
+ * Headless harness that runs every PathPlanner auto in
+ * {@code deploy/pathplanner/autos} against the simulated drivetrain, faster
+ * than real time, and prints how closely the robot tracked each path and how
+ * long each loop took. Run with {@code ./gradlew replayAutos}.
+ * <p>
+ * Robot time is paused and stepped 20 ms per loop, so a 15 second auto takes
+ * only as long as the code itself needs to run 750 loops.
+ */
+public final class AutoReplay {
+  private static final double kLoopSeconds = 0.02;
+  private static final double kMaxAutoSeconds = 15;
+
+  private static Pose2d targetPose = null;
+
+  private AutoReplay() {
+  }
+
+  public static void main(String... args) {
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    SimHooks.pauseTiming();
+
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+
+    // No note ever breaks the beams, so fling_command finishes on its timer
+    new DIOSim(IntakeConstants.BOT_DIO_SENSOR).setValue(false);
+    new DIOSim(IntakeConstants.TOP_DIO_SENSOR).setValue(false);
+
+    RobotContainer container = new RobotContainer();
+    PathPlannerLogging.setLogTargetPoseCallback(pose -> targetPose = pose);
+
+    File[] autos = new File(Filesystem.getDeployDirectory(), "pathplanner/autos")
+        .listFiles((dir, name) -> name.endsWith(".auto"));
+    if (autos == null) {
+      autos = new File[0];
+    }
+    Arrays.sort(autos);
+
+    System.out.printf("%-16s %8s %8s %10s %10s %10s %10s%n",
+        "auto", "sim s", "wall ms", "mean err m", "max err m", "mean us", "max us");
+    for (File file : autos) {
+      String name = file.getName().substring(0, file.getName().length() - ".auto".length());
+      replay(container, name);
+    }
+    System.exit(0);
+  }
+
+  private static void replay(RobotContainer container, String name) {
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.cancelAll();
+    targetPose = null;
+
+    Command auto = new PathPlannerAuto(name);
+    auto.schedule();
+
+    int loops = 0;
+    int trackedLoops = 0;
+    double errorSum = 0;
+    double errorMax = 0;
+    long loopNanosSum = 0;
+    long loopNanosMax = 0;
+    long wallStart = System.nanoTime();
+    while (auto.isScheduled() && loops * kLoopSeconds < kMaxAutoSeconds) {
+      SimHooks.stepTiming(kLoopSeconds);
+      DriverStationSim.notifyNewData();
+
+      long start = System.nanoTime();
+      scheduler.run();
+      long loopNanos = System.nanoTime() - start;
+      loopNanosSum += loopNanos;
+      loopNanosMax = Math.max(loopNanosMax, loopNanos);
+      loops++;
+
+      if (targetPose != null) {
+        double error = targetPose.getTranslation().getDistance(container.m_driveTrain.getPose().getTranslation());
+        errorSum += error;
+        errorMax = Math.max(errorMax, error);
+        trackedLoops++;
+      }
+    }
+    double wallMillis = (System.nanoTime() - wallStart) * 1e-6;
+
+    System.out.printf("%-16s %8.2f %8.1f %10.3f %10.3f %10.1f %10.1f%n",
+        name, loops * kLoopSeconds, wallMillis,
+        trackedLoops == 0 ? 0 : errorSum / trackedLoops, errorMax,
+        loops == 0 ? 0 : loopNanosSum / loops * 1e-3, loopNanosMax * 1e-3);
+  }
+}
@@ -4,7 +4,11 @@
 
 package frc.robot;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import com.revrobotics.CANSparkMax.IdleMode;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
 
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
@@ -43,6 +47,29 @@ public final class Constants {
     public static final int flingerCanID_2 = 12;
     // A small value to detect if the intake is not moving
     public static final double FLINGER_RPM_DEADZONE = IntakeConstants.INTAKE_RPM_DEADZONE;
+    // How long to keep spinning after the note cleared the top sensor
+    public static final double FLING_AFTER_EXIT_SECONDS = 1;
+
+    // fling() speeds are fractions of this wheel speed
+    public static final double FLINGER_MAX_RPM = 5500;
+    public static final double FLINGER_FREE_SPEED_RPM = 5676; // NEO free speed
+    // On-controller velocity loop, output is duty cycle per RPM
+    public static final double FLINGER_P = 0.0004;
+    public static final double FLINGER_I = 0;
+    public static final double FLINGER_D = 0;
+    public static final double FLINGER_FF = 1 / FLINGER_FREE_SPEED_RPM;
+    // Both wheels must be this close to the target for this long to be ready
+    public static final double FLINGER_RPM_TOLERANCE = 100;
+    public static final double FLINGER_READY_DEBOUNCE_SECONDS = 0.06;
+    // Feed anyway if the wheels never get there, e.g. on a low battery
+    public static final double FLINGER_SPIN_UP_TIMEOUT_SECONDS = 1.5;
+    // Wheel speed time constant of the simulated flywheels
+    public static final double FLINGER_SIM_TIME_CONSTANT = 0.35; // seconds
+    // Fraction of the free speed the simulated wheels reach at full output,
+    // standing in for friction and belt drag the feedforward does not know about
+    public static final double FLINGER_SIM_PLANT_GAIN = 0.95;
+    // Wheel speed the simulated wheels lose squeezing a note through
+    public static final double FLINGER_SIM_NOTE_SPEED_LOSS_RPM = 600;
   }
 
   public static final class IntakeConstants {
@@ -66,6 +93,13 @@ public final class Constants {
     public static final double kMagnitudeSlewRate = 2.0; // percent per second (1 = 100%)
     public static final double kRotationalSlewRate = 2.0; // percent per second (1 = 100%)
 
+    // Teleop heading hold (see HeadingController)
+    public static final double kHeadingP = 6;
+    public static final double kHeadingI = 0;
+    public static final double kHeadingD = 0;
+    public static final double kHeadingMaxIntegral = 0.5; // radian seconds
+    public static final double kHeadingMaxOutput = 2 * Math.PI; // radians per second
+
     // Chassis configuration
     public static final double kTrackWidth = Units.inchesToMeters(22.5);
     // Distance between centers of right and left wheels on robot
@@ -99,6 +133,73 @@ public final class Constants {
     public static final int kRearRightTurningCanId = 9;
 
     public static final boolean kGyroReversed = false;
+
+    // Count the bytes allocated while sampling the modules for odometry and
+    // publish them to the dashboard (used to check the loop stays garbage-free)
+    public static final boolean kMeasureOdometryAllocations = false;
+
+    // Sample the encoders and gyro on a separate thread at this rate. Drive
+    // position and turning angle only arrive every 10 ms (see the status frame
+    // periods in ModuleConstants), so this picks each frame up within 4 ms and
+    // the sampler skips the reads that saw no new frame.
+    public static final boolean kUseOdometryThread = true;
+    public static final double kOdometryFrequencyHz = 250;
+    // Feed the odometry thread a fake constant-speed arc instead of the
+    // hardware, for measuring the sampler on a desktop
+    public static final boolean kSimulateOdometrySource = false;
+
+    // How much the pose estimator trusts wheel odometry (meters, radians)
+    public static final double kOdometryStdDevXY = 0.1;
+    public static final double kOdometryStdDevTheta = 0.1;
+  }
+
+  public static final class VisionConstants {
+    // Robot pose from the vision server, which lives outside this repo. Its
+    // driverCam pipeline has to publish a double array here for vision to
+    // correct odometry; while the topic is absent nothing is fused. Layout:
+    //   [0] x, meters, field coordinates with the blue alliance origin
+    //   [1] y, meters
+    //   [2] heading, degrees, counter-clockwise positive
+    //   [3] milliseconds from camera capture to publishing
+    // Extra elements are ignored, shorter arrays are dropped. One array per
+    // camera frame; frames without a pose publish nothing.
+    public static final String kRobotPoseTopic = "/Vision Server/Pipelines/driverCam/robotPose";
+
+    // How much the pose estimator trusts vision (meters, radians)
+    public static final double kVisionStdDevXY = 0.7;
+    public static final double kVisionStdDevTheta = 1.0;
+
+    // The pose estimator only keeps 1.5 s of history
+    public static final double kMaxMeasurementAgeSeconds = 1.0;
+    public static final double kMaxPoseJumpMeters = 2.0;
+  }
+
+  public static final class CameraConstants {
+    // USB device numbers of the driver cameras; the stream starts on the first
+    public static final int[] kCameraDevices = { 0, 1 };
+    public static final String kStreamName = "Driver";
+
+    // Stream levels from best to cheapest as { width, height, fps, JPEG quality }.
+    // Quality -1 passes the camera's own JPEGs through; anything else makes the
+    // roboRIO decode and re-encode every frame, so only the last resort does it.
+    public static final int[][] kStreamLevels = {
+        { 320, 240, 15, -1 },
+        { 320, 240, 10, -1 },
+        { 320, 240, 7, -1 },
+        { 160, 120, 15, -1 },
+        { 160, 120, 7, -1 },
+        { 160, 120, 7, 30 },
+    };
+    public static final int kStartLevel = 2;
+
+    // The field allows 4 Mbit/s for everything; leave the camera 2 Mbit/s
+    public static final double kBandwidthCapBytesPerSecond = 250_000;
+    public static final double kDownSeconds = 1.0;
+    public static final double kUpSeconds = 5.0;
+    // cscore averages its data rate over the telemetry period
+    public static final double kTelemetryPeriodSeconds = 1.0;
+    public static final double kSettleSeconds = 2.0;
+    public static final double kUpHeadroom = 0.8;
   }
 
   public static final class ModuleConstants {
@@ -156,6 +257,42 @@ public final class Constants {
     public static final int kDrivingMotorCurrentLimit = 50; // amps
     public static final int kTurningMotorCurrentLimit = 20; // amps
 
+    // SPARK MAX periodic status frame periods in ms: kStatus0 applied
+    // output/faults, kStatus1 velocity/current, kStatus2 position, kStatus3
+    // analog sensor, kStatus4 alternate encoder, kStatus5 absolute encoder
+    // position, kStatus6 absolute encoder velocity. Drive position and turning
+    // angle are fast for the odometry thread, signals we never read are
+    // slowed right down.
+    public static final Map<PeriodicFrame, Integer> kDrivingStatusFramePeriodsMs = new EnumMap<>(Map.of(
+        PeriodicFrame.kStatus0, 10,
+        PeriodicFrame.kStatus1, 20,
+        PeriodicFrame.kStatus2, 10,
+        PeriodicFrame.kStatus3, 500,
+        PeriodicFrame.kStatus4, 500,
+        PeriodicFrame.kStatus5, 500,
+        PeriodicFrame.kStatus6, 500));
+    public static final Map<PeriodicFrame, Integer> kTurningStatusFramePeriodsMs = new EnumMap<>(Map.of(
+        PeriodicFrame.kStatus0, 10,
+        PeriodicFrame.kStatus1, 100,
+        PeriodicFrame.kStatus2, 100,
+        PeriodicFrame.kStatus3, 500,
+        PeriodicFrame.kStatus4, 500,
+        PeriodicFrame.kStatus5, 10,
+        PeriodicFrame.kStatus6, 500));
+
+    // Setpoint writes closer than this to the last one sent are skipped
+    public static final double kSetpointSpeedTolerance = 0.005; // meters per second
+    public static final double kSetpointAngleTolerance = 0.002; // radians
+    // Below this speed a wheel keeps its angle instead of turning in place
+    public static final double kSetpointZeroSpeed = 0.01; // meters per second
+    // Resend unchanged setpoints this often anyway, so a missed frame heals
+    public static final int kSetpointResendLoops = 50;
+
+    // Simulated module response (see SwerveModuleSim)
+    public static final double kSimDrivingTimeConstant = 0.1; // seconds
+    public static final double kSimTurningTimeConstant = 0.05; // seconds
+    public static final double kSimTurningMaxRate = 4 * Math.PI; // radians per second
+
     // PP(PathPlanner) PID Constants
     public static final double kPPDrivingP = 1.0;
     public static final double kPPDrivingI = 1.50;
@@ -168,6 +305,13 @@ public final class Constants {
 
   public static final class OIConstants {
     public static final double kDriveDeadband = 0.1;
+    // Share of the cubic in the drive response curves, 0 for linear. Left
+    // linear until the drivers have tried a curve
+    public static final double kDriveExpo = 0;
+    public static final double kRotationExpo = 0;
+    // Fraction of full speed the sticks reach, normally and with boost held
+    public static final double kDriveSpeedScale = 0.5;
+    public static final double kDriveBoostScale = 1.0;
     public static final double kTriggerDeadband = 0.2;
   }
 
@@ -186,6 +330,26 @@ public final class Constants {
         kMaxAngularSpeedRadiansPerSecond, kMaxAngularSpeedRadiansPerSecondSquared);
   }
 
+  public static final class PathfindingConstants {
+    public static final String kNavGridFile = "pathplanner/navgrid.json";
+    public static final int kCacheSize = 64;
+    public static final double kFieldLengthMeters = 16.54;
+
+    // Where the robot stops to score or load, on the blue side, as
+    // { x meters, y meters, heading degrees }. Red is mirrored across the field.
+    public static final double[] kSpeakerPose = { 1.40, 5.55, 180 };
+    public static final double[] kAmpPose = { 1.84, 7.60, 90 };
+    public static final double[] kSourcePose = { 15.40, 1.00, -60 };
+  }
+
+  public static final class ShotConstants {
+    public static final String kShotTableFile = "shots/shot_table.json";
+    // Center of the blue speaker opening, { x meters, y meters }. Red is mirrored
+    public static final double[] kSpeakerBluePosition = { 0.0, 5.55 };
+    public static final int kSolverMaxIterations = 5;
+    public static final double kSolverToleranceSeconds = 1e-4;
+  }
+
   public static final class NeoMotorConstants {
     public static final double kFreeSpeedRpm = 5676;
   }
@@ -0,0 +1,253 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.IntakeConstants;
+
+/**
+ * Feeds the inputs recorded in a match log back through the robot code in
+ * headless simulation: driver station mode, every joystick axis, button and
+ * POV, and the intake beam breaks. The drivetrain runs on the simulated
+ * modules, starting from the first pose recorded in the log, and the replayed
+ * pose is compared against the pose recorded in the log. Robot time is paused
+ * and stepped 20 ms per loop, so a replay gives the same result every time. Run
+ * with
+ * {@code ./gradlew replayLog -Plog=path/to/FRC_xxx.wpilog [-Ptolerance=0.5]}.
+ * <p>
+ * Exits with status 1 if the replayed pose ever drifts further than the
+ * tolerance (meters) from the recorded one, so it can gate a regression run.
+ * <p>
+ * The recorded pose is the pose estimator's output, vision corrections
+ * included. Camera frames are not replayed, so any correction vision made on
+ * the robot shows up here as error; replaying vision is out of scope.
+ */
+public final class LogReplay {
+  private static final double kLoopSeconds = 0.02;
+  private static final int kMaxJoysticks = 6;
+
+  private LogReplay() {
+  }
+
+  /** One recorded value, applied when replay time reaches its timestamp. */
+  private static final class Event {
+    final long timestamp;
+    final Runnable apply;
+
+    Event(long timestamp, Runnable apply) {
+      this.timestamp = timestamp;
+      this.apply = apply;
+    }
+  }
+
+  private static boolean enabled = false;
+  private static boolean autonomous = false;
+  private static double[] loggedPose = null;
+  // Earliest Drive/Pose in the log, where the replayed odometry starts
+  private static double[] firstPose = null;
+  private static long firstPoseTimestamp = Long.MAX_VALUE;
+
+  public static void main(String... args) throws IOException {
+    if (args.length < 1 || args[0].isEmpty()) {
+      System.out.println("Usage: LogReplay <log.wpilog> [tolerance meters]");
+      System.exit(2);
+    }
+    double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : Double.POSITIVE_INFINITY;
+
+    DataLogReader reader = new DataLogReader(args[0]);
+    if (!reader.isValid()) {
+      throw new IOException("Not a WPILib data log: " + args[0]);
+    }
+    List<Event> events = readEvents(reader);
+    if (events.isEmpty()) {
+      System.out.println("No replayable inputs in " + args[0]);
+      System.exit(2);
+    }
+
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.notifyNewData();
+
+    RobotContainer container = new RobotContainer();
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    Command autoCommand = null;
+    if (firstPose != null) {
+      container.m_driveTrain.resetOdometry(new Pose2d(firstPose[0], firstPose[1], new Rotation2d(firstPose[2])));
+    }
+
+    long time = events.get(0).timestamp;
+    long end = events.get(events.size() - 1).timestamp;
+    int next = 0;
+    int loops = 0;
+    int comparedLoops = 0;
+    double errorSum = 0;
+    double errorMax = 0;
+    boolean wasEnabled = false;
+    boolean wasAutonomous = false;
+    while (time <= end) {
+      while (next < events.size() && events.get(next).timestamp <= time) {
+        events.get(next++).apply.run();
+      }
+      DriverStationSim.setEnabled(enabled);
+      DriverStationSim.setAutonomous(autonomous);
+      DriverStationSim.notifyNewData();
+
+      // Do what Robot does on mode changes
+      if (enabled && (!wasEnabled || autonomous != wasAutonomous)) {
+        if (autoCommand != null) {
+          autoCommand.cancel();
+          autoCommand = null;
+        }
+        if (autonomous) {
+          autoCommand = container.getAutonomousCommand();
+          autoCommand.schedule();
+        } else {
+          container.m_driveTrain.zeroHeading();
+        }
+      }
+      wasEnabled = enabled;
+      wasAutonomous = autonomous;
+
+      SimHooks.stepTiming(kLoopSeconds);
+      scheduler.run();
+      loops++;
+
+      if (enabled && loggedPose != null) {
+        double error = Math.hypot(container.m_driveTrain.getPose().getX() - loggedPose[0],
+            container.m_driveTrain.getPose().getY() - loggedPose[1]);
+        errorSum += error;
+        errorMax = Math.max(errorMax, error);
+        comparedLoops++;
+      }
+      time += (long) (kLoopSeconds * 1e6);
+    }
+
+    System.out.printf("Replayed %d loops (%.1f s), %d inputs%n", loops, loops * kLoopSeconds, events.size());
+    System.out.printf("Pose error vs log: mean %.3f m, max %.3f m over %d enabled loops%n",
+        comparedLoops == 0 ? 0 : errorSum / comparedLoops, errorMax, comparedLoops);
+    System.exit(errorMax > tolerance ? 1 : 0);
+  }
+
+  /** Turns every replayable record into an event, in timestamp order. */
+  private static List<Event> readEvents(DataLogReader reader) {
+    Map<Integer, String> names = new HashMap<>();
+    List<Event> events = new ArrayList<>();
+    DIOSim botSensor = new DIOSim(IntakeConstants.BOT_DIO_SENSOR);
+    DIOSim topSensor = new DIOSim(IntakeConstants.TOP_DIO_SENSOR);
+
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        names.put(start.entry, start.name);
+        continue;
+      }
+      if (record.isControl()) {
+        continue;
+      }
+      String name = names.get(record.getEntry());
+      if (name == null) {
+        continue;
+      }
+      long timestamp = record.getTimestamp();
+
+      if (name.equals("DS:enabled")) {
+        boolean value = record.getBoolean();
+        events.add(new Event(timestamp, () -> enabled = value));
+      } else if (name.equals("DS:autonomous")) {
+        boolean value = record.getBoolean();
+        events.add(new Event(timestamp, () -> autonomous = value));
+      } else if (name.equals("Intake/BotSensor")) {
+        boolean value = record.getBoolean();
+        events.add(new Event(timestamp, () -> botSensor.setValue(value)));
+      } else if (name.equals("Intake/TopSensor")) {
+        boolean value = record.getBoolean();
+        events.add(new Event(timestamp, () -> topSensor.setValue(value)));
+      } else if (name.equals("Drive/Pose")) {
+        double[] value = record.getDoubleArray();
+        events.add(new Event(timestamp, () -> loggedPose = value));
+        if (value.length >= 3 && timestamp < firstPoseTimestamp) {
+          firstPose = value;
+          firstPoseTimestamp = timestamp;
+        }
+      } else if (name.startsWith("DS:joystick")) {
+        Event event = joystickEvent(name, record, timestamp);
+        if (event != null) {
+          events.add(event);
+        }
+      }
+    }
+    // The log is written in roughly time order; make it exact
+    events.sort((a, b) -> Long.compare(a.timestamp, b.timestamp));
+    return events;
+  }
+
+  /** Handles {@code DS:joystick<n>/axes}, {@code /buttons} and {@code /povs}. */
+  private static Event joystickEvent(String name, DataLogRecord record, long timestamp) {
+    int slash = name.indexOf('/');
+    if (slash < 0) {
+      return null;
+    }
+    int stick;
+    try {
+      stick = Integer.parseInt(name.substring("DS:joystick".length(), slash));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (stick < 0 || stick >= kMaxJoysticks) {
+      return null;
+    }
+
+    switch (name.substring(slash + 1)) {
+      case "axes": {
+        float[] axes = record.getFloatArray();
+        return new Event(timestamp, () -> {
+          DriverStationSim.setJoystickAxisCount(stick, axes.length);
+          for (int i = 0; i < axes.length; i++) {
+            DriverStationSim.setJoystickAxis(stick, i, axes[i]);
+          }
+        });
+      }
+      case "buttons": {
+        boolean[] buttons = record.getBooleanArray();
+        return new Event(timestamp, () -> {
+          DriverStationSim.setJoystickButtonCount(stick, buttons.length);
+          for (int i = 0; i < buttons.length; i++) {
+            // Buttons are numbered from 1
+            DriverStationSim.setJoystickButton(stick, i + 1, buttons[i]);
+          }
+        });
+      }
+      case "povs": {
+        long[] povs = record.getIntegerArray();
+        return new Event(timestamp, () -> {
+          DriverStationSim.setJoystickPOVCount(stick, povs.length);
+          for (int i = 0; i < povs.length; i++) {
+            DriverStationSim.setJoystickPOV(stick, i, (int) povs[i]);
+          }
+        });
+      }
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Set;
+
+import org.json.simple.parser.ParseException;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.PathfindingConstants;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.utils.ConsoleLog;
+import frc.utils.GridPathfinder;
+import frc.utils.NavGrid;
+import frc.utils.SenderNT;
+import frc.utils.SenderNT.Rate;
+
+/**
+ * Builds drive-to-target commands from {@code navgrid.json}. The speaker, amp
+ * and source of both alliances get precomputed distance fields when the robot
+ * starts, so finding a path to one is a short walk through an array; see
+ * {@link GridPathfinder}.
+ */
+public class PathfindingService {
+  private static final ConsoleLog.Site kLog = ConsoleLog.site("PathfindingService", 0);
+
+  public enum Target {
+    SPEAKER(PathfindingConstants.kSpeakerPose),
+    AMP(PathfindingConstants.kAmpPose),
+    SOURCE(PathfindingConstants.kSourcePose);
+
+    private final double[] m_bluePose;
+
+    Target(double[] bluePose) {
+      m_bluePose = bluePose;
+    }
+  }
+
+  private final DriveSubsystem m_drive;
+  private final GridPathfinder m_pathfinder;
+  // Target IDs in the pathfinder, [target][0 = blue, 1 = red]
+  private final int[][] m_targetIds = new int[Target.values().length][2];
+
+  private final PathConstraints m_constraints = new PathConstraints(
+      AutoConstants.kMaxSpeedMetersPerSecond,
+      AutoConstants.kMaxAccelerationMetersPerSecondSquared,
+      AutoConstants.kMaxAngularSpeedRadiansPerSecond,
+      AutoConstants.kMaxAngularSpeedRadiansPerSecondSquared);
+
+  private double m_lastQueryMicros = 0;
+
+  public PathfindingService(DriveSubsystem drive) {
+    m_drive = drive;
+
+    GridPathfinder pathfinder = null;
+    long start = System.nanoTime();
+    File file = new File(Filesystem.getDeployDirectory(), PathfindingConstants.kNavGridFile);
+    try (Reader reader = new FileReader(file)) {
+      pathfinder = new GridPathfinder(NavGrid.fromJson(reader), PathfindingConstants.kCacheSize);
+      for (Target target : Target.values()) {
+        m_targetIds[target.ordinal()][0] = pathfinder.addTarget(target.m_bluePose[0], target.m_bluePose[1]);
+        m_targetIds[target.ordinal()][1] = pathfinder.addTarget(
+            PathfindingConstants.kFieldLengthMeters - target.m_bluePose[0], target.m_bluePose[1]);
+      }
+      ConsoleLog.log(kLog, "Pathfinding: navgrid loaded in {} ms", (System.nanoTime() - start) * 1e-6);
+    } catch (IOException | ParseException | RuntimeException e) {
+      ConsoleLog.log(kLog, "Pathfinding: could not load {}, pathfinding disabled: {}", file, e);
+    }
+    m_pathfinder = pathfinder;
+
+    SenderNT telemetry = SenderNT.getDashboard();
+    telemetry.addNumber("Pathfind us", () -> m_lastQueryMicros, Rate.SLOW, 1);
+    if (m_pathfinder != null) {
+      telemetry.addNumber("Pathfind Cache Hits", m_pathfinder::getCacheHits, Rate.SLOW);
+      telemetry.addNumber("Pathfind Cache Misses", m_pathfinder::getCacheMisses, Rate.SLOW);
+    }
+  }
+
+  /**
+   * @return A command that plans a path from wherever the robot is when it
+   *         starts to the target on our alliance's side, and follows it.
+   */
+  public Command driveTo(Target target) {
+    return Commands.defer(() -> buildPathCommand(target), Set.of(m_drive));
+  }
+
+  private Command buildPathCommand(Target target) {
+    if (m_pathfinder == null) {
+      return Commands.none();
+    }
+    boolean red = DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue) == DriverStation.Alliance.Red;
+    double heading = red ? 180 - target.m_bluePose[2] : target.m_bluePose[2];
+
+    int targetId = m_targetIds[target.ordinal()][red ? 1 : 0];
+    Pose2d pose = m_drive.getPose();
+    // Already there; a path this short has coincident waypoints and no
+    // direction to point them in
+    if (m_pathfinder.isNearTarget(targetId, pose.getX(), pose.getY())) {
+      return Commands.none();
+    }
+
+    long start = System.nanoTime();
+    double[] waypoints = m_pathfinder.findPathToTarget(targetId, pose.getX(), pose.getY());
+    m_lastQueryMicros = (System.nanoTime() - start) * 1e-3;
+    if (waypoints == null) {
+      return Commands.none();
+    }
+
+    // Point each waypoint's tangent along the next leg of the path
+    int count = waypoints.length / 2;
+    Pose2d[] poses = new Pose2d[count];
+    for (int i = 0; i < count; i++) {
+      int from = Math.min(i, count - 2);
+      double direction = Math.atan2(waypoints[from * 2 + 3] - waypoints[from * 2 + 1],
+          waypoints[from * 2 + 2] - waypoints[from * 2]);
+      poses[i] = new Pose2d(waypoints[i * 2], waypoints[i * 2 + 1], new Rotation2d(direction));
+    }
+    PathPlannerPath path = new PathPlannerPath(PathPlannerPath.bezierFromPoses(poses), m_constraints,
+        new GoalEndState(0, Rotation2d.fromDegrees(heading)));
+    // Already planned on the right side of the field
+    path.preventFlipping = true;
+    return AutoBuilder.followPath(path);
+  }
+}
@@ -4,9 +4,14 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.utils.DataRecorder;
+import frc.utils.LoopProfiler;
+import frc.utils.SenderNT;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -22,6 +27,8 @@ public class Robot extends TimedRobot {
 
   private RobotContainer m_robotContainer;
 
+  private LoopProfiler.Section m_loopProfile;
+
   /**
    * This function is run when the robot is first started up and should be used
    * for any
@@ -29,10 +36,23 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotInit() {
+    // Record joystick inputs, match state and our own signals for post-match
+    // analysis and LogReplay. NetworkTables traffic is left out of the log,
+    // everything worth keeping is registered with DataRecorder.
+    DataLogManager.logNetworkTables(false);
+    DataLogManager.start();
+    DriverStation.startDataLog(DataLogManager.getLog());
+    DataRecorder.getInstance().start(DataLogManager.getLog());
+
     // Instantiate our RobotContainer. This will perform all our button bindings,
     // and put our
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
+
+    // Time the whole loop and the command phase. Done after the container
+    // is built so the profiler's marker runs after all button bindings.
+    m_loopProfile = LoopProfiler.getInstance().section("robotPeriodic");
+    LoopProfiler.getInstance().instrumentScheduler(CommandScheduler.getInstance());
   }
 
   /**
@@ -47,6 +67,7 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
+    m_loopProfile.begin();
     // Runs the Scheduler. This is responsible for polling buttons, adding
     // newly-scheduled
     // commands, running already-scheduled commands, removing finished or
@@ -55,15 +76,26 @@ public class Robot extends TimedRobot {
     // robot's periodic
     // block in order for anything in the Command-based framework to work.
     CommandScheduler.getInstance().run();
+
+    DataRecorder.getInstance().record();
+
+    // Publish whichever registered dashboard values are due this loop
+    SenderNT.getDashboard().updateValues();
+    m_loopProfile.end();
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
   public void disabledInit() {
+    // Dump the timings from the mode we just left, then start fresh
+    LoopProfiler.getInstance().printReport();
+    LoopProfiler.getInstance().reset();
   }
 
   @Override
   public void disabledPeriodic() {
+    // Build the next auto command while nothing else is going on
+    m_robotContainer.m_autoLibrary.buildNext();
   }
 
   /**
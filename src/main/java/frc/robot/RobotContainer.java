@@ -25,8 +25,6 @@ import edu.wpi.first.math.trajectory.TrajectoryConfig;
 import edu.wpi.first.math.trajectory.TrajectoryGenerator;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.wpilibj.GenericHID;
-import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.PS4Controller.Button;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -34,12 +32,12 @@ import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.util.WPILibVersion;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.PrintCommand;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.RunCommand;
 import edu.wpi.first.wpilibj2.command.SwerveControllerCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandGenericHID;
-import edu.wpi.first.wpilibj2.command.button.JoystickButton;
 import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.DriveConstants;
 import frc.robot.Constants.OIConstants;
@@ -71,8 +69,18 @@ import frc.robot.commands.ZeroHeadingCommand;
 import frc.robot.commands.HookReleaseCommand;
 import frc.robot.commands.ManualFlingCommand;
 import frc.robot.subsystems.VisionSubsystem;
+import frc.utils.ButtonEngine;
+import frc.utils.ConsoleLog;
+import frc.utils.DataRecorder;
+import frc.utils.OperatorInput;
+import frc.utils.ResponseCurve;
+import frc.utils.SenderNT;
+import frc.utils.SenderNT.Rate;
 
 public class RobotContainer {
+  private static final ConsoleLog.Site kStartupLog = ConsoleLog.site("RobotContainer", 0);
+  private static final ConsoleLog.Site kButtonLog = ConsoleLog.site("RobotContainer buttons", 5);
+
   static boolean visionAutoSelection = false;
 
   DriveSubsystem m_driveTrain = new DriveSubsystem();
@@ -82,8 +90,12 @@ public class RobotContainer {
   VisionSubsystem m_vision = new VisionSubsystem();
   LightsSubsystem m_lights = new LightsSubsystem(m_flinger, m_intake, m_vision);
   CameraSubsystem m_cameras = new CameraSubsystem();
+  PathfindingService m_pathfinding = new PathfindingService(m_driveTrain);
+  ShotPlanner m_shotPlanner = new ShotPlanner(m_driveTrain);
+  private final ButtonEngine m_buttons = new ButtonEngine();
+  private final OperatorInput m_input = new OperatorInput(m_buttons);
 
-  SendableChooser<Command> autoChooser;
+  AutoLibrary m_autoLibrary;
 
   // Constants
   public static int JOYSTICK_BOOST_ID = 2;
@@ -101,15 +113,26 @@ public class RobotContainer {
    * The container for the robot. Contains subsystems, OI devices, and commands.
    */
   public RobotContainer() {
-    System.out.println("Using Wpilib Version " + WPILibVersion.Version);
+    ConsoleLog.log(kStartupLog, "Using Wpilib Version {}", WPILibVersion.Version);
     ConfigureButtonBindings();
+    m_vision.setPoseConsumer(m_driveTrain::addVisionMeasurement);
 
     NamedCommands.registerCommand("fling_command", new FlingCommand(m_flinger, m_intake));
     NamedCommands.registerCommand("intake_command", new IntakeCommand(m_flinger, m_intake));
+    NamedCommands.registerCommand("pathfind_speaker", m_pathfinding.driveTo(PathfindingService.Target.SPEAKER));
+    NamedCommands.registerCommand("pathfind_amp", m_pathfinding.driveTo(PathfindingService.Target.AMP));
+    NamedCommands.registerCommand("pathfind_source", m_pathfinding.driveTo(PathfindingService.Target.SOURCE));
+    // Planned shots only once the shot table holds shots measured on the robot
+    if (m_shotPlanner.isTableMeasured()) {
+      NamedCommands.registerCommand("fling_planned", new FlingCommand(m_flinger, m_intake, m_shotPlanner));
+    }
 
-    autoChooser = AutoBuilder.buildAutoChooser();
+    // Autos are loaded in the background and built while disabled, instead of
+    // all at once here
+    m_autoLibrary = new AutoLibrary();
+    m_autoLibrary.startLoading();
 
-    SmartDashboard.putData("Auto Chooser", autoChooser);
+    SmartDashboard.putData("Auto Chooser", m_autoLibrary.getChooser());
 
     
    }
@@ -124,59 +147,70 @@ public class RobotContainer {
       String visionAuto = NetworkTableInstance.getDefault().getEntry("").getString("null");
 
       if (visionAuto != "null") {
-        return new PathPlannerAuto(visionAuto);
+        return m_autoLibrary.getCommand(visionAuto);
       }
     }
     
-    return Commands.waitSeconds(m_driveTrain.wait_seconds).andThen(autoChooser.getSelected());
+    return Commands.waitSeconds(m_driveTrain.wait_seconds).andThen(m_autoLibrary.getSelectedCommand());
   }
 
   private void ConfigureButtonBindings() {
-    Joystick l_attack3 = new Joystick(0);
-    Joystick r_attack3 = new Joystick(1);
-
-    GenericHID buttonBox = new GenericHID(2);
-
-    JoystickButton button1 = new JoystickButton(buttonBox, BUTTON_BOX_CLIMB_ID);
-    button1.whileTrue(new ClimbCommand(m_climber));
-
-    JoystickButton button2 = new JoystickButton(buttonBox, BUTTON_BOX_HOOK_RELEASE_ID);
-    button2.whileTrue(new HookReleaseCommand(m_climber));
+    // Every axis and button of all three controllers is sampled once per
+    // loop, and the snapshot's buttons drive the bindings below
+    int left = m_input.addController(0);
+    int right = m_input.addController(1);
+    int buttonBox = m_input.addController(2);
+    CommandScheduler.getInstance().getDefaultButtonLoop().bind(m_input::sample);
+
+    // Snapshot to drive output within one loop; see OperatorInput
+    SenderNT telemetry = SenderNT.getDashboard();
+    telemetry.addNumber("Input/Latency ms", () -> m_input.getLatencyMicros() * 1e-3, Rate.NORMAL, 0.1);
+    telemetry.addNumber("Input/Max Latency ms", () -> m_input.getMaxLatencyMicros() * 1e-3, Rate.SLOW);
+    DataRecorder.getInstance().addInteger("Input/LatencyMicros", m_input::getLatencyMicros);
+
+    m_buttons.whileTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_CLIMB_ID), new ClimbCommand(m_climber));
+    m_buttons.whileTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_HOOK_RELEASE_ID), new HookReleaseCommand(m_climber));
 
     // reverse intake
-    JoystickButton button3 = new JoystickButton(buttonBox, BUTTON_BOX_MANUAL_INTAKE_REVERSE_ID);
-    button3.whileTrue(new ManualIntakeCommand(m_intake, true));
+    m_buttons.whileTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_MANUAL_INTAKE_REVERSE_ID),
+        new ManualIntakeCommand(m_intake, true));
 
     // manual intake
-    JoystickButton button4 = new JoystickButton(buttonBox, BUTTON_BOX_MANUAL_INTAKE_ID);
-    button4.whileTrue(new ManualIntakeCommand(m_intake, false));
+    m_buttons.whileTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_MANUAL_INTAKE_ID),
+        new ManualIntakeCommand(m_intake, false));
 
     // reverse fling
-    JoystickButton button5 = new JoystickButton(buttonBox, BUTTON_BOX_MANUAL_FLING_REVERSE_ID);
-    button5.whileTrue(new ManualFlingCommand(m_flinger, true));
+    m_buttons.whileTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_MANUAL_FLING_REVERSE_ID),
+        new ManualFlingCommand(m_flinger, true));
 
     // manual fling
-    JoystickButton button6 = new JoystickButton(buttonBox, BUTTON_BOX_MANUAL_FLING_ID);
-    button6.whileTrue(new ManualFlingCommand(m_flinger, false));
+    m_buttons.whileTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_MANUAL_FLING_ID),
+        new ManualFlingCommand(m_flinger, false));
 
-    JoystickButton button7 = new JoystickButton(buttonBox, BUTTON_BOX_CAMERA_SWITCH_ID);
-    button7.onTrue(new PrintCommand("camera switch (toggle)"));
+    // Switches the driver stream, disabled or not
+    m_buttons.onTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_CAMERA_SWITCH_ID),
+        new InstantCommand(m_cameras::nextCamera).ignoringDisable(true));
 
-    JoystickButton button8 = new JoystickButton(buttonBox, BUTTON_BOX_CLIMBER_SWITCH_ID);
-    button8.onTrue(new PrintCommand("climber switch (toggle)"));
+    m_buttons.onTrue(ButtonEngine.button(buttonBox, BUTTON_BOX_CLIMBER_SWITCH_ID),
+        new InstantCommand(() -> ConsoleLog.log(kButtonLog, "climber switch (toggle)")).ignoringDisable(true));
 
     // ---
-    JoystickButton boostButton = new JoystickButton(l_attack3, 2);
-    m_driveTrain.setDefaultCommand(
-        new DriveCommand(m_driveTrain, r_attack3::getX, r_attack3::getY, l_attack3::getX, ()-> boostButton.getAsBoolean()));
-
-    JoystickButton flingButton = new JoystickButton(r_attack3, 1);
-    flingButton.onTrue(new FlingCommand(m_flinger, m_intake));
-    JoystickButton intakeButton = new JoystickButton(r_attack3, 2);
-    intakeButton.onTrue(new IntakeCommand(m_flinger, m_intake));
-    JoystickButton zeroHeadingButton = new JoystickButton(r_attack3, 7);
-    zeroHeadingButton.onTrue(new ZeroHeadingCommand(m_driveTrain));
+    // Attack 3 sticks: axis 0 is X, axis 1 is Y
+    int strafeAxis = OperatorInput.axis(right, 0);
+    int forwardAxis = OperatorInput.axis(right, 1);
+    int turnAxis = OperatorInput.axis(left, 0);
+    ResponseCurve translationCurve = new ResponseCurve(OIConstants.kDriveDeadband, OIConstants.kDriveExpo);
+    m_input.setCurve(strafeAxis, translationCurve);
+    m_input.setCurve(forwardAxis, translationCurve);
+    m_input.setCurve(turnAxis, new ResponseCurve(OIConstants.kDriveDeadband, OIConstants.kRotationExpo));
+    m_driveTrain.setDefaultCommand(new DriveCommand(m_driveTrain, m_input, strafeAxis, forwardAxis, turnAxis,
+        ButtonEngine.button(left, JOYSTICK_BOOST_ID)));
+
+    m_buttons.onTrue(ButtonEngine.button(right, 1), new FlingCommand(m_flinger, m_intake));
+    m_buttons.onTrue(ButtonEngine.button(right, 2), new IntakeCommand(m_flinger, m_intake));
+    m_buttons.onTrue(ButtonEngine.button(right, 7), new ZeroHeadingCommand(m_driveTrain));
   }
+
   // /**
   // * Use this to pass the autonomous command to the main {@link Robot} class.
   // *
@@ -0,0 +1,127 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.json.simple.parser.ParseException;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.FlingerConstants;
+import frc.robot.Constants.PathfindingConstants;
+import frc.robot.Constants.ShotConstants;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.utils.ConsoleLog;
+import frc.utils.DataRecorder;
+import frc.utils.SenderNT;
+import frc.utils.SenderNT.Rate;
+import frc.utils.ShotSolver;
+import frc.utils.ShotTable;
+
+/**
+ * Plans the speaker shot every loop from the drivetrain's pose and velocity,
+ * using the shot table in {@code deploy/shots/shot_table.json}; see
+ * {@link ShotSolver}. Commands read the flywheel speed and heading from here.
+ * It owns no hardware, so nothing ever requires it.
+ * <p>
+ * Until the table is marked as measured, {@link #isTableMeasured()} is false
+ * and nothing should shoot from the plan.
+ */
+public class ShotPlanner extends SubsystemBase {
+  private static final ConsoleLog.Site kLog = ConsoleLog.site("ShotPlanner", 0);
+
+  private final DriveSubsystem m_drive;
+  private final ShotSolver m_solver;
+  private final boolean m_tableMeasured;
+  private double m_lastSolveMicros = 0;
+
+  public ShotPlanner(DriveSubsystem drive) {
+    m_drive = drive;
+    ShotTable table = loadTable();
+    m_tableMeasured = table.isMeasured();
+    m_solver = new ShotSolver(table, ShotConstants.kSolverMaxIterations, ShotConstants.kSolverToleranceSeconds);
+
+    SenderNT telemetry = SenderNT.getDashboard();
+    telemetry.addNumber("Shot/Range", m_solver::getRange, Rate.NORMAL, 0.05);
+    telemetry.addNumber("Shot/RPM", m_solver::getRPM, Rate.NORMAL, 10);
+    telemetry.addNumber("Shot/Heading deg", () -> Math.toDegrees(m_solver.getHeading()), Rate.NORMAL, 0.5);
+    telemetry.addBoolean("Shot/In Range", m_solver::isInRange, Rate.NORMAL);
+    telemetry.addNumber("Shot/Solve us", () -> m_lastSolveMicros, Rate.SLOW, 1);
+
+    DataRecorder.getInstance().addDoubleArray("Shot/Solution", 4, values -> {
+      values[0] = m_solver.getRange();
+      values[1] = m_solver.getRPM();
+      values[2] = m_solver.getHeading();
+      values[3] = m_solver.getTimeOfFlight();
+    });
+  }
+
+  /**
+   * Reads the shot table, or falls back to the old fixed flinger speed at
+   * every range if it is missing or broken.
+   */
+  private static ShotTable loadTable() {
+    File file = new File(Filesystem.getDeployDirectory(), ShotConstants.kShotTableFile);
+    try (Reader reader = new FileReader(file)) {
+      ShotTable table = ShotTable.fromJson(reader);
+      ConsoleLog.log(kLog, "ShotPlanner: loaded {} shots from {}", table.size(), file);
+      if (!table.isMeasured()) {
+        ConsoleLog.log(kLog, "ShotPlanner: {} is not marked as measured, planned shots are off", file);
+      }
+      return table;
+    } catch (IOException | ParseException | RuntimeException e) {
+      ConsoleLog.log(kLog, "ShotPlanner: could not load {}, using the fixed shot: {}", file, e);
+      return new ShotTable(new double[] { 0 },
+          new double[] { FlingerConstants.FLINGER_SHOOT_SPEED * FlingerConstants.FLINGER_MAX_RPM },
+          new double[] { 0 }, new double[] { 0 });
+    }
+  }
+
+  @Override
+  public void periodic() {
+    long start = System.nanoTime();
+    Pose2d pose = m_drive.getPose();
+    ChassisSpeeds speeds = m_drive.getChassisSpeeds();
+    // The note keeps the field-relative velocity, so rotate the robot-relative speeds
+    double cos = pose.getRotation().getCos();
+    double sin = pose.getRotation().getSin();
+    double vx = speeds.vxMetersPerSecond * cos - speeds.vyMetersPerSecond * sin;
+    double vy = speeds.vxMetersPerSecond * sin + speeds.vyMetersPerSecond * cos;
+
+    boolean red = DriverStation.getAlliance().orElse(DriverStation.Alliance.Blue) == DriverStation.Alliance.Red;
+    double speakerX = red
+        ? PathfindingConstants.kFieldLengthMeters - ShotConstants.kSpeakerBluePosition[0]
+        : ShotConstants.kSpeakerBluePosition[0];
+    m_solver.solve(pose.getX(), pose.getY(), vx, vy, speakerX, ShotConstants.kSpeakerBluePosition[1]);
+    m_lastSolveMicros = (System.nanoTime() - start) * 1e-3;
+  }
+
+  /** @return Flywheel speed for the current shot. */
+  public double getRPM() {
+    return m_solver.getRPM();
+  }
+
+  /** @return Field-relative heading to face for the current shot, in radians. */
+  public double getHeadingRadians() {
+    return m_solver.getHeading();
+  }
+
+  /** @return Whether the shot table was measured on the robot, not placeholders. */
+  public boolean isTableMeasured() {
+    return m_tableMeasured;
+  }
+
+  /** @return Whether the current range is covered by the shot table. */
+  public boolean isInRange() {
+    return m_solver.isInRange();
+  }
+}
@@ -4,28 +4,40 @@
 
 package frc.robot.commands;
 
-import java.util.function.BooleanSupplier;
-import java.util.function.DoubleSupplier;
-
-import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants.OIConstants;
 import frc.robot.subsystems.DriveSubsystem;
+import frc.utils.OperatorInput;
 
+/**
+ * Teleop drive from this loop's {@link OperatorInput} snapshot. The axes
+ * arrive already shaped by their response curves, so all that is left is
+ * scaling and the boost button.
+ */
 public class DriveCommand extends Command {
   public final DriveSubsystem m_driveSubsystem;
-  private final BooleanSupplier m_linearBoostSupplier;
-  private final DoubleSupplier m_linearXSupplier;
-  private final DoubleSupplier m_linearYSupplier;
-  private final DoubleSupplier m_angularSpeedSupplier;
+  private final OperatorInput m_input;
+  private final int m_linearXAxis;
+  private final int m_linearYAxis;
+  private final int m_angularSpeedAxis;
+  private final long m_linearBoostButton;
 
-  public DriveCommand(DriveSubsystem subsystem, DoubleSupplier m_linearXSupplier, DoubleSupplier m_linearYSupplier,
-      DoubleSupplier m_angularSpeedSupplier, BooleanSupplier m_linearBoostSupplier) {
+  /**
+   * @param subsystem          The drivetrain.
+   * @param input              Snapshot to read the axes and buttons from.
+   * @param linearXAxis        Stick X, strafes the robot.
+   * @param linearYAxis        Stick Y, drives the robot forwards and back.
+   * @param angularSpeedAxis   Turns the robot.
+   * @param linearBoostButton  Buttons held for full linear speed.
+   */
+  public DriveCommand(DriveSubsystem subsystem, OperatorInput input, int linearXAxis, int linearYAxis,
+      int angularSpeedAxis, long linearBoostButton) {
     this.m_driveSubsystem = subsystem;
-    this.m_linearXSupplier = m_linearXSupplier;
-    this.m_linearYSupplier = m_linearYSupplier;
-    this.m_angularSpeedSupplier = m_angularSpeedSupplier;
-    this.m_linearBoostSupplier = m_linearBoostSupplier;
+    this.m_input = input;
+    this.m_linearXAxis = linearXAxis;
+    this.m_linearYAxis = linearYAxis;
+    this.m_angularSpeedAxis = angularSpeedAxis;
+    this.m_linearBoostButton = linearBoostButton;
 
     this.addRequirements(m_driveSubsystem);
   }
@@ -38,17 +50,16 @@ public class DriveCommand extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    double boostValue = m_linearBoostSupplier.getAsBoolean() == true ? 2 : 1;
-    double xSpeed = MathUtil.applyDeadband(m_linearYSupplier.getAsDouble(), OIConstants.kDriveDeadband);
-    double ySpeed = MathUtil.applyDeadband(m_linearXSupplier.getAsDouble(), OIConstants.kDriveDeadband);
-    double rotSpeed = MathUtil.applyDeadband(m_angularSpeedSupplier.getAsDouble(), OIConstants.kDriveDeadband);
-    ySpeed = ySpeed * boostValue;
-    xSpeed = xSpeed * boostValue;
+    double scale = m_input.isHeld(m_linearBoostButton) ? OIConstants.kDriveBoostScale : OIConstants.kDriveSpeedScale;
+    double xSpeed = m_input.get(m_linearYAxis) * scale;
+    double ySpeed = m_input.get(m_linearXAxis) * scale;
+    double rotSpeed = m_input.get(m_angularSpeedAxis);
     m_driveSubsystem.drive(
-        -xSpeed/2,
-        -ySpeed/2,
+        -xSpeed,
+        -ySpeed,
         -rotSpeed,
         true, true);
+    m_input.markOutput();
   }
 
   // Called once the command ends or is interrupted.
@@ -1,55 +1,111 @@
 package frc.robot.commands;
 
+import java.util.function.DoubleSupplier;
+
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
+import frc.robot.ShotPlanner;
 import frc.robot.subsystems.Flinger;
 import frc.robot.subsystems.FloorIntake;
+import frc.robot.subsystems.NoteTracker;
 
 public class FlingCommand extends Command {
 
     private final Flinger m_flinger;
     private final FloorIntake m_intake;
-    private Timer timer = new Timer();
+    private final boolean m_waitForSpeed;
+    private final DoubleSupplier m_speed;
+    private double m_startTime;
+    private long m_exitsAtStart;
+    private boolean m_feeding;
 
     /**
-     * Spins the flinger
+     * Spins the flinger up and feeds the note in as soon as both wheels are at
+     * speed, then keeps spinning for
+     * {@link Constants.FlingerConstants#FLING_AFTER_EXIT_SECONDS} after the note
+     * has left
      * 
      * @param flinger
-     * @param supplierfling
-     * @param supplierIntake
+     * @param intake
      */
     public FlingCommand(Flinger flinger, FloorIntake intake) {
+        this(flinger, intake, true);
+    }
+
+    /**
+     * @param flinger
+     * @param intake
+     * @param waitForSpeed Whether to hold the note until the wheels are at
+     *                     speed, instead of feeding it right away. Feeding
+     *                     right away shoots about a second sooner, but with the
+     *                     wheels far below the shooting speed
+     */
+    public FlingCommand(Flinger flinger, FloorIntake intake, boolean waitForSpeed) {
+        this(flinger, intake, waitForSpeed, () -> Constants.FlingerConstants.FLINGER_SHOOT_SPEED);
+    }
+
+    /**
+     * Shoots at the flywheel speed the shot planner works out for the current
+     * range and motion, waiting for the wheels to get there
+     * 
+     * @param flinger
+     * @param intake
+     * @param planner
+     */
+    public FlingCommand(Flinger flinger, FloorIntake intake, ShotPlanner planner) {
+        this(flinger, intake, true, () -> planner.getRPM() / Constants.FlingerConstants.FLINGER_MAX_RPM);
+    }
+
+    private FlingCommand(Flinger flinger, FloorIntake intake, boolean waitForSpeed, DoubleSupplier speed) {
         this.m_flinger = flinger;
         this.m_intake = intake;
+        this.m_waitForSpeed = waitForSpeed;
+        this.m_speed = speed;
         addRequirements(m_flinger, m_intake);
     }
 
     @Override
     public void initialize() {
-        timer.reset();
+        m_startTime = Timer.getFPGATimestamp();
+        m_exitsAtStart = m_intake.getNoteTracker().getNotesExited();
+        m_feeding = false;
      }
 
     @Override
     public void execute() {
-        this.m_intake.intake(Constants.IntakeConstants.INTAKE_SPEED);
-        this.m_flinger.fling(Constants.FlingerConstants.FLINGER_SHOOT_SPEED);
-        
-        if (!m_intake.getBotSensor() && !m_intake.getTopSensor()){
-            timer.start();
+        this.m_flinger.fling(m_speed.getAsDouble());
+
+        // Once the note is on its way keep feeding, even though squeezing it
+        // through pulls the wheels out of tolerance
+        if (!m_feeding && (!m_waitForSpeed || m_flinger.isAtSpeed()
+                || Timer.getFPGATimestamp() - m_startTime > Constants.FlingerConstants.FLINGER_SPIN_UP_TIMEOUT_SECONDS)) {
+            m_feeding = true;
+            m_intake.setFeeding(true);
         }
+        this.m_intake.intake(m_feeding ? Constants.IntakeConstants.INTAKE_SPEED : 0);
     }
 
     @Override
     public void end(boolean interrupted) {
         this.m_flinger.fling(0);
         this.m_intake.intake(0);
+        m_intake.setFeeding(false);
     }
 
     @Override
     public boolean isFinished() {
-        // Ends the command if all sensors are false
-        return timer.hasElapsed(1);
+        NoteTracker tracker = m_intake.getNoteTracker();
+        if (tracker.getState().hasNote()) {
+            return false;
+        }
+        // Count from the edge where the note cleared the top sensor, not from the
+        // loop that noticed it. Without an exit (no note to begin with, or it fell
+        // out the bottom) count from when the intake went empty
+        double emptySince = tracker.getNotesExited() > m_exitsAtStart
+                ? tracker.getExitTimestamp()
+                : Math.max(tracker.getStateTimestamp(), m_startTime);
+        return Timer.getFPGATimestamp() - emptySince >= Constants.FlingerConstants.FLING_AFTER_EXIT_SECONDS;
     }
 
-}
\ No newline at end of file
+}
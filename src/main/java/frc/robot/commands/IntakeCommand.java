@@ -4,6 +4,7 @@ import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
 import frc.robot.subsystems.Flinger;
 import frc.robot.subsystems.FloorIntake;
+import frc.robot.subsystems.NoteTracker;
 
 public class IntakeCommand extends Command {
 
@@ -11,7 +12,7 @@ public class IntakeCommand extends Command {
     private final Flinger m_flinger;
 
     /**
-     * Runs the intake
+     * Runs the intake until the note is centered between both sensors
      * 
      * @param shooter
      */
@@ -21,39 +22,42 @@ public class IntakeCommand extends Command {
         addRequirements(m_floorIntake);
     }
 
-    // come back, should this be || or &&? || would work for an && situation
     @Override
     public void initialize() {
-        
+        // Cut the intake the instant the note is centered rather than on the next loop
+        this.m_floorIntake.setStopWhenCentered(true);
     }
 
     @Override
     public void execute() {
-        boolean isTop = m_floorIntake.getTopSensor();
-        boolean isBot = m_floorIntake.getBotSensor();
-
-        if(!isBot && !isTop){
-            this.m_floorIntake.intake(Constants.IntakeConstants.INTAKE_SPEED);
-            this.m_flinger.fling(Constants.FlingerConstants.FLINGER_INTAKE_SPEED); 
-        }
-        if (isBot && !isTop){
-            this.m_floorIntake.intake(Constants.IntakeConstants.INTAKE_ADJUST_SPEED);
-        }
-        if(isTop && !isBot){
-            this.m_floorIntake.intake(-Constants.IntakeConstants.INTAKE_ADJUST_SPEED);
-            // this.m_flinger.fling(Constants.FlingerConstants.FLINGER_INTAKE_SPEED); 
-            // come back, make constant for negative intake speed
+        switch (m_floorIntake.getNoteState()) {
+            case NONE:
+                this.m_floorIntake.intake(Constants.IntakeConstants.INTAKE_SPEED);
+                this.m_flinger.fling(Constants.FlingerConstants.FLINGER_INTAKE_SPEED);
+                break;
+            case ENTERING:
+                this.m_floorIntake.intake(Constants.IntakeConstants.INTAKE_ADJUST_SPEED);
+                break;
+            case OVER_TRAVEL:
+            case EXITING:
+                this.m_floorIntake.intake(-Constants.IntakeConstants.INTAKE_ADJUST_SPEED);
+                // come back, make constant for negative intake speed
+                break;
+            case CENTERED:
+                this.m_floorIntake.intake(0);
+                break;
         }
     }
 
     @Override
     public void end(boolean interrupted) {
+        this.m_floorIntake.setStopWhenCentered(false);
         this.m_floorIntake.intake(0);
         this.m_flinger.fling(Constants.FlingerConstants.FLINGER_SHOOT_SPEED);
     }
 
     @Override
     public boolean isFinished() {
-        return this.m_floorIntake.getBotSensor() && this.m_floorIntake.getTopSensor();
+        return this.m_floorIntake.getNoteState() == NoteTracker.State.CENTERED;
     }
-}
\ No newline at end of file
+}
@@ -4,29 +4,181 @@
 
 package frc.robot.subsystems;
 
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.OperatingSystemMXBean;
+
 import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.cscore.CameraServerJNI;
+import edu.wpi.first.cscore.MjpegServer;
 import edu.wpi.first.cscore.UsbCamera;
+import edu.wpi.first.cscore.VideoMode.PixelFormat;
+import edu.wpi.first.cscore.VideoSource.ConnectionStrategy;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CameraConstants;
+import frc.utils.ConsoleLog;
+import frc.utils.DataRecorder;
+import frc.utils.SenderNT;
+import frc.utils.SenderNT.Rate;
+import frc.utils.StreamGovernor;
 
+/**
+ * Driver cameras behind one switched MJPEG stream (port 1181, see
+ * {@code camera-viewer.html}). Only the camera being streamed is open; the
+ * others are force-closed so they neither capture nor cost USB bandwidth.
+ * <p>
+ * A {@link StreamGovernor} steps the stream through
+ * {@link CameraConstants#kStreamLevels} to keep the active camera's data rate
+ * under the bandwidth cap. Resolution and frame rate are changed on the
+ * camera itself, so the roboRIO just passes its JPEGs through; only the
+ * cheapest level re-encodes at a lower JPEG quality.
+ * <p>
+ * cscore only measures the data rate coming in from the camera, not what the
+ * MJPEG server sends out. When passing through the two are the same; when
+ * re-encoding, the incoming rate is scaled by the same quality guess the
+ * level costs use, so the governor judges the stream that actually leaves
+ * the robot and can tell when a better level would fit again.
+ * <p>
+ * cscore does not account CPU per stream, so the dashboard shows the robot
+ * program's CPU alongside each camera's frame and data rates and whether the
+ * stream is being re-encoded, which is what costs CPU.
+ */
 public class CameraSubsystem extends SubsystemBase {
-  UsbCamera camera1;
-  UsbCamera camera2;
+  private static final ConsoleLog.Site kLog = ConsoleLog.site("CameraSubsystem", 2);
+  private static final double kUpdatePeriodSeconds = 0.25;
+
+  private final UsbCamera[] m_cameras;
+  private final MjpegServer m_server;
+  private final StreamGovernor m_governor;
+  private final OperatingSystemMXBean m_os;
+  private int m_active = -1;
+  private int m_level;
+  private double m_nextUpdate = 0;
+  private double m_streamBytesPerSecond = 0;
+  private double m_processCpu = 0;
+
   /** Creates a new CameraSubsystem. */
   public CameraSubsystem() {
-    camera1 = CameraServer.startAutomaticCapture(0);
-    camera1.setResolution(320, 240);
-    camera1.setFPS(7);
+    CameraServerJNI.setTelemetryPeriod(CameraConstants.kTelemetryPeriodSeconds);
+
+    int[] devices = CameraConstants.kCameraDevices;
+    m_cameras = new UsbCamera[devices.length];
+    for (int i = 0; i < devices.length; i++) {
+      m_cameras[i] = new UsbCamera("USB Camera " + devices[i], devices[i]);
+      CameraServer.addCamera(m_cameras[i]);
+    }
+    m_server = CameraServer.addSwitchedCamera(CameraConstants.kStreamName);
+
+    double[] costs = new double[CameraConstants.kStreamLevels.length];
+    for (int i = 0; i < costs.length; i++) {
+      int[] level = CameraConstants.kStreamLevels[i];
+      costs[i] = (double) level[0] * level[1] * level[2] * qualityScale(i);
+    }
+    m_level = CameraConstants.kStartLevel;
+    m_governor = new StreamGovernor(costs, CameraConstants.kBandwidthCapBytesPerSecond, m_level,
+        CameraConstants.kDownSeconds, CameraConstants.kUpSeconds, CameraConstants.kSettleSeconds,
+        CameraConstants.kUpHeadroom);
 
-    camera2 = CameraServer.startAutomaticCapture(1);
-    camera2.setResolution(320, 240);
-    camera2.setFPS(7);
-    // you left your computer unattended lol 
-    // dont push to main!
-    // you are a wonderful programmer ;)
+    // Null on a JVM without the extended bean, then CPU is not shown
+    m_os = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+
+    setActiveCamera(0);
+
+    SenderNT telemetry = SenderNT.getDashboard();
+    telemetry.addNumber("Camera/Active", () -> m_active, Rate.SLOW);
+    telemetry.addNumber("Camera/Level", () -> m_level, Rate.SLOW);
+    telemetry.addNumber("Camera/Stream kBps", () -> m_streamBytesPerSecond * 1e-3, Rate.SLOW, 1);
+    telemetry.addNumber("Camera/Cap kBps", () -> m_governor.getCapBytesPerSecond() * 1e-3, Rate.SLOW);
+    telemetry.addBoolean("Camera/Recompressing", () -> CameraConstants.kStreamLevels[m_level][3] >= 0, Rate.SLOW);
+    telemetry.addNumber("Camera/Process CPU %", () -> m_processCpu * 100, Rate.SLOW, 1);
+    for (UsbCamera camera : m_cameras) {
+      String prefix = "Camera/" + camera.getName() + "/";
+      telemetry.addNumber(prefix + "kBps", () -> camera.getActualDataRate() * 1e-3, Rate.SLOW, 1);
+      telemetry.addNumber(prefix + "FPS", camera::getActualFPS, Rate.SLOW, 0.5);
+      telemetry.addBoolean(prefix + "Connected", camera::isConnected, Rate.SLOW);
+    }
+    DataRecorder.getInstance().addDoubleArray("Camera/Stream", 3, values -> {
+      values[0] = m_active;
+      values[1] = m_level;
+      values[2] = m_streamBytesPerSecond;
+    });
+  }
+
+  /** Streams the next camera, wrapping round to the first. */
+  public void nextCamera() {
+    setActiveCamera((m_active + 1) % m_cameras.length);
+  }
+
+  /**
+   * Streams one camera and closes the rest.
+   *
+   * @param index Index into {@link CameraConstants#kCameraDevices}.
+   */
+  public void setActiveCamera(int index) {
+    if (index == m_active) {
+      return;
+    }
+    UsbCamera camera = m_cameras[index];
+    // Open the new camera before switching so the stream is only dark while it starts
+    camera.setConnectionStrategy(ConnectionStrategy.kKeepOpen);
+    applyLevel(camera, m_level);
+    m_server.setSource(camera);
+    for (int i = 0; i < m_cameras.length; i++) {
+      if (i != index) {
+        m_cameras[i].setConnectionStrategy(ConnectionStrategy.kForceClose);
+      }
+    }
+    m_active = index;
+    m_governor.restart(Timer.getFPGATimestamp());
+    ConsoleLog.log(kLog, "Camera: streaming {}", camera.getName());
+  }
+
+  private void applyLevel(UsbCamera camera, int level) {
+    int[] mode = CameraConstants.kStreamLevels[level];
+    if (!camera.setVideoMode(PixelFormat.kMJPEG, mode[0], mode[1], mode[2])) {
+      ConsoleLog.log(kLog, "Camera: {} rejected its video mode", camera.getName());
+    }
+    // The server throttles too, in case the camera rounds the frame rate up
+    m_server.setFPS(mode[2]);
+    m_server.setCompression(mode[3]);
+  }
+
+  /**
+   * A rough guess at how JPEG size falls with quality, relative to the
+   * camera's own JPEGs, which passthrough levels send unchanged.
+   */
+  private static double qualityScale(int level) {
+    int quality = CameraConstants.kStreamLevels[level][3];
+    return quality < 0 ? 1 : quality / 100.0;
+  }
+
+  /** Changes the bandwidth cap the stream adapts to. */
+  public void setBandwidthCap(double bytesPerSecond) {
+    m_governor.setCapBytesPerSecond(bytesPerSecond);
+  }
+
+  public int getActiveCamera() {
+    return m_active;
   }
 
   @Override
   public void periodic() {
-    // This method will be called once per scheduler run
+    double now = Timer.getFPGATimestamp();
+    if (now < m_nextUpdate) {
+      return;
+    }
+    m_nextUpdate = now + kUpdatePeriodSeconds;
+
+    m_streamBytesPerSecond = m_cameras[m_active].getActualDataRate() * qualityScale(m_level);
+    int level = m_governor.update(m_streamBytesPerSecond, now);
+    if (level != m_level) {
+      m_level = level;
+      applyLevel(m_cameras[m_active], level);
+      ConsoleLog.log(kLog, "Camera: stream level {} after {} kB/s", level, m_streamBytesPerSecond * 1e-3);
+    }
+    if (m_os != null) {
+      m_processCpu = Math.max(0, m_os.getProcessCpuLoad());
+    }
   }
 }
@@ -10,26 +10,39 @@ import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
 import com.pathplanner.lib.util.*;
 
-import edu.wpi.first.math.filter.SlewRateLimiter;
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.*;
 import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.wpilibj.ADIS16470_IMU;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Constants;
 import frc.robot.RobotContainer;
 import frc.robot.Constants.DriveConstants;
 import frc.robot.Constants.OIConstants;
-import frc.utils.SwerveUtils;
+import frc.robot.Constants.VisionConstants;
+import frc.utils.AllocationCounter;
+import frc.utils.DataRecorder;
+import frc.utils.DriveRateLimiter;
+import frc.utils.HeadingController;
+import frc.utils.LoopProfiler;
+import frc.utils.OdometrySampleBuffer;
+import frc.utils.SenderNT;
+import frc.utils.SwerveDriveMath;
+import frc.utils.SenderNT.Rate;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
@@ -55,6 +68,8 @@ public class DriveSubsystem extends SubsystemBase {
       DriveConstants.kRearRightTurningCanId,
       DriveConstants.kBackRightChassisAngularOffset);
 
+  private final double m_bootConfigSeconds;
+
   // The gyro sensor
   // Using NavX
 
@@ -62,33 +77,121 @@ public class DriveSubsystem extends SubsystemBase {
 
   private Field2d m_field = new Field2d();
 
+  // Simulated NavX yaw, driven from the simulated modules
+  private static final double kSimPeriodSeconds = 0.02;
+  private final SimDouble m_simGyroYaw = new SimDeviceSim("navX-Sensor[0]").getDouble("Yaw");
+  private double m_simHeadingDegrees = 0;
+  private final LoopProfiler.Section m_periodicProfile = LoopProfiler.getInstance().section("DriveSubsystem.periodic");
+
   // private final ADIS16470_IMU m_gyro = new ADIS16470_IMU();
 
-  // Slew rate filter variables for controlling lateral acceleration
+  // Slew rate filter for controlling lateral acceleration
   private double m_rotationCommanded = 0.0;
-  private double m_currentTranslationDir = 0.0;
-  private double m_currentTranslationMag = 0.0;
-
-  private SlewRateLimiter m_magLimiter = new SlewRateLimiter(DriveConstants.kMagnitudeSlewRate);
-  private SlewRateLimiter m_rotLimiter = new SlewRateLimiter(DriveConstants.kRotationalSlewRate);
-  private double m_prevTime = WPIUtilJNI.now() * 1e-6;
+  private final DriveRateLimiter m_rateLimiter = new DriveRateLimiter(
+      DriveConstants.kDirectionSlewRate,
+      DriveConstants.kMagnitudeSlewRate,
+      DriveConstants.kRotationalSlewRate,
+      WPIUtilJNI.now() * 1e-6);
 
   public double wait_seconds;
 
-  // Odometry class for tracking robot pose
-  SwerveDriveOdometry m_odometry = new SwerveDriveOdometry(
-      DriveConstants.kDriveKinematics,
-      getHeading(),
-      new SwerveModulePosition[] {
-          m_frontLeft.getPosition(),
-          m_frontRight.getPosition(),
-          m_rearLeft.getPosition(),
-          m_rearRight.getPosition()
-      });
+  // Fixed array of the modules' reusable position holders, refreshed in place
+  // every loop instead of building a new array for each odometry update
+  private final SwerveModulePosition[] m_modulePositions;
+
+  private final AllocationCounter m_odometryAllocations = new AllocationCounter();
+
+  // High-rate sampling of the encoders and gyro, drained every loop
+  private final OdometrySampler m_odometrySampler;
+  private final OdometrySampleBuffer.SampleConsumer m_applyOdometrySample = this::applyOdometrySample;
+  private final double[] m_lastSampleAngles = new double[] { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+  private final Rotation2d[] m_sampleRotations = new Rotation2d[4];
+  private double m_lastSampleYaw = Double.NaN;
+  private Rotation2d m_sampleHeading = new Rotation2d();
+
+  // Pose estimator for tracking robot pose. It keeps a short time-indexed
+  // history of odometry so late vision measurements can be applied at the time
+  // the frame was captured and the newer odometry replayed on top of them.
+  SwerveDrivePoseEstimator m_poseEstimator;
 
   /** Creates a new DriveSubsystem. */
   public DriveSubsystem() {
+    // Configure all eight SPARKS MAX together before anything reads the encoders
+    m_bootConfigSeconds = SwerveModule.configureAll(m_frontLeft, m_frontRight, m_rearLeft, m_rearRight);
+    m_modulePositions = new SwerveModulePosition[] {
+        m_frontLeft.updatePosition(),
+        m_frontRight.updatePosition(),
+        m_rearLeft.updatePosition(),
+        m_rearRight.updatePosition()
+    };
+    m_poseEstimator = new SwerveDrivePoseEstimator(
+        DriveConstants.kDriveKinematics,
+        getHeading(),
+        m_modulePositions,
+        new Pose2d(),
+        VecBuilder.fill(DriveConstants.kOdometryStdDevXY, DriveConstants.kOdometryStdDevXY,
+            DriveConstants.kOdometryStdDevTheta),
+        VecBuilder.fill(VisionConstants.kVisionStdDevXY, VisionConstants.kVisionStdDevXY,
+            VisionConstants.kVisionStdDevTheta));
+
     SmartDashboard.putData("Field", m_field);
+
+    m_odometrySampler = new OdometrySampler(
+        DriveConstants.kSimulateOdometrySource
+            ? new OdometrySampler.SimulatedSource(1.0, 0.5)
+            : new HardwareOdometrySource(),
+        Timer::getFPGATimestamp,
+        DriveConstants.kOdometryFrequencyHz,
+        m_modulePositions.length);
+    // In simulation the modules are stepped by simulationPeriodic(), so sample
+    // them in the loop rather than racing the physics from another thread
+    if (DriveConstants.kUseOdometryThread && RobotBase.isReal()) {
+      m_odometrySampler.start();
+    }
+
+    SenderNT telemetry = SenderNT.getDashboard();
+    telemetry.addNumber("X in meters", () -> getPose().getX(), Rate.FAST, 0.005);
+    telemetry.addNumber("Y in meters", () -> getPose().getY(), Rate.FAST, 0.005);
+    telemetry.addNumber("Gyro Angle", () -> getHeading().getDegrees(), Rate.FAST, 0.1);
+    telemetry.addNumber("Gyro Fused Yaw", m_gyro::getFusedHeading, Rate.SLOW, 0.1);
+    telemetry.addNumber("Gyro Rate", m_gyro::getRate, Rate.NORMAL, 0.1);
+    telemetry.addNumber("Gyro Compass Heading", m_gyro::getCompassHeading, Rate.SLOW, 0.1);
+    telemetry.addNumber("Gyro Delta", () -> m_gyro.getCompassHeading() - getHeading().getDegrees(), Rate.SLOW, 0.1);
+    telemetry.addNumber("rot", () -> m_rotationCommanded, Rate.NORMAL, 0.01);
+    telemetry.addNumber("Velocity", () -> {
+      ChassisSpeeds speeds = getChassisSpeeds();
+      return Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond);
+    }, Rate.NORMAL, 0.01);
+    telemetry.addNumber("Front Left Velocity", () -> m_frontLeft.updateState().speedMetersPerSecond, Rate.NORMAL, 0.01);
+    telemetry.addNumber("Front Right Velocity", () -> m_frontRight.updateState().speedMetersPerSecond, Rate.NORMAL, 0.01);
+    telemetry.addNumber("Rear Left Velocity", () -> m_rearLeft.updateState().speedMetersPerSecond, Rate.NORMAL, 0.01);
+    telemetry.addNumber("Rear Right Velocity", () -> m_rearRight.updateState().speedMetersPerSecond, Rate.NORMAL, 0.01);
+    telemetry.addNumber("Swerve Config ms", () -> m_bootConfigSeconds * 1000, Rate.SLOW);
+    telemetry.addNumber("Setpoint Frames Sent", this::getSetpointFramesSent, Rate.SLOW);
+    telemetry.addNumber("Setpoint Frames Suppressed", this::getSetpointFramesSuppressed, Rate.SLOW);
+    if (DriveConstants.kUseOdometryThread) {
+      telemetry.addNumber("Odometry Period ms", () -> m_odometrySampler.getAveragePeriodSeconds() * 1000, Rate.SLOW, 0.01);
+      telemetry.addNumber("Odometry Jitter ms", () -> m_odometrySampler.getMaxJitterSeconds() * 1000, Rate.SLOW, 0.01);
+      telemetry.addNumber("Odometry Duplicates", m_odometrySampler::getDuplicateCount, Rate.SLOW);
+    }
+    if (DriveConstants.kMeasureOdometryAllocations) {
+      telemetry.addNumber("Odometry Alloc Bytes", m_odometryAllocations::getLastBytes, Rate.NORMAL);
+    }
+
+    DataRecorder recorder = DataRecorder.getInstance();
+    recorder.addDoubleArray("Drive/ModuleStates", 8, this::fillModuleStates);
+    recorder.addDoubleArray("Drive/DesiredStates", 8, this::fillDesiredStates);
+    recorder.addDoubleArray("Drive/Pose", 3, values -> {
+      Pose2d pose = getPose();
+      values[0] = pose.getX();
+      values[1] = pose.getY();
+      values[2] = pose.getRotation().getRadians();
+    });
+    recorder.addDouble("Drive/GyroYaw", this::getHeadingRadians);
+    recorder.addDouble("Drive/GyroRate", m_gyro::getRate);
+    recorder.addDouble("Drive/RotationCommand", () -> m_rotationCommanded);
+    recorder.addDouble("Drive/HeadingTarget", m_headingController::getTargetRadians);
+
     // Configure AutoBuilder last
     AutoBuilder.configureHolonomic(
         this::getPose, // Robot pose supplier
@@ -138,33 +241,132 @@ public class DriveSubsystem extends SubsystemBase {
 
   @Override
   public void periodic() {
+    m_periodicProfile.begin();
+    // The controllers stop driving while disabled, so on enable send both
+    // setpoints again rather than trusting what was sent before
+    boolean enabled = DriverStation.isEnabled();
+    if (enabled && !m_wasEnabled) {
+      invalidateModuleSetpoints();
+    }
+    m_wasEnabled = enabled;
+    // Read every module's sensors once, everything else this loop uses the
+    // snapshot
+    refreshModuleSensors();
     // Update the odometry in the periodic block
-    m_field.setRobotPose(m_odometry.update(
-        getHeading(),
-        new SwerveModulePosition[] {
-            m_frontLeft.getPosition(),
-            m_frontRight.getPosition(),
-            m_rearLeft.getPosition(),
-            m_rearRight.getPosition()
-        }));
-    SmartDashboard.putNumber("X in meters", getPose().getX());
-    SmartDashboard.putNumber("Y in meters", getPose().getY());
-    SmartDashboard.putNumber("Gyro Angle", getHeading().getDegrees());
-    SmartDashboard.putNumber("Gyro Fused Yaw", m_gyro.getFusedHeading());
-    SmartDashboard.putNumber("Gyro Rate", m_gyro.getRate());
-    SmartDashboard.putNumber("Gyro Compass Heading", m_gyro.getCompassHeading());
-    SmartDashboard.putNumber("Gyro Delta", m_gyro.getCompassHeading() - getHeading().getDegrees());
-    // SmartDashboard.putString("Selected Auto",
-    // Controls.getSelectedAutoCommand().getName());
-    SmartDashboard.putNumber("rot", m_rotationCommanded);
-    SmartDashboard.putNumber("Velocity", Math.sqrt(
-        Math.pow(getChassisSpeeds().vxMetersPerSecond, 2.0) + Math.pow(getChassisSpeeds().vyMetersPerSecond, 2.0)));
-    SmartDashboard.putNumber("Front Left Velocity", m_frontLeft.getState().speedMetersPerSecond);
-    SmartDashboard.putNumber("Front Right Velocity", m_frontRight.getState().speedMetersPerSecond);
-    SmartDashboard.putNumber("Rear Left Velocity", m_rearLeft.getState().speedMetersPerSecond);
-    SmartDashboard.putNumber("Rear Right Velocity", m_rearRight.getState().speedMetersPerSecond);
+    updateOdometry();
+    m_field.setRobotPose(getPose());
     wait_seconds = SmartDashboard.getNumber("Auto Wait Seconds", 0.0);
     SmartDashboard.putNumber("Auto Wait Seconds", wait_seconds);
+    m_periodicProfile.end();
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    m_frontLeft.simulationUpdate(kSimPeriodSeconds);
+    m_frontRight.simulationUpdate(kSimPeriodSeconds);
+    m_rearLeft.simulationUpdate(kSimPeriodSeconds);
+    m_rearRight.simulationUpdate(kSimPeriodSeconds);
+
+    // Integrate the simulated wheel speeds into the NavX yaw. The NavX reports
+    // clockwise-positive, the opposite of getHeading().
+    m_simHeadingDegrees += Math.toDegrees(getChassisSpeeds().omegaRadiansPerSecond) * kSimPeriodSeconds;
+    if (m_simGyroYaw != null) {
+      m_simGyroYaw.set(-m_simHeadingDegrees);
+    }
+  }
+
+  /**
+   * Integrates every sample the odometry thread took since the last loop. Falls
+   * back to reading the modules directly if the thread is off or has not
+   * produced anything yet.
+   */
+  private void updateOdometry() {
+    if (m_odometrySampler.isRunning() && m_odometrySampler.drain(m_applyOdometrySample) > 0) {
+      return;
+    }
+    if (DriveConstants.kMeasureOdometryAllocations) {
+      m_odometryAllocations.start();
+      refreshModulePositions();
+      m_odometryAllocations.stop();
+    } else {
+      refreshModulePositions();
+    }
+    m_poseEstimator.update(getSampleHeading(getHeadingRadians()), m_modulePositions);
+  }
+
+  private void applyOdometrySample(double timestampSeconds, double yawRadians, double[] distancesMeters,
+      double[] anglesRadians) {
+    for (int i = 0; i < m_modulePositions.length; i++) {
+      if (anglesRadians[i] != m_lastSampleAngles[i]) {
+        m_lastSampleAngles[i] = anglesRadians[i];
+        m_sampleRotations[i] = new Rotation2d(anglesRadians[i]);
+      }
+      m_modulePositions[i].distanceMeters = distancesMeters[i];
+      m_modulePositions[i].angle = m_sampleRotations[i];
+    }
+    m_poseEstimator.updateWithTime(timestampSeconds, getSampleHeading(yawRadians), m_modulePositions);
+  }
+
+  /**
+   * Rotation2d is immutable, so only build a new heading for the pose estimator
+   * when the gyro has actually moved since the last update.
+   */
+  private Rotation2d getSampleHeading(double yawRadians) {
+    if (yawRadians != m_lastSampleYaw) {
+      m_lastSampleYaw = yawRadians;
+      m_sampleHeading = new Rotation2d(yawRadians);
+    }
+    return m_sampleHeading;
+  }
+
+  /** Reads the real encoders and NavX for the odometry thread. */
+  private final class HardwareOdometrySource implements OdometrySampler.Source {
+    @Override
+    public double getYawRadians() {
+      return Math.toRadians(-m_gyro.getAngle());
+    }
+
+    @Override
+    public void readModules(double[] distancesMeters, double[] anglesRadians) {
+      distancesMeters[0] = m_frontLeft.getDistanceMeters();
+      anglesRadians[0] = m_frontLeft.getAngleRadians();
+      distancesMeters[1] = m_frontRight.getDistanceMeters();
+      anglesRadians[1] = m_frontRight.getAngleRadians();
+      distancesMeters[2] = m_rearLeft.getDistanceMeters();
+      anglesRadians[2] = m_rearLeft.getAngleRadians();
+      distancesMeters[3] = m_rearRight.getDistanceMeters();
+      anglesRadians[3] = m_rearRight.getAngleRadians();
+    }
+  }
+
+  private void refreshModuleSensors() {
+    m_frontLeft.refreshSensors();
+    m_frontRight.refreshSensors();
+    m_rearLeft.refreshSensors();
+    m_rearRight.refreshSensors();
+  }
+
+  /**
+   * Copies every module's sensor snapshot into its reusable position holder.
+   * The holders are the same objects stored in {@code m_modulePositions}, so
+   * this allocates nothing unless a module's turning angle changed.
+   */
+  private void refreshModulePositions() {
+    m_frontLeft.updatePosition();
+    m_frontRight.updatePosition();
+    m_rearLeft.updatePosition();
+    m_rearRight.updatePosition();
+  }
+
+  /**
+   * Returns the number of bytes allocated by the most recent module sampling
+   * step, or -1 if it has not been measured.
+   * Only measured when {@link DriveConstants#kMeasureOdometryAllocations} is set.
+   *
+   * @return Bytes allocated in the last odometry sampling step.
+   */
+  public long getOdometryAllocatedBytes() {
+    return m_odometryAllocations.getLastBytes();
   }
 
   /**
@@ -173,7 +375,29 @@ public class DriveSubsystem extends SubsystemBase {
    * @return The pose.
    */
   public Pose2d getPose() {
-    return m_odometry.getPoseMeters();
+    return m_poseEstimator.getEstimatedPosition();
+  }
+
+  /**
+   * Fuses a vision pose measurement into the pose estimate. The measurement is
+   * applied at the time the camera frame was captured, so camera latency does
+   * not drag the pose backwards while driving.
+   *
+   * @param visionPose       The robot pose seen by the camera.
+   * @param timestampSeconds The FPGA time the frame was captured.
+   */
+  public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds) {
+    // Measurements older than the estimator's history can't be replayed, and
+    // while enabled a measurement far from the current estimate is most likely a
+    // bad tag solve
+    if (Timer.getFPGATimestamp() - timestampSeconds > VisionConstants.kMaxMeasurementAgeSeconds) {
+      return;
+    }
+    if (DriverStation.isEnabled()
+        && visionPose.getTranslation().getDistance(getPose().getTranslation()) > VisionConstants.kMaxPoseJumpMeters) {
+      return;
+    }
+    m_poseEstimator.addVisionMeasurement(visionPose, timestampSeconds);
   }
 
   /**
@@ -182,25 +406,23 @@ public class DriveSubsystem extends SubsystemBase {
    * @param pose The pose to which to set the odometry.
    */
   public void resetOdometry(Pose2d pose) {
-    m_odometry.resetPosition(
-        getHeading(),
-        new SwerveModulePosition[] {
-            m_frontLeft.getPosition(),
-            m_frontRight.getPosition(),
-            m_rearLeft.getPosition(),
-            m_rearRight.getPosition()
-        },
-        pose);
+    // Throw away samples taken before the reset so they are not replayed on top
+    // of the new pose
+    m_odometrySampler.drain((timestamp, yaw, distances, angles) -> {
+    });
+    refreshModulePositions();
+    m_poseEstimator.resetPosition(getHeading(), m_modulePositions, pose);
   }
 
-  Rotation2d intendedRotation = new Rotation2d(getHeading().getDegrees());
-  private static long timeOfLastLoop = System.currentTimeMillis();
-  double integral = 0.0;
-  double Kp = 6;
-  double ki = 0;
-  double kd = 0;
-  double error = 0.0;
-  double prevError = 0.0;
+  // Holds the heading in teleop while the driver is not turning
+  private final HeadingController m_headingController = new HeadingController(
+      DriveConstants.kHeadingP,
+      DriveConstants.kHeadingI,
+      DriveConstants.kHeadingD,
+      DriveConstants.kHeadingMaxIntegral,
+      DriveConstants.kHeadingMaxOutput);
+  private boolean m_headingHoldActive = false;
+  private boolean m_wasEnabled = false;
 
   /**
    * Method to drive the robot using joystick info.
@@ -214,49 +436,14 @@ public class DriveSubsystem extends SubsystemBase {
    */
   public void drive(double xSpeed, double ySpeed, double rot, boolean fieldRelative, boolean rateLimit) {
 
+    double now = WPIUtilJNI.now() * 1e-6;
     double xSpeedCommanded;
     double ySpeedCommanded;
-    final boolean isStopped = xSpeed == 0 && ySpeed == 0;
     if (rateLimit) {
-      // Convert XY to polar for rate limiting
-      double inputTranslationDir = isStopped ? m_currentTranslationDir : Math.atan2(ySpeed, xSpeed);
-      double inputTranslationMag = Math.sqrt(Math.pow(xSpeed, 2) + Math.pow(ySpeed, 2));
-
-      // Calculate the direction slew rate based on an estimate of the lateral
-      // acceleration
-      double directionSlewRate;
-      if (m_currentTranslationMag != 0.0) {
-        directionSlewRate = Math.abs(DriveConstants.kDirectionSlewRate / m_currentTranslationMag);
-      } else {
-        directionSlewRate = 500.0; // some high number that means the slew rate is effectively instantaneous
-      }
-
-      double currentTime = WPIUtilJNI.now() * 1e-6;
-      double elapsedTime = currentTime - m_prevTime;
-      double angleDif = SwerveUtils.AngleDifference(inputTranslationDir, m_currentTranslationDir);
-      if (angleDif < 0.45 * Math.PI) {
-        m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir,
-            directionSlewRate * elapsedTime);
-        m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-      } else if (angleDif > 0.85 * Math.PI) {
-        if (m_currentTranslationMag > 1e-4) { // some small number to avoid floating-point errors with equality checking
-          // keep currentTranslationDir unchanged
-          m_currentTranslationMag = m_magLimiter.calculate(0.0);
-        } else {
-          m_currentTranslationDir = SwerveUtils.WrapAngle(m_currentTranslationDir + Math.PI);
-          m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-        }
-      } else {
-        m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir,
-            directionSlewRate * elapsedTime);
-        m_currentTranslationMag = m_magLimiter.calculate(0.0);
-      }
-      m_prevTime = currentTime;
-
-      xSpeedCommanded = m_currentTranslationMag * Math.cos(m_currentTranslationDir);
-      ySpeedCommanded = m_currentTranslationMag * Math.sin(m_currentTranslationDir);
-      m_rotationCommanded = m_rotLimiter.calculate(rot);
-
+      m_rateLimiter.calculate(xSpeed, ySpeed, rot, now);
+      xSpeedCommanded = m_rateLimiter.getXSpeed();
+      ySpeedCommanded = m_rateLimiter.getYSpeed();
+      m_rotationCommanded = m_rateLimiter.getRotation();
     } else {
       xSpeedCommanded = xSpeed;
       ySpeedCommanded = ySpeed;
@@ -267,26 +454,23 @@ public class DriveSubsystem extends SubsystemBase {
     double xSpeedDelivered = xSpeedCommanded * DriveConstants.kMaxSpeedMetersPerSecond;
     double ySpeedDelivered = ySpeedCommanded * DriveConstants.kMaxSpeedMetersPerSecond;
     double rotDelivered = 0.0;
-    if (DriverStation.isTeleopEnabled()) {
-      intendedRotation = intendedRotation
-          .rotateBy(new Rotation2d((m_rotationCommanded) * ((System.currentTimeMillis() - timeOfLastLoop) / 1000.0)
-              * DriveConstants.kMaxAngularSpeed));
-      timeOfLastLoop = System.currentTimeMillis();
-      error = intendedRotation.minus(getHeading()).getRadians(); // Calculate error
-      integral+=error;
-      rotDelivered = (error * Kp) + (ki*integral)+(kd*(error-prevError)); // Error times P = what to move by
-      prevError = error;
+    boolean headingHold = DriverStation.isTeleopEnabled();
+    if (headingHold) {
+      double heading = getHeadingRadians();
+      // Start from wherever the robot points when teleop heading hold begins
+      if (!m_headingHoldActive) {
+        m_headingController.reset(heading, now);
+      }
+      rotDelivered = m_headingController.calculate(m_rotationCommanded * DriveConstants.kMaxAngularSpeed,
+          heading, now);
     } else {
       rotDelivered = m_rotationCommanded * DriveConstants.kMaxAngularSpeed;
     }
+    m_headingHoldActive = headingHold;
 
-    var swerveModuleStates = DriveConstants.kDriveKinematics.toSwerveModuleStates(
-        fieldRelative
-            ? ChassisSpeeds.fromFieldRelativeSpeeds(xSpeedDelivered, ySpeedDelivered, rotDelivered,
-                getHeading())
-            : new ChassisSpeeds(xSpeedDelivered, ySpeedDelivered, rotDelivered));
-    SwerveDriveKinematics.desaturateWheelSpeeds(
-        swerveModuleStates, DriveConstants.kMaxSpeedMetersPerSecond);
+    var swerveModuleStates = SwerveDriveMath.toModuleStates(DriveConstants.kDriveKinematics,
+        xSpeedDelivered, ySpeedDelivered, rotDelivered, fieldRelative,
+        fieldRelative ? getHeading() : null, DriveConstants.kMaxSpeedMetersPerSecond);
     m_frontLeft.setDesiredState(swerveModuleStates[0]);
     m_frontRight.setDesiredState(swerveModuleStates[1]);
     m_rearLeft.setDesiredState(swerveModuleStates[2]);
@@ -299,10 +483,10 @@ public class DriveSubsystem extends SubsystemBase {
    * Sets the wheels into an X formation to prevent movement.
    */
   public void setX() {
-    m_frontLeft.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(45)));
-    m_frontRight.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(-45)));
-    m_rearLeft.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(-45)));
-    m_rearRight.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(45)));
+    m_frontLeft.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(45)), false);
+    m_frontRight.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(-45)), false);
+    m_rearLeft.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(-45)), false);
+    m_rearRight.setDesiredState(new SwerveModuleState(0, Rotation2d.fromDegrees(45)), false);
   }
 
   /**
@@ -319,18 +503,59 @@ public class DriveSubsystem extends SubsystemBase {
     m_rearRight.setDesiredState(desiredStates[3]);
   }
 
+  /** Writes { angle radians, speed m/s } for each module, in module order. */
+  private void fillModuleStates(double[] values) {
+    fillState(values, 0, m_frontLeft.updateState());
+    fillState(values, 2, m_frontRight.updateState());
+    fillState(values, 4, m_rearLeft.updateState());
+    fillState(values, 6, m_rearRight.updateState());
+  }
+
+  private void fillDesiredStates(double[] values) {
+    fillState(values, 0, m_frontLeft.getDesiredState());
+    fillState(values, 2, m_frontRight.getDesiredState());
+    fillState(values, 4, m_rearLeft.getDesiredState());
+    fillState(values, 6, m_rearRight.getDesiredState());
+  }
+
+  private static void fillState(double[] values, int offset, SwerveModuleState state) {
+    values[offset] = state.angle.getRadians();
+    values[offset + 1] = state.speedMetersPerSecond;
+  }
+
+  /** @return setReference frames sent by all four modules. */
+  public long getSetpointFramesSent() {
+    return m_frontLeft.getSetpointFramesSent() + m_frontRight.getSetpointFramesSent()
+        + m_rearLeft.getSetpointFramesSent() + m_rearRight.getSetpointFramesSent();
+  }
+
+  /** @return setReference frames all four modules skipped as unchanged. */
+  public long getSetpointFramesSuppressed() {
+    return m_frontLeft.getSetpointFramesSuppressed() + m_frontRight.getSetpointFramesSuppressed()
+        + m_rearLeft.getSetpointFramesSuppressed() + m_rearRight.getSetpointFramesSuppressed();
+  }
+
   /** Resets the drive encoders to currently read a position of 0. */
   public void resetEncoders() {
     m_frontLeft.resetEncoders();
     m_rearLeft.resetEncoders();
     m_frontRight.resetEncoders();
     m_rearRight.resetEncoders();
+    invalidateModuleSetpoints();
+  }
+
+  /** Makes every module send both setpoints on its next setDesiredState. */
+  private void invalidateModuleSetpoints() {
+    m_frontLeft.invalidateSetpoints();
+    m_frontRight.invalidateSetpoints();
+    m_rearLeft.invalidateSetpoints();
+    m_rearRight.invalidateSetpoints();
   }
 
   /** Zeroes the heading of the robot. */
   public void zeroHeading() {
-    intendedRotation = new Rotation2d(0);
     m_gyro.reset();
+    m_headingController.reset(0, WPIUtilJNI.now() * 1e-6);
   }
 
   /**
@@ -342,6 +567,11 @@ public class DriveSubsystem extends SubsystemBase {
     return Rotation2d.fromDegrees(-m_gyro.getAngle());
   }
 
+  /** Same as {@link #getHeading()}, without creating a Rotation2d. */
+  public double getHeadingRadians() {
+    return Math.toRadians(-m_gyro.getAngle());
+  }
+
   /**
    * Returns the turn rate of the robot.
    *
@@ -356,10 +586,10 @@ public class DriveSubsystem extends SubsystemBase {
    */
   public ChassisSpeeds getChassisSpeeds() {
     ChassisSpeeds chassis_speed = Constants.DriveConstants.kDriveKinematics.toChassisSpeeds(
-        m_frontLeft.getState(),
-        m_frontRight.getState(),
-        m_rearLeft.getState(),
-        m_rearRight.getState());
+        m_frontLeft.updateState(),
+        m_frontRight.updateState(),
+        m_rearLeft.updateState(),
+        m_rearRight.updateState());
 
     return chassis_speed;
   }
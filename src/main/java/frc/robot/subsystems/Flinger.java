@@ -3,11 +3,19 @@ package frc.robot.subsystems;
 
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkMaxPIDController;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.Constants.FlingerConstants;
+import frc.utils.DataRecorder;
+import frc.utils.LoopProfiler;
+import frc.utils.SenderNT;
+import frc.utils.SenderNT.Rate;
 
 public class Flinger extends SubsystemBase {
 
@@ -17,6 +25,17 @@ public class Flinger extends SubsystemBase {
     public static boolean flingCommandActive = false;
     private RelativeEncoder flingerEncoder1;
     private RelativeEncoder flingerEncoder2;
+    private SparkMaxPIDController flingerPID1;
+    private SparkMaxPIDController flingerPID2;
+    private final Debouncer readyDebouncer = new Debouncer(FlingerConstants.FLINGER_READY_DEBOUNCE_SECONDS);
+    private boolean atSpeed = false;
+    private double spinUpStart = Double.NaN;
+    private double lastSpinUpSeconds = Double.NaN;
+    private final FlingerWheelSim sim1 = RobotBase.isSimulation()
+            ? new FlingerWheelSim(FlingerConstants.FLINGER_SIM_TIME_CONSTANT) : null;
+    private final FlingerWheelSim sim2 = RobotBase.isSimulation()
+            ? new FlingerWheelSim(FlingerConstants.FLINGER_SIM_TIME_CONSTANT) : null;
+    private final LoopProfiler.Section m_periodicProfile = LoopProfiler.getInstance().section("Flinger.periodic");
 
     
     public Flinger() {
@@ -27,47 +46,116 @@ public class Flinger extends SubsystemBase {
         flingerMotor_2.setInverted(false);
         flingerEncoder1 = flingerMotor_1.getEncoder();
         flingerEncoder2 = flingerMotor_2.getEncoder();
+        flingerPID1 = configureVelocityLoop(flingerMotor_1);
+        flingerPID2 = configureVelocityLoop(flingerMotor_2);
+
+        SenderNT telemetry = SenderNT.getDashboard();
+        telemetry.addNumber("Flinger Encoder Velocity 1", this::getRPM_1, Rate.NORMAL, 10);
+        telemetry.addNumber("Flinger Target Velocity 1", this::getTargetRPM, Rate.NORMAL);
+        telemetry.addNumber("Flinger Encoder Velocity 2", this::getRPM_2, Rate.NORMAL, 10);
+        telemetry.addNumber("Flinger Target Velocity 2", this::getTargetRPM, Rate.NORMAL);
+        telemetry.addBoolean("Flinger At Speed", this::isAtSpeed, Rate.FAST);
+        telemetry.addNumber("Flinger Spin-up ms", () -> lastSpinUpSeconds * 1000, Rate.SLOW, 1);
+
+        DataRecorder recorder = DataRecorder.getInstance();
+        recorder.addDouble("Flinger/RPM1", this::getRPM_1);
+        recorder.addDouble("Flinger/RPM2", this::getRPM_2);
+        recorder.addDouble("Flinger/TargetRPM", this::getTargetRPM);
+        recorder.addBoolean("Flinger/AtSpeed", this::isAtSpeed);
+    }
 
+    /** Sets the velocity loop gains. They are not burned to flash, so this runs every boot. */
+    private static SparkMaxPIDController configureVelocityLoop(CANSparkMax motor) {
+        SparkMaxPIDController pid = motor.getPIDController();
+        pid.setP(FlingerConstants.FLINGER_P);
+        pid.setI(FlingerConstants.FLINGER_I);
+        pid.setD(FlingerConstants.FLINGER_D);
+        pid.setFF(FlingerConstants.FLINGER_FF);
+        pid.setOutputRange(-1, 1);
+        return pid;
     }
 
     @Override
     public void periodic() {
-        SmartDashboard.putNumber("Flinger Encoder Velocity 1", getRPM_1());
-        SmartDashboard.putNumber("Flinger Target Velocity 1", getTargetRPM());
-        
-        SmartDashboard.putNumber("Flinger Encoder Velocity 2", getRPM_2());
-        SmartDashboard.putNumber("Flinger Target Velocity 2", getTargetRPM());
+        m_periodicProfile.begin();
+        // Both wheels in tolerance, held for the debounce time so a wheel
+        // swinging through the target does not count
+        double target = getTargetRPM();
+        boolean inTolerance = target != 0
+                && Math.abs(getRPM_1() - target) < FlingerConstants.FLINGER_RPM_TOLERANCE
+                && Math.abs(getRPM_2() - target) < FlingerConstants.FLINGER_RPM_TOLERANCE;
+        boolean wasAtSpeed = atSpeed;
+        atSpeed = readyDebouncer.calculate(inTolerance);
+        if (atSpeed && !wasAtSpeed && !Double.isNaN(spinUpStart)) {
+            lastSpinUpSeconds = Timer.getFPGATimestamp() - spinUpStart;
+            spinUpStart = Double.NaN;
+        }
+        m_periodicProfile.end();
     }
 
     @Override
     public void simulationPeriodic() {
-
+        sim1.update(0.02);
+        sim2.update(0.02);
     }
 
     /**
-     * Spins the flinger, positive speed shoots the ring out
+     * Spins the flinger, positive speed shoots the ring out. The wheels are
+     * held at {@code speed} times {@link FlingerConstants#FLINGER_MAX_RPM} by
+     * the velocity loops on the motor controllers; zero lets them coast down.
      * 
      * @param speed
      */
     public void fling(double speed) {
-        flingerMotor_1.set(speed);
-        flingerMotor_2.set(speed);
+        // A planned shot moves the target a little every loop; only a real
+        // change of target starts a new spin-up
+        if ((speed == 0) != (targetSpeed == 0)
+                || Math.abs(speed - targetSpeed) * FlingerConstants.FLINGER_MAX_RPM > FlingerConstants.FLINGER_RPM_TOLERANCE) {
+            spinUpStart = speed != 0 ? Timer.getFPGATimestamp() : Double.NaN;
+            atSpeed = false;
+            readyDebouncer.calculate(false);
+        }
         targetSpeed = speed;
+        if (speed == 0) {
+            flingerMotor_1.set(0);
+            flingerMotor_2.set(0);
+            if (sim1 != null) {
+                sim1.setDutyCycle(0);
+                sim2.setDutyCycle(0);
+            }
+            return;
+        }
+        double rpm = getTargetRPM();
+        flingerPID1.setReference(rpm, CANSparkMax.ControlType.kVelocity);
+        flingerPID2.setReference(rpm, CANSparkMax.ControlType.kVelocity);
+        if (sim1 != null) {
+            sim1.setVelocity(rpm);
+            sim2.setVelocity(rpm);
+        }
     }
 
     public double getTargetRPM()
     {
-        return targetSpeed*5500;
+        return targetSpeed * FlingerConstants.FLINGER_MAX_RPM;
     }
 
     public double getRPM_1()
     {
-        return flingerEncoder1.getVelocity();
+        return sim1 != null ? sim1.getRPM() : flingerEncoder1.getVelocity();
     }
 
     public double getRPM_2()
     {
-        return flingerEncoder2.getVelocity();
+        return sim2 != null ? sim2.getRPM() : flingerEncoder2.getVelocity();
+    }
+
+    /**
+     * @return Whether both wheels have been within
+     *         {@link FlingerConstants#FLINGER_RPM_TOLERANCE} of a nonzero target
+     *         for {@link FlingerConstants#FLINGER_READY_DEBOUNCE_SECONDS}.
+     */
+    public boolean isAtSpeed() {
+        return atSpeed;
     }
 
 }
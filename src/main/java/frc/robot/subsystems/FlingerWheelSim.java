@@ -0,0 +1,86 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import frc.robot.Constants.FlingerConstants;
+
+/**
+ * Physics stand-in for one flinger wheel, used in place of the SPARK MAX
+ * encoder when running in simulation.
+ * <p>
+ * The wheel speed approaches a fraction of the motor's free speed times the
+ * duty cycle with a first-order time constant. That fraction, the plant gain,
+ * is below one so the feedforward, which assumes the free speed, leaves the
+ * proportional term some error to correct, as a loaded wheel would. In
+ * velocity mode the duty cycle comes from the same feedforward plus
+ * proportional law the SPARK MAX runs, saturated to full output.
+ */
+public class FlingerWheelSim {
+
+  private final double m_timeConstant;
+  private final double m_plantGain;
+  private final double m_kP;
+  private final double m_kFF;
+
+  private boolean m_closedLoop = false;
+  private double m_setpoint = 0;
+  private double m_rpm = 0;
+  private double m_duty = 0;
+
+  public FlingerWheelSim(double timeConstantSeconds) {
+    this(timeConstantSeconds, FlingerConstants.FLINGER_SIM_PLANT_GAIN,
+        FlingerConstants.FLINGER_P, FlingerConstants.FLINGER_FF);
+  }
+
+  /**
+   * @param timeConstantSeconds Wheel speed time constant.
+   * @param plantGain           Fraction of the free speed reached at full
+   *                            output.
+   * @param kP                  Velocity loop proportional gain, duty per RPM.
+   * @param kFF                 Velocity loop feedforward, duty per RPM.
+   */
+  public FlingerWheelSim(double timeConstantSeconds, double plantGain, double kP, double kFF) {
+    m_timeConstant = timeConstantSeconds;
+    m_plantGain = plantGain;
+    m_kP = kP;
+    m_kFF = kFF;
+  }
+
+  /** Drives the wheel at a fixed duty cycle, like {@code CANSparkMax.set()}. */
+  public void setDutyCycle(double duty) {
+    m_closedLoop = false;
+    m_setpoint = duty;
+  }
+
+  /** Runs the velocity loop towards {@code rpm}. */
+  public void setVelocity(double rpm) {
+    m_closedLoop = true;
+    m_setpoint = rpm;
+  }
+
+  /**
+   * Applies a sudden loss of wheel speed, e.g. from a note being squeezed
+   * through.
+   */
+  public void applySpeedLoss(double rpm) {
+    m_rpm -= Math.copySign(Math.min(Math.abs(m_rpm), rpm), m_rpm);
+  }
+
+  /** Advances the model by {@code dtSeconds}. */
+  public void update(double dtSeconds) {
+    m_duty = m_closedLoop
+        ? MathUtil.clamp(m_kFF * m_setpoint + m_kP * (m_setpoint - m_rpm), -1, 1)
+        : m_setpoint;
+    double alpha = 1 - Math.exp(-dtSeconds / m_timeConstant);
+    m_rpm += (m_duty * m_plantGain * FlingerConstants.FLINGER_FREE_SPEED_RPM - m_rpm) * alpha;
+  }
+
+  /** @return Simulated wheel speed, in RPM. */
+  public double getRPM() {
+    return m_rpm;
+  }
+
+  /** @return Duty cycle applied during the last update. */
+  public double getDutyCycle() {
+    return m_duty;
+  }
+}
@@ -8,11 +8,16 @@ import com.revrobotics.RelativeEncoder;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
 import edu.wpi.first.wpilibj.AnalogTrigger;
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
 import edu.wpi.first.wpilibj.CAN;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.utils.DataRecorder;
+import frc.utils.LoopProfiler;
+import frc.utils.SenderNT;
+import frc.utils.SenderNT.Rate;
 
 public class FloorIntake extends SubsystemBase {
 
@@ -20,19 +25,93 @@ public class FloorIntake extends SubsystemBase {
     private DigitalInput sensorBot = new DigitalInput(Constants.IntakeConstants.BOT_DIO_SENSOR);
     private DigitalInput sensorTop = new DigitalInput(Constants.IntakeConstants.TOP_DIO_SENSOR);
     private RelativeEncoder intakeEncoder;
+    private final NoteTracker tracker = new NoteTracker(this::onNoteStateChange);
+    private final AsynchronousInterrupt botInterrupt;
+    private final AsynchronousInterrupt topInterrupt;
+    // Set by commands, read on the interrupt threads
+    private volatile boolean stopWhenCentered = false;
+    private int mismatchedLoops = 0;
+    private long resyncs = 0;
+    private final LoopProfiler.Section m_periodicProfile = LoopProfiler.getInstance().section("FloorIntake.periodic");
 
     public FloorIntake() {
         intakeMotor = new CANSparkMax(Constants.IntakeConstants.motorCanID, MotorType.kBrushless);
         intakeMotor.setInverted(false);
         intakeEncoder = intakeMotor.getEncoder();
 
+        // Edges are timestamped by the FPGA and handled on their own threads, so
+        // a note passing a sensor between two loops is still seen
+        tracker.sync(sensorBot.get(), sensorTop.get(), Timer.getFPGATimestamp());
+        botInterrupt = new AsynchronousInterrupt(sensorBot, (rising, falling) -> onEdge(
+                NoteTracker.BOT_SENSOR, this.botInterrupt, rising, falling));
+        topInterrupt = new AsynchronousInterrupt(sensorTop, (rising, falling) -> onEdge(
+                NoteTracker.TOP_SENSOR, this.topInterrupt, rising, falling));
+        for (AsynchronousInterrupt interrupt : new AsynchronousInterrupt[] { botInterrupt, topInterrupt }) {
+            interrupt.setInterruptEdges(true, true);
+            interrupt.enable();
+        }
+
+        SenderNT telemetry = SenderNT.getDashboard();
+        telemetry.addBoolean("Bot Sensor", this::getBotSensor, Rate.FAST);
+        telemetry.addBoolean("Top Sensor", this::getTopSensor, Rate.FAST);
+        telemetry.addNumber("Intake Velocity", this::getMotorSpeed, Rate.NORMAL, 10);
+        telemetry.addNumber("Note State", () -> tracker.getState().ordinal(), Rate.FAST);
+        telemetry.addNumber("Note Edges", tracker::getEdges, Rate.SLOW);
+        telemetry.addNumber("Note Resyncs", () -> resyncs, Rate.SLOW);
+
+        DataRecorder recorder = DataRecorder.getInstance();
+        recorder.addBoolean("Intake/BotSensor", this::getBotSensor);
+        recorder.addBoolean("Intake/TopSensor", this::getTopSensor);
+        recorder.addDouble("Intake/Velocity", this::getMotorSpeed);
+        recorder.addInteger("Intake/NoteState", () -> tracker.getState().ordinal());
+    }
+
+    /**
+     * Hands one interrupt to the tracker. If the sensor went both ways since the
+     * last wakeup, both edges are applied in the order they happened.
+     */
+    private void onEdge(int sensor, AsynchronousInterrupt interrupt, boolean rising, boolean falling) {
+        if (rising && falling) {
+            double risingTime = interrupt.getRisingTimestamp();
+            double fallingTime = interrupt.getFallingTimestamp();
+            if (risingTime <= fallingTime) {
+                tracker.onEdge(sensor, true, risingTime);
+                tracker.onEdge(sensor, false, fallingTime);
+            } else {
+                tracker.onEdge(sensor, false, fallingTime);
+                tracker.onEdge(sensor, true, risingTime);
+            }
+        } else if (rising) {
+            tracker.onEdge(sensor, true, interrupt.getRisingTimestamp());
+        } else if (falling) {
+            tracker.onEdge(sensor, false, interrupt.getFallingTimestamp());
+        }
+    }
+
+    /** Runs on an interrupt thread, so the intake stops at the edge, not the next loop. */
+    private void onNoteStateChange(NoteTracker.State state) {
+        if (state == NoteTracker.State.CENTERED && stopWhenCentered) {
+            intakeMotor.set(0);
+        }
     }
 
     @Override
     public void periodic() {
-        SmartDashboard.putBoolean("Bot Sensor", getBotSensor());
-        SmartDashboard.putBoolean("Top Sensor", getTopSensor());
-        SmartDashboard.putNumber("Intake Velocity", intakeMotor.getEncoder().getVelocity());
+        m_periodicProfile.begin();
+        // Safety net for a missed edge. An edge can land between reading the
+        // sensors here and comparing, so only trust a mismatch seen twice in a row
+        boolean bot = sensorBot.get();
+        boolean top = sensorTop.get();
+        if (bot != tracker.getBotSensor() || top != tracker.getTopSensor()) {
+            if (++mismatchedLoops >= 2) {
+                tracker.sync(bot, top, Timer.getFPGATimestamp());
+                resyncs++;
+                mismatchedLoops = 0;
+            }
+        } else {
+            mismatchedLoops = 0;
+        }
+        m_periodicProfile.end();
     }
 
     @Override
@@ -71,5 +150,27 @@ public class FloorIntake extends SubsystemBase {
         return sensorTop.get();
     }
 
+    /** @return Where the note is, as of the latest sensor edge. */
+    public NoteTracker.State getNoteState() {
+        return tracker.getState();
+    }
+
+    public NoteTracker getNoteTracker() {
+        return tracker;
+    }
+
+    /**
+     * Stops the intake from the interrupt thread the moment a note becomes
+     * centered, instead of up to a loop later.
+     */
+    public void setStopWhenCentered(boolean stop) {
+        stopWhenCentered = stop;
+    }
+
+    /** Tells the tracker whether the note is being fed to the flinger. */
+    public void setFeeding(boolean feeding) {
+        tracker.setFeeding(feeding, Timer.getFPGATimestamp());
+    }
+
 
 }
@@ -5,6 +5,8 @@ import edu.wpi.first.wpilibj.I2C;
 import edu.wpi.first.wpilibj.I2C.Port;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.utils.DataRecorder;
+import frc.utils.LoopProfiler;
 
 /**
  * Subsystem to controll all the lights running on the external lights
@@ -65,26 +67,69 @@ public class LightsSubsystem extends SubsystemBase {
 
   private byte[] currentAnimation = new byte[MAX_STRIPS];
   private byte[] nextAnimation = new byte[MAX_STRIPS];
-  private byte[] dataOut = new byte[1];
   private Flinger m_flinger;
   private FloorIntake m_intake;
 
-  private I2C i2c = null;
+  private LightsTransport m_transport;
+  private final LoopProfiler.Section m_periodicProfile = LoopProfiler.getInstance().section("LightsSubsystem.periodic");
 
   public boolean hasDoneTimeWarning = false;
 
   public VisionSubsystem m_VisionSubsystem;
 
+  // Inputs the lights plan depends on, sampled once per loop
+  private static final int INPUT_DISABLED = 1 << 0;
+  private static final int INPUT_ENDGAME = 1 << 1;
+  private static final int INPUT_NOTE_LOADED = 1 << 2;
+  private static final int INPUT_INTAKE_RUNNING = 1 << 3;
+  private static final int INPUT_FLINGER_RUNNING = 1 << 4;
+  private static final int INPUT_TAG_3 = 1 << 5;
+  private static final int INPUT_TAG_15 = 1 << 6;
+
+  // Leave the strip showing whatever it was
+  private static final int KEEP = -1;
+
+  /**
+   * The lights plan, highest priority first. The first rule whose inputs are
+   * all set decides the animations; a rule with no inputs always matches.
+   * Add new behaviors here rather than in {@code periodic()}.
+   */
+  private final Rule[] m_rules = {
+      new Rule(INPUT_TAG_15, allStrips(FILLWHITE)), // Fill.py
+      new Rule(INPUT_TAG_3, allStrips(FILLGREEN)), // Fill.py
+      // linear_matrix.py, conways_game_of_life.py, matrix.py
+      new Rule(INPUT_DISABLED, strips(LINMATRIX, CONWAYS, MATRIX, LINMATRIX1, LINMATRIX2)),
+      new Rule(INPUT_ENDGAME, allStrips(FILLRED)), // Fill.py
+      new Rule(INPUT_NOTE_LOADED, allStrips(FLASH)), // Flash.py
+      // circle_spinner.py, orange_reverse_matrix.py
+      new Rule(INPUT_INTAKE_RUNNING,
+          strips(CIRCLE1, ORANGE_REVERSE_MATRIX, ORANGE_REVERSE_MATRIX1, CIRCLE2, CIRCLE3)),
+      // orange_reverse_matrix.py, pointer.py
+      new Rule(INPUT_FLINGER_RUNNING, strips(KEEP, ORANGE_REVERSE_MATRIX2, POINTER, KEEP, KEEP)),
+      // Fill.py, animation_bitmap.py
+      new Rule(0, strips(FILLGREEN, BITMAP, FILLGREEN, FILLWHITE, FILLRED)),
+  };
+  private int m_lastInputs = -1;
+
   public LightsSubsystem(Flinger flinger, FloorIntake intake, VisionSubsystem vision) {
-    i2c = new I2C(Port.kOnboard, I2C_ADDRESS);
+    m_transport = new LightsTransport(
+        new LightsTransport.I2CEndpoint(new I2C(Port.kOnboard, I2C_ADDRESS)), MAX_STRIPS);
     m_flinger = flinger;
     m_intake = intake;
     m_VisionSubsystem = vision;
     clearAllAnimations();
+
+    DataRecorder recorder = DataRecorder.getInstance();
+    recorder.addInteger("Lights/Inputs", () -> m_lastInputs);
+    recorder.addIntegerArray("Lights/Animations", MAX_STRIPS, values -> {
+      for (int strip = 0; strip < MAX_STRIPS; strip++) {
+        values[strip] = currentAnimation[strip];
+      }
+    });
   }
 
   private boolean isNoteLoaded() {
-    return m_intake.getBotSensor();
+    return m_intake.getNoteState().hasNote();
   }
 
   private boolean isFlingerRunning() {
@@ -97,65 +142,91 @@ public class LightsSubsystem extends SubsystemBase {
 
   @Override
   public void periodic() {
-    if (DriverStation.isDisabled()) {
-      setAnimation(PERIMETERID, LINMATRIX); // linear_matrix.py
-      setAnimation(BIGPID, CONWAYS); // conways_game_of_life.py
-      setAnimation(HEADID, LINMATRIX1); // linear_matrix.py
-      setAnimation(BACKID, LINMATRIX2); // linear_matrix.py
-      setAnimation(SIDEID, MATRIX); // matrix.py
+    m_periodicProfile.begin();
+    // Only work out new animations when one of the inputs actually changed
+    int inputs = sampleInputs();
+    if (inputs != m_lastInputs) {
+      m_lastInputs = inputs;
+      applyRules(inputs);
+      sendAllAnimations();
+    }
+    m_periodicProfile.end();
+  }
 
+  /**
+   * Reads everything the lights depend on, once, into a bitmask of the
+   * {@code INPUT_*} flags.
+   */
+  private int sampleInputs() {
+    int inputs = 0;
+    if (DriverStation.isDisabled()) {
+      inputs |= INPUT_DISABLED;
     } else {
-
-      if (DriverStation.getMatchTime() < 30 && DriverStation.getMatchTime() > 0) {
-        // We check if it's greater than 0 because the timer is always -1 when not in competition or practice mode
-
-        setAnimation(PERIMETERID, FILLRED); // Fill.py
-        setAnimation(BIGPID, FILLRED); // Fill.py
-        setAnimation(HEADID, FILLRED); // Fill.py
-        setAnimation(BACKID, FILLRED); // Fill.py
-        setAnimation(SIDEID, FILLRED); // Fill.py
+      // We check if it's greater than 0 because the timer is always -1 when not in competition or practice mode
+      double matchTime = DriverStation.getMatchTime();
+      if (matchTime < 30 && matchTime > 0) {
+        inputs |= INPUT_ENDGAME;
       }
-      else if (isNoteLoaded()) {
-        setAnimation(PERIMETERID, FLASH); // Flash.py
-        setAnimation(BIGPID, FLASH); // Flash.py
-        setAnimation(HEADID, FLASH); // Flash.py
-        setAnimation(BACKID, FLASH); // Flash.py
-        setAnimation(SIDEID, FLASH); // Flash.py
-      }
-      else if (isIntakeRunning()) {
-        setAnimation(PERIMETERID, CIRCLE1); // circle_spinner.py
-        setAnimation(BIGPID, ORANGE_REVERSE_MATRIX); // orange_reverse_matrix.py
-        setAnimation(HEADID, CIRCLE2); // circle_spinner.py
-        setAnimation(BACKID, CIRCLE3); // circle_spinner.py
-        setAnimation(SIDEID, ORANGE_REVERSE_MATRIX1); // orange_reverse_matrix.py
-      } else if (isFlingerRunning()) {
-        setAnimation(BIGPID, ORANGE_REVERSE_MATRIX2); // orange_reverse_matrix.py
-        setAnimation(SIDEID, POINTER); // pointer.py
-      } else {
-        setAnimation(PERIMETERID, FILLGREEN); // Fill.py
-        setAnimation(BIGPID, BITMAP); // animation_bitmap.py
-        setAnimation(HEADID, FILLWHITE); // Fill.py
-        setAnimation(BACKID, FILLRED); // Fill.py
-        setAnimation(SIDEID, FILLGREEN); // Fill.py
+    }
+    if (isNoteLoaded()) {
+      inputs |= INPUT_NOTE_LOADED;
+    }
+    if (isIntakeRunning()) {
+      inputs |= INPUT_INTAKE_RUNNING;
+    }
+    if (isFlingerRunning()) {
+      inputs |= INPUT_FLINGER_RUNNING;
+    }
+    if (m_VisionSubsystem.isTagVisible(3)) {
+      inputs |= INPUT_TAG_3;
+    }
+    if (m_VisionSubsystem.isTagVisible(15)) {
+      inputs |= INPUT_TAG_15;
+    }
+    return inputs;
+  }
+
+  /**
+   * Applies the first rule whose inputs are all set. Strips the rule marks as
+   * {@link #KEEP} hold whatever they were showing.
+   */
+  private void applyRules(int inputs) {
+    for (Rule rule : m_rules) {
+      if ((inputs & rule.when) == rule.when) {
+        for (int strip = 0; strip < MAX_STRIPS; strip++) {
+          if (rule.animations[strip] != KEEP) {
+            setAnimation(strip, rule.animations[strip]);
+          }
+        }
+        return;
       }
-      
     }
+  }
 
-    if (m_VisionSubsystem.isTagVisible(3)) {
-      setAnimation(PERIMETERID, FILLGREEN); // FILLGREEN.py
-      setAnimation(BIGPID,      FILLGREEN); // FILLGREEN.py
-      setAnimation(HEADID,      FILLGREEN); // FILLGREEN.py
-      setAnimation(BACKID,      FILLGREEN); // FILLGREEN.py
-      setAnimation(SIDEID,      FILLGREEN); // FILLGREEN.py
-    }if (m_VisionSubsystem.isTagVisible(15)) {
-      setAnimation(PERIMETERID, FILLWHITE); // FILLGREEN.py
-      setAnimation(BIGPID,      FILLWHITE); // FILLGREEN.py
-      setAnimation(HEADID,      FILLWHITE); // FILLGREEN.py
-      setAnimation(BACKID,      FILLWHITE); // FILLGREEN.py
-      setAnimation(SIDEID,      FILLWHITE); // FILLGREEN.py
+  /** One row of the lights plan: when these inputs are set, show these animations. */
+  private static final class Rule {
+    final int when;
+    final int[] animations;
+
+    Rule(int when, int[] animations) {
+      this.when = when;
+      this.animations = animations;
     }
+  }
+
+  /** Builds a per-strip animation vector indexed by strip ID. */
+  private static int[] strips(int perimeter, int bigP, int side, int head, int back) {
+    int[] animations = new int[MAX_STRIPS];
+    animations[PERIMETERID] = perimeter;
+    animations[BIGPID] = bigP;
+    animations[SIDEID] = side;
+    animations[HEADID] = head;
+    animations[BACKID] = back;
+    return animations;
+  }
 
-    sendAllAnimations();
+  private static int[] allStrips(int animation) {
+    return strips(animation, animation, animation, animation, animation);
   }
 
   /**
@@ -187,22 +258,16 @@ public class LightsSubsystem extends SubsystemBase {
    * only sent out if they <em>need</em> to change. Signals are only sent if the
    * desired animation is different from the current animation.
    * This prevents redundant, unnecessary changes from dominating the I2C bus.
+   * <br>
+   * The changes are only queued here; {@link LightsTransport} sends them on
+   * its own thread, so the robot loop never waits on the bus.
    */
   private void sendAllAnimations() {
     for (int s = 0; s < MAX_STRIPS; s++) {
       if (nextAnimation[s] != currentAnimation[s]) {
-        sendOneAnimation(s);
+        m_transport.queue(s, nextAnimation[s]);
         currentAnimation[s] = nextAnimation[s];
       }
     }
   }
-
-  private void sendOneAnimation(int stripNumber) {
-    dataOut[0] = nextAnimation[stripNumber];
-    i2c.writeBulk(dataOut, dataOut.length);
-
-    int stripNumbr = (nextAnimation[stripNumber] & 0xE0) >> 5;
-    int animNumber = nextAnimation[stripNumber] & 0x1F;
-    System.out.println("I2C: SEND(" + stripNumbr + "," + animNumber + ")");
-  }
 }
@@ -0,0 +1,247 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.I2C;
+import frc.utils.ConsoleLog;
+
+/**
+ * Background sender for the lights board. The robot loop only queues the new
+ * animation byte for each strip that changed; a worker thread then sends every
+ * pending strip. If a strip changes again before the worker gets to it, only
+ * the newest animation is sent.
+ * <p>
+ * Each strip still goes out as its own one-byte I2C transaction, which is what
+ * the lights board reads. The byte is self-describing (strip number in the top
+ * 3 bits, animation in the bottom 5).
+ * <p>
+ * If a write is aborted, it and the strips not yet sent are queued again,
+ * unless a newer animation for a strip arrived in the meantime. The worker
+ * then backs off before the next write, doubling the wait after each failure
+ * in a row, so a missing board does not flood the bus.
+ */
+public class LightsTransport {
+  private static final ConsoleLog.Site kSendLog = ConsoleLog.site("LightsTransport", 20);
+  private static final long kRetryInitialNanos = 10_000_000;
+  private static final long kRetryMaxNanos = 500_000_000;
+
+  /** Where animation bytes are written to. The real one wraps the roboRIO I2C port. */
+  public interface Endpoint {
+    /**
+     * @return true if the transfer was aborted, matching {@link I2C#writeBulk}.
+     */
+    boolean writeBulk(byte[] data, int size);
+  }
+
+  /** Writes to the lights board over I2C. */
+  public static class I2CEndpoint implements Endpoint {
+    private final I2C m_i2c;
+
+    public I2CEndpoint(I2C i2c) {
+      m_i2c = i2c;
+    }
+
+    @Override
+    public boolean writeBulk(byte[] data, int size) {
+      return m_i2c.writeBulk(data, size);
+    }
+  }
+
+  /**
+   * Records every write instead of sending it, for testing the coalescing and
+   * retries off-robot. Can be told to abort writes.
+   */
+  public static class FakeEndpoint implements Endpoint {
+    private final List<byte[]> m_writes = new ArrayList<>();
+    private int m_failures = 0;
+
+    @Override
+    public synchronized boolean writeBulk(byte[] data, int size) {
+      byte[] write = new byte[size];
+      System.arraycopy(data, 0, write, 0, size);
+      m_writes.add(write);
+      if (m_failures > 0) {
+        m_failures--;
+        return true;
+      }
+      return false;
+    }
+
+    /** Makes the next {@code writes} writes report an abort. */
+    public synchronized void failNext(int writes) {
+      m_failures = writes;
+    }
+
+    /** @return Every write so far, aborted ones included. */
+    public synchronized List<byte[]> getWrites() {
+      return new ArrayList<>(m_writes);
+    }
+  }
+
+  private final Endpoint m_endpoint;
+  private final int m_strips;
+  private final LongSupplier m_clock;
+
+  // Guarded by this
+  private final byte[] m_pending;
+  private int m_pendingMask = 0;
+  private long m_oldestQueuedNanos = 0;
+  private long m_supersededCount = 0;
+  private long m_retryDelayNanos = 0;
+  private long m_retryAtNanos = 0;
+
+  // Only touched by the sender
+  private final byte[] m_batch;
+  private final int[] m_batchStrips;
+  private final byte[] m_dataOut = new byte[1];
+
+  private volatile long m_writesSent = 0;
+  private volatile long m_failedWrites = 0;
+  private volatile long m_lastLatencyNanos = 0;
+
+  /**
+   * @param endpoint Where to write the animation bytes.
+   * @param strips   Number of light strips (at most 8).
+   */
+  public LightsTransport(Endpoint endpoint, int strips) {
+    this(endpoint, strips, System::nanoTime);
+
+    Thread worker = new Thread(this::run, "LightsTransport");
+    worker.setDaemon(true);
+    worker.setPriority(Thread.MIN_PRIORITY);
+    worker.start();
+  }
+
+  /**
+   * Creates a transport without a worker thread, for tests that call
+   * {@link #sendPending()} themselves.
+   *
+   * @param clock Time in nanoseconds, used for the backoff and latency.
+   */
+  LightsTransport(Endpoint endpoint, int strips, LongSupplier clock) {
+    m_endpoint = endpoint;
+    m_strips = strips;
+    m_clock = clock;
+    m_pending = new byte[strips];
+    m_batch = new byte[strips];
+    m_batchStrips = new int[strips];
+  }
+
+  /**
+   * Queues an animation byte for a strip, replacing anything still pending for
+   * that strip. Never blocks on the bus.
+   */
+  public synchronized void queue(int strip, byte data) {
+    int bit = 1 << strip;
+    if ((m_pendingMask & bit) != 0) {
+      m_supersededCount++;
+    } else if (m_pendingMask == 0) {
+      m_oldestQueuedNanos = m_clock.getAsLong();
+    }
+    m_pending[strip] = data;
+    m_pendingMask |= bit;
+    notify();
+  }
+
+  private void run() {
+    while (true) {
+      synchronized (this) {
+        try {
+          while (m_pendingMask == 0) {
+            wait();
+          }
+          // After a failed write, hold off even if new changes arrive
+          if (m_retryDelayNanos > 0) {
+            for (long wait = m_retryAtNanos - m_clock.getAsLong(); wait > 0; wait = m_retryAtNanos - m_clock.getAsLong()) {
+              TimeUnit.NANOSECONDS.timedWait(this, wait);
+            }
+          }
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+      sendPending();
+    }
+  }
+
+  /**
+   * Writes every pending strip, one byte per write, stopping at the first
+   * aborted write.
+   *
+   * @return false if nothing was written because the backoff after a failed
+   *         write has not run out yet.
+   */
+  boolean sendPending() {
+    int count = 0;
+    long queuedNanos;
+    synchronized (this) {
+      if (m_retryDelayNanos > 0 && m_retryAtNanos - m_clock.getAsLong() > 0) {
+        return false;
+      }
+      for (int s = 0; s < m_strips; s++) {
+        if ((m_pendingMask & (1 << s)) != 0) {
+          m_batchStrips[count] = s;
+          m_batch[count++] = m_pending[s];
+        }
+      }
+      m_pendingMask = 0;
+      queuedNanos = m_oldestQueuedNanos;
+    }
+    if (count == 0) {
+      return true;
+    }
+
+    for (int i = 0; i < count; i++) {
+      m_dataOut[0] = m_batch[i];
+      if (m_endpoint.writeBulk(m_dataOut, 1)) {
+        m_failedWrites++;
+        synchronized (this) {
+          // m_pending still holds the unsent bytes, unless a newer one was
+          // queued for the strip, which has already set its bit
+          for (int j = i; j < count; j++) {
+            m_pendingMask |= 1 << m_batchStrips[j];
+          }
+          m_oldestQueuedNanos = queuedNanos;
+          m_retryDelayNanos = m_retryDelayNanos == 0 ? kRetryInitialNanos
+              : Math.min(m_retryDelayNanos * 2, kRetryMaxNanos);
+          m_retryAtNanos = m_clock.getAsLong() + m_retryDelayNanos;
+        }
+        return true;
+      }
+      m_writesSent++;
+
+      int stripNumbr = (m_batch[i] & 0xE0) >> 5;
+      int animNumber = m_batch[i] & 0x1F;
+      ConsoleLog.log(kSendLog, "I2C: SEND({},{})", stripNumbr, animNumber);
+    }
+
+    synchronized (this) {
+      m_retryDelayNanos = 0;
+    }
+    m_lastLatencyNanos = m_clock.getAsLong() - queuedNanos;
+    return true;
+  }
+
+  /** @return Number of writes the endpoint accepted, one strip each. */
+  public long getWritesSent() {
+    return m_writesSent;
+  }
+
+  /** @return Number of writes the endpoint reported as aborted, each retried. */
+  public long getFailedWrites() {
+    return m_failedWrites;
+  }
+
+  /** @return Strip updates dropped because a newer one replaced them. */
+  public synchronized long getSupersededCount() {
+    return m_supersededCount;
+  }
+
+  /** @return Time from the oldest queued change to the end of the send that wrote it. */
+  public double getLastLatencySeconds() {
+    return m_lastLatencyNanos * 1e-9;
+  }
+}
@@ -0,0 +1,270 @@
+package frc.robot.subsystems;
+
+import java.util.function.Consumer;
+
+/**
+ * Tracks where the note is in the intake from the edges of the two beam
+ * breaks, rather than from their levels once per loop. Edges are fed in with
+ * their hardware timestamps through {@link #onEdge(int, boolean, double)},
+ * normally from the DIO interrupt threads, so a note that crosses a sensor
+ * between two robot loops still moves the state, and the times a note got
+ * centered or left the robot are known to the microsecond.
+ * <p>
+ * Each sensor has its own interrupt thread, so an edge from one sensor can
+ * arrive after a later edge from the other. The last {@link #kHistory} inputs
+ * are kept in timestamp order along with the tracking as it was before the
+ * oldest of them; an input that arrives out of order is slotted in where it
+ * happened and the state recomputed from there.
+ * <p>
+ * The bottom sensor is the one the note reaches first when intaking; the top
+ * one sits just below the flinger. Plain Java, so edge sequences can be
+ * replayed through it off-robot.
+ */
+public class NoteTracker {
+
+  public static final int BOT_SENSOR = 0;
+  public static final int TOP_SENSOR = 1;
+
+  public enum State {
+    /** Neither sensor sees a note. */
+    NONE,
+    /** Only the bottom sensor sees the note: it is still coming in, or backed off. */
+    ENTERING,
+    /** Both sensors see the note. */
+    CENTERED,
+    /** Only the top sensor sees the note: it went too far while intaking. */
+    OVER_TRAVEL,
+    /** Only the top sensor sees the note while it is being fed to the flinger. */
+    EXITING;
+
+    /** @return Whether a note is in the robot. */
+    public boolean hasNote() {
+      return this != NONE;
+    }
+  }
+
+  /** How many recent inputs are kept to reorder late edges against. */
+  static final int kHistory = 16;
+
+  private static final int kBotInput = BOT_SENSOR;
+  private static final int kTopInput = TOP_SENSOR;
+  private static final int kFeedingInput = 2;
+
+  /** Everything the inputs decide, so it can be copied and rebuilt. */
+  private static final class Tracking {
+    boolean bot = false;
+    boolean top = false;
+    boolean feeding = false;
+    State state = State.NONE;
+    double stateTimestamp = 0;
+    double centeredTimestamp = Double.NaN;
+    double exitTimestamp = Double.NaN;
+    long notesExited = 0;
+
+    void copyFrom(Tracking other) {
+      bot = other.bot;
+      top = other.top;
+      feeding = other.feeding;
+      state = other.state;
+      stateTimestamp = other.stateTimestamp;
+      centeredTimestamp = other.centeredTimestamp;
+      exitTimestamp = other.exitTimestamp;
+      notesExited = other.notesExited;
+    }
+
+    /** @return Whether the state changed. */
+    boolean apply(int input, boolean value, double timestampSeconds) {
+      if (input == kBotInput) {
+        bot = value;
+      } else if (input == kTopInput) {
+        top = value;
+      } else {
+        feeding = value;
+      }
+      return update(timestampSeconds);
+    }
+
+    /** @return Whether the state changed. */
+    boolean update(double timestampSeconds) {
+      State next;
+      if (bot && top) {
+        next = State.CENTERED;
+      } else if (bot) {
+        next = State.ENTERING;
+      } else if (top) {
+        next = feeding ? State.EXITING : State.OVER_TRAVEL;
+      } else {
+        next = State.NONE;
+      }
+      if (next == state) {
+        return false;
+      }
+      if (next == State.CENTERED) {
+        centeredTimestamp = timestampSeconds;
+      } else if (next == State.NONE && (state == State.EXITING || state == State.OVER_TRAVEL)) {
+        // Cleared the top sensor, so the note is in the flinger
+        exitTimestamp = timestampSeconds;
+        notesExited++;
+      }
+      state = next;
+      stateTimestamp = timestampSeconds;
+      return true;
+    }
+  }
+
+  private final Consumer<State> m_onChange;
+
+  // The tracking after every input in the history, and before the oldest one
+  private final Tracking m_tracking = new Tracking();
+  private final Tracking m_base = new Tracking();
+
+  // Recent inputs, oldest first, in timestamp order
+  private final double[] m_inputTimes = new double[kHistory];
+  private final int[] m_inputs = new int[kHistory];
+  private final boolean[] m_inputValues = new boolean[kHistory];
+  private int m_inputCount = 0;
+  private double m_syncTimestamp = Double.NEGATIVE_INFINITY;
+
+  private long m_edges = 0;
+  private long m_reordered = 0;
+
+  /**
+   * @param onChange Called with the new state on every state change, on the
+   *                 thread that reported the edge. Must be quick.
+   */
+  public NoteTracker(Consumer<State> onChange) {
+    m_onChange = onChange;
+  }
+
+  /**
+   * Reports one sensor edge.
+   *
+   * @param sensor           {@link #BOT_SENSOR} or {@link #TOP_SENSOR}.
+   * @param present          Whether the sensor sees the note after the edge.
+   * @param timestampSeconds When the edge happened, in FPGA seconds.
+   */
+  public synchronized void onEdge(int sensor, boolean present, double timestampSeconds) {
+    m_edges++;
+    if (timestampSeconds < m_syncTimestamp) {
+      // The levels read at the sync already include this edge
+      return;
+    }
+    record(sensor == BOT_SENSOR ? kBotInput : kTopInput, present, timestampSeconds);
+  }
+
+  /**
+   * Sets both sensor levels at once, for start-up and for recovering if an
+   * edge was missed. Inputs from before this are not reordered against any
+   * more.
+   */
+  public synchronized void sync(boolean bot, boolean top, double timestampSeconds) {
+    m_tracking.bot = bot;
+    m_tracking.top = top;
+    boolean changed = m_tracking.update(timestampSeconds);
+    m_base.copyFrom(m_tracking);
+    m_inputCount = 0;
+    m_syncTimestamp = timestampSeconds;
+    if (changed) {
+      m_onChange.accept(m_tracking.state);
+    }
+  }
+
+  /**
+   * Marks whether the note is being fed into the flinger, which tells a note
+   * leaving past the top sensor apart from one that over-travelled.
+   */
+  public synchronized void setFeeding(boolean feeding, double timestampSeconds) {
+    record(kFeedingInput, feeding, timestampSeconds);
+  }
+
+  private void record(int input, boolean value, double timestampSeconds) {
+    // Find where the input goes; nearly always at the end
+    int slot = m_inputCount;
+    while (slot > 0 && m_inputTimes[slot - 1] > timestampSeconds) {
+      slot--;
+    }
+    if (slot == 0 && m_inputCount == kHistory) {
+      // Older than everything we can rewind to, so apply it late rather than
+      // not at all
+      slot = m_inputCount;
+    }
+
+    if (m_inputCount == kHistory) {
+      // Fold the oldest input into the base to make room
+      m_base.apply(m_inputs[0], m_inputValues[0], m_inputTimes[0]);
+      System.arraycopy(m_inputTimes, 1, m_inputTimes, 0, kHistory - 1);
+      System.arraycopy(m_inputs, 1, m_inputs, 0, kHistory - 1);
+      System.arraycopy(m_inputValues, 1, m_inputValues, 0, kHistory - 1);
+      m_inputCount--;
+      slot--;
+    }
+    int after = m_inputCount - slot;
+    System.arraycopy(m_inputTimes, slot, m_inputTimes, slot + 1, after);
+    System.arraycopy(m_inputs, slot, m_inputs, slot + 1, after);
+    System.arraycopy(m_inputValues, slot, m_inputValues, slot + 1, after);
+    m_inputTimes[slot] = timestampSeconds;
+    m_inputs[slot] = input;
+    m_inputValues[slot] = value;
+    m_inputCount++;
+
+    if (after == 0) {
+      if (m_tracking.apply(input, value, timestampSeconds)) {
+        m_onChange.accept(m_tracking.state);
+      }
+      return;
+    }
+
+    // Arrived after a later input, so rebuild the tracking in timestamp order
+    m_reordered++;
+    State before = m_tracking.state;
+    m_tracking.copyFrom(m_base);
+    for (int i = 0; i < m_inputCount; i++) {
+      m_tracking.apply(m_inputs[i], m_inputValues[i], m_inputTimes[i]);
+    }
+    if (m_tracking.state != before) {
+      m_onChange.accept(m_tracking.state);
+    }
+  }
+
+  public synchronized State getState() {
+    return m_tracking.state;
+  }
+
+  /** @return When the current state was entered, in FPGA seconds. */
+  public synchronized double getStateTimestamp() {
+    return m_tracking.stateTimestamp;
+  }
+
+  /** @return When a note last became centered, or NaN if never. */
+  public synchronized double getCenteredTimestamp() {
+    return m_tracking.centeredTimestamp;
+  }
+
+  /** @return When a note last cleared the top sensor into the flinger, or NaN if never. */
+  public synchronized double getExitTimestamp() {
+    return m_tracking.exitTimestamp;
+  }
+
+  public synchronized boolean getBotSensor() {
+    return m_tracking.bot;
+  }
+
+  public synchronized boolean getTopSensor() {
+    return m_tracking.top;
+  }
+
+  /** @return Number of edges reported. */
+  public synchronized long getEdges() {
+    return m_edges;
+  }
+
+  /** @return Number of inputs that arrived after a later one and were reordered. */
+  public synchronized long getReordered() {
+    return m_reordered;
+  }
+
+  /** @return Number of notes that left past the top sensor. */
+  public synchronized long getNotesExited() {
+    return m_tracking.notesExited;
+  }
+}
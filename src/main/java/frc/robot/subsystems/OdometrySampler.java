@@ -0,0 +1,254 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+
+import frc.utils.OdometrySampleBuffer;
+
+/**
+ * Samples the drive encoders and gyro on a dedicated thread, faster than the
+ * 20 ms robot loop, and publishes timestamped samples into an
+ * {@link OdometrySampleBuffer}. {@link DriveSubsystem} drains the buffer once
+ * per loop and integrates every sample, so odometry sees the fine-grained wheel
+ * deltas without the main loop ever blocking on the sampler.
+ * <p>
+ * The SPARK MAX status frames arrive less often than the sampler runs, so most
+ * reads return the same values as the one before. A sample is only published
+ * when some reading changed, and the repeats are counted instead.
+ * <p>
+ * The sampler itself has no HAL dependency. With a {@link SimulatedSource}
+ * it runs on any desktop JVM, and {@link #sampleOnce()} can be called directly
+ * with a simulated clock instead of starting the thread.
+ */
+public class OdometrySampler {
+
+  /** Where the sampler reads its hardware values from. */
+  public interface Source {
+    /** @return Robot yaw in radians, counter-clockwise positive. */
+    double getYawRadians();
+
+    /**
+     * Fills in each module's driven distance (meters) and chassis-relative angle
+     * (radians).
+     */
+    void readModules(double[] distancesMeters, double[] anglesRadians);
+  }
+
+  private final Source m_source;
+  private final DoubleSupplier m_clock;
+  private final long m_periodNanos;
+  private final OdometrySampleBuffer m_buffer;
+
+  private final double[] m_distances;
+  private final double[] m_angles;
+
+  // Last published readings, to spot reads that saw no new status frame
+  private final double[] m_lastDistances;
+  private final double[] m_lastAngles;
+  private double m_lastYaw = Double.NaN;
+  private double m_lastTimestamp = Double.NaN;
+
+  private Thread m_thread;
+  private volatile boolean m_running = false;
+
+  // Statistics, written by the sampler thread only
+  private volatile long m_readCount = 0;
+  private volatile long m_sampleCount = 0;
+  private volatile long m_duplicateCount = 0;
+  private volatile double m_totalPeriodSeconds = 0;
+  private volatile double m_maxJitterSeconds = 0;
+  private volatile long m_overrunCount = 0;
+
+  /**
+   * @param source      Hardware (or simulated) values to sample.
+   * @param clock       Timestamp source in seconds, e.g. the FPGA timestamp.
+   * @param frequencyHz Sampling rate.
+   * @param modules     Number of swerve modules.
+   */
+  public OdometrySampler(Source source, DoubleSupplier clock, double frequencyHz, int modules) {
+    m_source = source;
+    m_clock = clock;
+    m_periodNanos = (long) (1e9 / frequencyHz);
+    // Hold a little over a quarter second of samples, plenty for one 20 ms loop
+    m_buffer = new OdometrySampleBuffer((int) (frequencyHz / 4), modules);
+    m_distances = new double[modules];
+    m_angles = new double[modules];
+    m_lastDistances = new double[modules];
+    m_lastAngles = new double[modules];
+    Arrays.fill(m_lastDistances, Double.NaN);
+  }
+
+  /** Starts the sampling thread. Does nothing if it is already running. */
+  public synchronized void start() {
+    if (m_running) {
+      return;
+    }
+    m_running = true;
+    m_thread = new Thread(this::run, "OdometrySampler");
+    m_thread.setDaemon(true);
+    m_thread.setPriority(Thread.MAX_PRIORITY);
+    m_thread.start();
+  }
+
+  /** Stops the sampling thread and waits for it to exit. */
+  public synchronized void stop() {
+    m_running = false;
+    if (m_thread != null) {
+      try {
+        m_thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      m_thread = null;
+    }
+  }
+
+  public boolean isRunning() {
+    return m_running;
+  }
+
+  /**
+   * Delivers every sample taken since the last call to {@code consumer}, oldest
+   * first. Must always be called from the same thread.
+   *
+   * @return The number of samples delivered.
+   */
+  public int drain(OdometrySampleBuffer.SampleConsumer consumer) {
+    return m_buffer.drain(consumer);
+  }
+
+  private void run() {
+    long next = System.nanoTime();
+    while (m_running) {
+      sampleOnce();
+
+      next += m_periodNanos;
+      long wait = next - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      } else {
+        // Fell behind, re-anchor instead of bursting to catch up
+        m_overrunCount++;
+        next = System.nanoTime();
+      }
+    }
+  }
+
+  /**
+   * Reads the source once, publishes the readings if any of them changed since
+   * the last published sample, and updates the timing statistics from the
+   * clock. Called by the sampling thread every period; must not be called while
+   * the thread is running.
+   */
+  void sampleOnce() {
+    double timestamp = m_clock.getAsDouble();
+    if (m_readCount > 0) {
+      double period = timestamp - m_lastTimestamp;
+      m_totalPeriodSeconds += period;
+      m_maxJitterSeconds = Math.max(m_maxJitterSeconds, Math.abs(period - m_periodNanos * 1e-9));
+    }
+    m_readCount++;
+    m_lastTimestamp = timestamp;
+
+    double yaw = m_source.getYawRadians();
+    m_source.readModules(m_distances, m_angles);
+    if (yaw == m_lastYaw && Arrays.equals(m_distances, m_lastDistances) && Arrays.equals(m_angles, m_lastAngles)) {
+      // No new status frame since the last sample, nothing for odometry to do
+      m_duplicateCount++;
+      return;
+    }
+    m_lastYaw = yaw;
+    System.arraycopy(m_distances, 0, m_lastDistances, 0, m_distances.length);
+    System.arraycopy(m_angles, 0, m_lastAngles, 0, m_angles.length);
+    m_buffer.write(timestamp, yaw, m_distances, m_angles);
+    m_sampleCount++;
+  }
+
+  /** @return Samples published since the sampler was created. */
+  public long getSampleCount() {
+    return m_sampleCount;
+  }
+
+  /** @return Reads skipped because no reading had changed since the last sample. */
+  public long getDuplicateCount() {
+    return m_duplicateCount;
+  }
+
+  /** @return Average measured period between reads, in seconds. */
+  public double getAveragePeriodSeconds() {
+    long count = m_readCount;
+    return count > 1 ? m_totalPeriodSeconds / (count - 1) : 0;
+  }
+
+  /** @return Largest deviation from the requested period, in seconds. */
+  public double getMaxJitterSeconds() {
+    return m_maxJitterSeconds;
+  }
+
+  /** @return Times the sampler could not keep its requested rate. */
+  public long getOverrunCount() {
+    return m_overrunCount;
+  }
+
+  /** @return Samples the consumer lost by draining too slowly. */
+  public long getDroppedCount() {
+    return m_buffer.getDroppedCount();
+  }
+
+  /**
+   * Stand-in for the encoders and gyro: the robot drives a constant-speed arc
+   * with all wheels pointed the same way. Like the real status frames, the
+   * readings can be made to change only once per frame period. Used when
+   * running in simulation or to measure the sampler on a desktop.
+   */
+  public static class SimulatedSource implements Source {
+    private final double m_speedMetersPerSecond;
+    private final double m_turnRateRadiansPerSecond;
+    private final double m_framePeriodSeconds;
+    private final DoubleSupplier m_clock;
+    private final double m_startSeconds;
+
+    /** Readings that change continuously with the desktop clock. */
+    public SimulatedSource(double speedMetersPerSecond, double turnRateRadiansPerSecond) {
+      this(speedMetersPerSecond, turnRateRadiansPerSecond, 0, () -> System.nanoTime() * 1e-9);
+    }
+
+    /**
+     * @param framePeriodSeconds How often the readings change, or 0 for every
+     *                           read.
+     * @param clock              Time in seconds.
+     */
+    public SimulatedSource(double speedMetersPerSecond, double turnRateRadiansPerSecond, double framePeriodSeconds,
+        DoubleSupplier clock) {
+      m_speedMetersPerSecond = speedMetersPerSecond;
+      m_turnRateRadiansPerSecond = turnRateRadiansPerSecond;
+      m_framePeriodSeconds = framePeriodSeconds;
+      m_clock = clock;
+      m_startSeconds = clock.getAsDouble();
+    }
+
+    private double elapsedSeconds() {
+      double elapsed = m_clock.getAsDouble() - m_startSeconds;
+      return m_framePeriodSeconds > 0 ? Math.floor(elapsed / m_framePeriodSeconds) * m_framePeriodSeconds : elapsed;
+    }
+
+    @Override
+    public double getYawRadians() {
+      return m_turnRateRadiansPerSecond * elapsedSeconds();
+    }
+
+    @Override
+    public void readModules(double[] distancesMeters, double[] anglesRadians) {
+      double distance = m_speedMetersPerSecond * elapsedSeconds();
+      for (int i = 0; i < distancesMeters.length; i++) {
+        distancesMeters[i] = distance;
+        anglesRadians[i] = 0;
+      }
+    }
+  }
+}
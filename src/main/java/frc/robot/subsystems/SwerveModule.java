@@ -4,19 +4,35 @@
 
 package frc.robot.subsystems;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleConsumer;
+
 import com.revrobotics.AbsoluteEncoder;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkMaxAbsoluteEncoder.Type;
 import com.revrobotics.SparkMaxPIDController;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.RobotBase;
 import frc.robot.Constants.ModuleConstants;
+import frc.utils.ConsoleLog;
+import frc.utils.SwerveDriveMath;
 
 public class SwerveModule {
+  private static final ConsoleLog.Site kConfigLog = ConsoleLog.site("SwerveModule", 0);
+
   private final CANSparkMax m_drivingSparkMax;
   private final CANSparkMax m_turningSparkMax;
 
@@ -29,103 +45,308 @@ public class SwerveModule {
   private double m_chassisAngularOffset = 0;
   private SwerveModuleState m_desiredState = new SwerveModuleState(0.0, new Rotation2d());
 
+  // Reusable holders handed out by updatePosition()/updateState() so the
+  // odometry loop does not create new objects every cycle.
+  private final SwerveModulePosition m_position = new SwerveModulePosition();
+  private final SwerveModuleState m_state = new SwerveModuleState();
+  private double m_lastTurningPosition = Double.NaN;
+  private Rotation2d m_lastAngle = new Rotation2d();
+
+  // Sensor snapshot taken once per loop by refreshSensors(), so repeated
+  // state/position reads in the same loop do not each go through JNI
+  private double m_drivingPosition = 0;
+  private double m_drivingVelocity = 0;
+  private double m_turningPosition = 0;
+
+  // Last setpoints actually sent to the SPARKS MAX, NaN until the first send.
+  // setDesiredState() skips writes that would not change them.
+  private double m_sentSpeed = Double.NaN;
+  private double m_sentAngle = Double.NaN;
+  private int m_drivingLoopsSinceSent = 0;
+  private int m_turningLoopsSinceSent = 0;
+  private long m_setpointFramesSent = 0;
+  private long m_setpointFramesSuppressed = 0;
+
+  // Stands in for the encoders when running in simulation, null on the robot
+  private final SwerveModuleSim m_sim = RobotBase.isSimulation() ? new SwerveModuleSim() : null;
+
   /**
-   * Constructs a MAXSwerveModule and configures the driving and turning motor,
-   * encoder, and PID controller. This configuration is specific to the REV
-   * MAXSwerve Module built with NEOs, SPARKS MAX, and a Through Bore
-   * Encoder.
+   * Constructs a MAXSwerveModule. The SPARKS MAX are not configured yet, call
+   * {@link #configureAll(SwerveModule...)} before using the module.
    */
   public SwerveModule(int drivingCANId, int turningCANId, double chassisAngularOffset) {
     m_drivingSparkMax = new CANSparkMax(drivingCANId, MotorType.kBrushless);
     m_turningSparkMax = new CANSparkMax(turningCANId, MotorType.kBrushless);
 
-    // Factory reset, so we get the SPARKS MAX to a known state before configuring
-    // them. This is useful in case a SPARK MAX is swapped out.
-    m_drivingSparkMax.restoreFactoryDefaults();
-    m_turningSparkMax.restoreFactoryDefaults();
-
     // Setup encoders and PID controllers for the driving and turning SPARKS MAX.
     m_drivingEncoder = m_drivingSparkMax.getEncoder();
     m_turningEncoder = m_turningSparkMax.getAbsoluteEncoder(Type.kDutyCycle);
     m_drivingPIDController = m_drivingSparkMax.getPIDController();
     m_turningPIDController = m_turningSparkMax.getPIDController();
+
+    m_chassisAngularOffset = chassisAngularOffset;
+  }
+
+  /**
+   * Configures the driving and turning SPARKS MAX of every module at once, one
+   * thread per controller, then finishes setting up each module. This
+   * configuration is specific to the REV MAXSwerve Module built with NEOs,
+   * SPARKS MAX, and a Through Bore Encoder.
+   * <p>
+   * Every parameter that can be read back is compared with ours, and only the
+   * ones that differ are written and logged. The flash is burned only on a
+   * controller where something was written, so a robot that already has our
+   * configuration boots without touching it. The feedback device and current
+   * limit cannot be read back and are written every boot. Parameters we never
+   * set are left as they are; a replaced SPARK MAX comes with factory defaults
+   * for those anyway.
+   * <p>
+   * The thread pool only lives for this call.
+   *
+   * @return Time spent configuring, in seconds.
+   */
+  public static double configureAll(SwerveModule... modules) {
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(modules.length * 2, runnable -> {
+      Thread thread = new Thread(runnable, "SparkMaxConfig");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (SwerveModule module : modules) {
+        results.add(executor.submit(module::configureDriving));
+        results.add(executor.submit(module::configureTurning));
+      }
+      int rewritten = 0;
+      int burned = 0;
+      for (Future<Integer> result : results) {
+        int count = result.get();
+        rewritten += count;
+        if (count > 0) {
+          burned++;
+        }
+      }
+      for (SwerveModule module : modules) {
+        module.finishConfiguration();
+      }
+
+      double seconds = (System.nanoTime() - start) * 1e-9;
+      ConsoleLog.log(kConfigLog, "Configured {} SPARK MAX in {} ms", results.size(), seconds * 1000);
+      ConsoleLog.log(kConfigLog, "SPARK MAX config: {} parameters rewritten, {} flashes burned", rewritten, burned);
+      return seconds;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while configuring swerve modules", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to configure swerve modules", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** @return How many parameters had to be rewritten. */
+  private int configureDriving() {
+    ParameterCheck check = new ParameterCheck(m_drivingSparkMax);
+
+    // Apply position and velocity conversion factors for the driving encoder.
+    // The native units for position and velocity are rotations and RPM,
+    // respectively, but we want meters and meters per second to use with
+    // WPILib's swerve APIs.
+    check.apply("position conversion factor", m_drivingEncoder.getPositionConversionFactor(),
+        ModuleConstants.kDrivingEncoderPositionFactor, m_drivingEncoder::setPositionConversionFactor);
+    check.apply("velocity conversion factor", m_drivingEncoder.getVelocityConversionFactor(),
+        ModuleConstants.kDrivingEncoderVelocityFactor, m_drivingEncoder::setVelocityConversionFactor);
+
+    // Set the PID gains for the driving motor. Note these are example gains,
+    // and you may need to tune them for your own robot!
+    applyPID(check, m_drivingPIDController, ModuleConstants.kDrivingP, ModuleConstants.kDrivingI,
+        ModuleConstants.kDrivingD, ModuleConstants.kDrivingFF, ModuleConstants.kDrivingMinOutput,
+        ModuleConstants.kDrivingMaxOutput);
+
+    check.apply("idle mode", m_drivingSparkMax.getIdleMode(), ModuleConstants.kDrivingMotorIdleMode,
+        () -> m_drivingSparkMax.setIdleMode(ModuleConstants.kDrivingMotorIdleMode));
+
+    // The feedback device and current limit cannot be read back, so they are
+    // written every boot, and saved along with the rest on a burn
     m_drivingPIDController.setFeedbackDevice(m_drivingEncoder);
-    m_turningPIDController.setFeedbackDevice(m_turningEncoder);
+    m_drivingSparkMax.setSmartCurrentLimit(ModuleConstants.kDrivingMotorCurrentLimit);
 
-    // Apply position and velocity conversion factors for the driving encoder. The
-    // native units for position and velocity are rotations and RPM, respectively,
-    // but we want meters and meters per second to use with WPILib's swerve APIs.
-    m_drivingEncoder.setPositionConversionFactor(ModuleConstants.kDrivingEncoderPositionFactor);
-    m_drivingEncoder.setVelocityConversionFactor(ModuleConstants.kDrivingEncoderVelocityFactor);
+    // Save the SPARK MAX configuration. If a SPARK MAX browns out during
+    // operation, it will maintain the above configuration.
+    if (check.getRewritten() > 0) {
+      m_drivingSparkMax.burnFlash();
+    }
 
-    // Apply position and velocity conversion factors for the turning encoder. We
-    // want these in radians and radians per second to use with WPILib's swerve
-    // APIs.
-    m_turningEncoder.setPositionConversionFactor(ModuleConstants.kTurningEncoderPositionFactor);
-    m_turningEncoder.setVelocityConversionFactor(ModuleConstants.kTurningEncoderVelocityFactor);
+    // Status frame periods are not saved by burnFlash(), so set them every boot
+    applyStatusFramePeriods(m_drivingSparkMax, ModuleConstants.kDrivingStatusFramePeriodsMs);
+    return check.getRewritten();
+  }
 
-    // Invert the turning encoder, since the output shaft rotates in the opposite
-    // direction of
-    // the steering motor in the MAXSwerve Module.
-    m_turningEncoder.setInverted(ModuleConstants.kTurningEncoderInverted);
+  /** @return How many parameters had to be rewritten. */
+  private int configureTurning() {
+    ParameterCheck check = new ParameterCheck(m_turningSparkMax);
+
+    // Apply position and velocity conversion factors for the turning encoder.
+    // We want these in radians and radians per second to use with WPILib's
+    // swerve APIs.
+    check.apply("position conversion factor", m_turningEncoder.getPositionConversionFactor(),
+        ModuleConstants.kTurningEncoderPositionFactor, m_turningEncoder::setPositionConversionFactor);
+    check.apply("velocity conversion factor", m_turningEncoder.getVelocityConversionFactor(),
+        ModuleConstants.kTurningEncoderVelocityFactor, m_turningEncoder::setVelocityConversionFactor);
+
+    // Invert the turning encoder, since the output shaft rotates in the
+    // opposite direction of the steering motor in the MAXSwerve Module.
+    check.apply("encoder inverted", m_turningEncoder.getInverted(), ModuleConstants.kTurningEncoderInverted,
+        () -> m_turningEncoder.setInverted(ModuleConstants.kTurningEncoderInverted));
 
     // Enable PID wrap around for the turning motor. This will allow the PID
-    // controller to go through 0 to get to the setpoint i.e. going from 350 degrees
-    // to 10 degrees will go through 0 rather than the other direction which is a
-    // longer route.
-    m_turningPIDController.setPositionPIDWrappingEnabled(true);
-    m_turningPIDController.setPositionPIDWrappingMinInput(ModuleConstants.kTurningEncoderPositionPIDMinInput);
-    m_turningPIDController.setPositionPIDWrappingMaxInput(ModuleConstants.kTurningEncoderPositionPIDMaxInput);
-
-    // Set the PID gains for the driving motor. Note these are example gains, and
-    // you
-    // may need to tune them for your own robot!
-    m_drivingPIDController.setP(ModuleConstants.kDrivingP);
-    m_drivingPIDController.setI(ModuleConstants.kDrivingI);
-    m_drivingPIDController.setD(ModuleConstants.kDrivingD);
-    m_drivingPIDController.setFF(ModuleConstants.kDrivingFF);
-    m_drivingPIDController.setOutputRange(ModuleConstants.kDrivingMinOutput,
-        ModuleConstants.kDrivingMaxOutput);
+    // controller to go through 0 to get to the setpoint i.e. going from 350
+    // degrees to 10 degrees will go through 0 rather than the other direction
+    // which is a longer route.
+    check.apply("PID wrapping", m_turningPIDController.getPositionPIDWrappingEnabled(), true,
+        () -> m_turningPIDController.setPositionPIDWrappingEnabled(true));
+    check.apply("PID wrapping min input", m_turningPIDController.getPositionPIDWrappingMinInput(),
+        ModuleConstants.kTurningEncoderPositionPIDMinInput, m_turningPIDController::setPositionPIDWrappingMinInput);
+    check.apply("PID wrapping max input", m_turningPIDController.getPositionPIDWrappingMaxInput(),
+        ModuleConstants.kTurningEncoderPositionPIDMaxInput, m_turningPIDController::setPositionPIDWrappingMaxInput);
 
-    // Set the PID gains for the turning motor. Note these are example gains, and
-    // you
-    // may need to tune them for your own robot!
-    m_turningPIDController.setP(ModuleConstants.kTurningP);
-    m_turningPIDController.setI(ModuleConstants.kTurningI);
-    m_turningPIDController.setD(ModuleConstants.kTurningD);
-    m_turningPIDController.setFF(ModuleConstants.kTurningFF);
-    m_turningPIDController.setOutputRange(ModuleConstants.kTurningMinOutput,
+    // Set the PID gains for the turning motor. Note these are example gains,
+    // and you may need to tune them for your own robot!
+    applyPID(check, m_turningPIDController, ModuleConstants.kTurningP, ModuleConstants.kTurningI,
+        ModuleConstants.kTurningD, ModuleConstants.kTurningFF, ModuleConstants.kTurningMinOutput,
         ModuleConstants.kTurningMaxOutput);
 
-    m_drivingSparkMax.setIdleMode(ModuleConstants.kDrivingMotorIdleMode);
-    m_turningSparkMax.setIdleMode(ModuleConstants.kTurningMotorIdleMode);
-    m_drivingSparkMax.setSmartCurrentLimit(ModuleConstants.kDrivingMotorCurrentLimit);
+    check.apply("idle mode", m_turningSparkMax.getIdleMode(), ModuleConstants.kTurningMotorIdleMode,
+        () -> m_turningSparkMax.setIdleMode(ModuleConstants.kTurningMotorIdleMode));
+
+    m_turningPIDController.setFeedbackDevice(m_turningEncoder);
     m_turningSparkMax.setSmartCurrentLimit(ModuleConstants.kTurningMotorCurrentLimit);
 
-    // Save the SPARK MAX configurations. If a SPARK MAX browns out during
-    // operation, it will maintain the above configurations.
-    m_drivingSparkMax.burnFlash();
-    m_turningSparkMax.burnFlash();
+    if (check.getRewritten() > 0) {
+      m_turningSparkMax.burnFlash();
+    }
 
-    m_chassisAngularOffset = chassisAngularOffset;
+    applyStatusFramePeriods(m_turningSparkMax, ModuleConstants.kTurningStatusFramePeriodsMs);
+    return check.getRewritten();
+  }
+
+  private static void applyPID(ParameterCheck check, SparkMaxPIDController controller, double p, double i,
+      double d, double ff, double minOutput, double maxOutput) {
+    check.apply("P", controller.getP(), p, controller::setP);
+    check.apply("I", controller.getI(), i, controller::setI);
+    check.apply("D", controller.getD(), d, controller::setD);
+    check.apply("FF", controller.getFF(), ff, controller::setFF);
+    if (differs(controller.getOutputMin(), minOutput) || differs(controller.getOutputMax(), maxOutput)) {
+      check.log("output range");
+      controller.setOutputRange(minOutput, maxOutput);
+    }
+  }
+
+  /**
+   * Writes one SPARK MAX's parameters that differ from ours, logs each of
+   * them and counts them.
+   */
+  private static final class ParameterCheck {
+    private final CANSparkMax m_sparkMax;
+    private int m_rewritten = 0;
+
+    ParameterCheck(CANSparkMax sparkMax) {
+      m_sparkMax = sparkMax;
+    }
+
+    void apply(String name, double actual, double desired, DoubleConsumer write) {
+      if (differs(actual, desired)) {
+        log(name + " " + actual + " -> " + desired);
+        write.accept(desired);
+      }
+    }
+
+    void apply(String name, Object actual, Object desired, Runnable write) {
+      if (!actual.equals(desired)) {
+        log(name + " " + actual + " -> " + desired);
+        write.run();
+      }
+    }
+
+    void log(String change) {
+      m_rewritten++;
+      ConsoleLog.log(kConfigLog, "SPARK MAX {}: rewriting {}", m_sparkMax.getDeviceId(), change);
+    }
+
+    int getRewritten() {
+      return m_rewritten;
+    }
+  }
+
+  /** The SPARK MAX stores parameters as floats, so compare at float precision. */
+  private static boolean differs(double actual, double desired) {
+    return Math.abs(actual - desired) > 1e-6 * Math.max(1, Math.abs(desired));
+  }
+
+  private void finishConfiguration() {
     m_desiredState.angle = new Rotation2d(m_turningEncoder.getPosition());
     m_drivingEncoder.setPosition(0);
+    refreshSensors();
+  }
+
+  /**
+   * Reads the driving position, driving velocity and turning position once and
+   * keeps them for the rest of the loop. Every getter except
+   * {@link #getDistanceMeters()} and {@link #getAngleRadians()} serves this
+   * snapshot, so call this once at the start of each loop.
+   */
+  public void refreshSensors() {
+    m_drivingPosition = readDrivingPosition();
+    m_drivingVelocity = readDrivingVelocity();
+    m_turningPosition = readTurningPosition();
+  }
+
+  /**
+   * Sets how often the driving SPARK MAX sends one of its periodic status
+   * frames. Slowing frames nobody reads frees up CAN bandwidth; the signal's
+   * getter just returns older data.
+   *
+   * @param frame    The status frame, see {@link PeriodicFrame} for what each
+   *                 one carries.
+   * @param periodMs Period in milliseconds.
+   */
+  public void setDrivingStatusFramePeriod(PeriodicFrame frame, int periodMs) {
+    m_drivingSparkMax.setPeriodicFramePeriod(frame, periodMs);
   }
 
   /**
-   * Returns the current state of the module.
+   * Sets how often the turning SPARK MAX sends one of its periodic status
+   * frames.
+   *
+   * @param frame    The status frame, see {@link PeriodicFrame} for what each
+   *                 one carries.
+   * @param periodMs Period in milliseconds.
+   */
+  public void setTurningStatusFramePeriod(PeriodicFrame frame, int periodMs) {
+    m_turningSparkMax.setPeriodicFramePeriod(frame, periodMs);
+  }
+
+  private static void applyStatusFramePeriods(CANSparkMax sparkMax, Map<PeriodicFrame, Integer> periodsMs) {
+    for (Map.Entry<PeriodicFrame, Integer> period : periodsMs.entrySet()) {
+      sparkMax.setPeriodicFramePeriod(period.getKey(), period.getValue());
+    }
+  }
+
+  /**
+   * Returns the state of the module as of the last {@link #refreshSensors()}.
    *
    * @return The current state of the module.
    */
   public SwerveModuleState getState() {
     // Apply chassis angular offset to the encoder position to get the position
     // relative to the chassis.
-    return new SwerveModuleState(m_drivingEncoder.getVelocity(),
-        new Rotation2d(m_turningEncoder.getPosition() - m_chassisAngularOffset));
+    return new SwerveModuleState(m_drivingVelocity,
+        new Rotation2d(m_turningPosition - m_chassisAngularOffset));
   }
 
   /**
-   * Returns the current position of the module.
+   * Returns the position of the module as of the last {@link #refreshSensors()}.
    *
    * @return The current position of the module.
    */
@@ -133,34 +354,181 @@ public class SwerveModule {
     // Apply chassis angular offset to the encoder position to get the position
     // relative to the chassis.
     return new SwerveModulePosition(
-        m_drivingEncoder.getPosition(),
-        new Rotation2d(m_turningEncoder.getPosition() - m_chassisAngularOffset));
+        m_drivingPosition,
+        new Rotation2d(m_turningPosition - m_chassisAngularOffset));
+  }
+
+  /**
+   * Fills the module's reusable position holder with the readings from the last
+   * {@link #refreshSensors()} and returns it. The returned object is owned by the module and is
+   * overwritten on the next call, so copy it if it needs to be kept.
+   *
+   * @return The current position of the module.
+   */
+  public SwerveModulePosition updatePosition() {
+    m_position.distanceMeters = m_drivingPosition;
+    m_position.angle = getChassisRelativeAngle(m_turningPosition);
+    return m_position;
+  }
+
+  /**
+   * Fills the module's reusable state holder with the readings from the last
+   * {@link #refreshSensors()} and returns it. The returned object is owned by the module and is
+   * overwritten on the next call, so copy it if it needs to be kept.
+   *
+   * @return The current state of the module.
+   */
+  public SwerveModuleState updateState() {
+    m_state.speedMetersPerSecond = m_drivingVelocity;
+    m_state.angle = getChassisRelativeAngle(m_turningPosition);
+    return m_state;
+  }
+
+  /**
+   * Returns the driven distance of the module straight from the encoder,
+   * bypassing the per-loop snapshot. Used by the odometry thread.
+   *
+   * @return The distance driven, in meters.
+   */
+  public double getDistanceMeters() {
+    return readDrivingPosition();
+  }
+
+  /**
+   * Returns the module angle relative to the chassis straight from the encoder,
+   * bypassing the per-loop snapshot. Used by the odometry thread.
+   *
+   * @return The module angle, in radians.
+   */
+  public double getAngleRadians() {
+    return readTurningPosition() - m_chassisAngularOffset;
+  }
+
+  /** Advances the simulated module. Does nothing on the robot. */
+  public void simulationUpdate(double dtSeconds) {
+    if (m_sim != null) {
+      m_sim.update(dtSeconds);
+    }
+  }
+
+  private double readDrivingPosition() {
+    return m_sim != null ? m_sim.getDrivePositionMeters() : m_drivingEncoder.getPosition();
+  }
+
+  private double readDrivingVelocity() {
+    return m_sim != null ? m_sim.getDriveVelocityMetersPerSecond() : m_drivingEncoder.getVelocity();
+  }
+
+  private double readTurningPosition() {
+    return m_sim != null ? m_sim.getTurnPositionRadians() : m_turningEncoder.getPosition();
   }
 
   /**
-   * Sets the desired state for the module.
+   * Rotation2d is immutable, so only build a new one when the turning encoder
+   * has actually moved since the last read.
+   */
+  private Rotation2d getChassisRelativeAngle(double turningPosition) {
+    if (turningPosition != m_lastTurningPosition) {
+      m_lastTurningPosition = turningPosition;
+      m_lastAngle = new Rotation2d(turningPosition - m_chassisAngularOffset);
+    }
+    return m_lastAngle;
+  }
+
+  /**
+   * Sets the desired state for the module. While the wheel is stopped the
+   * module keeps its current angle instead of turning in place.
    *
    * @param desiredState Desired state with speed and angle.
    */
   public void setDesiredState(SwerveModuleState desiredState) {
-    // Apply chassis angular offset to the desired state.
-    SwerveModuleState correctedDesiredState = new SwerveModuleState();
-    correctedDesiredState.speedMetersPerSecond = desiredState.speedMetersPerSecond;
-    correctedDesiredState.angle = desiredState.angle.plus(Rotation2d.fromRadians(m_chassisAngularOffset));
+    setDesiredState(desiredState, true);
+  }
 
-    // Optimize the reference state to avoid spinning further than 90 degrees.
-    SwerveModuleState optimizedDesiredState = SwerveModuleState.optimize(correctedDesiredState,
-        new Rotation2d(m_turningEncoder.getPosition()));
+  /**
+   * Sets the desired state for the module. Setpoints within
+   * {@link ModuleConstants#kSetpointSpeedTolerance} and
+   * {@link ModuleConstants#kSetpointAngleTolerance} of the last ones sent are
+   * not written again, apart from a resend every
+   * {@link ModuleConstants#kSetpointResendLoops} calls.
+   *
+   * @param desiredState         Desired state with speed and angle.
+   * @param holdAngleAtZeroSpeed Whether to ignore the requested angle while the
+   *                             requested speed is near zero. Pass false to
+   *                             turn a stopped wheel, e.g. for an X formation.
+   */
+  public void setDesiredState(SwerveModuleState desiredState, boolean holdAngleAtZeroSpeed) {
+    // Apply chassis angular offset to the desired state and optimize it to
+    // avoid spinning further than 90 degrees.
+    SwerveModuleState optimizedDesiredState = SwerveDriveMath.toModuleSetpoint(desiredState,
+        m_chassisAngularOffset, m_turningPosition);
+
+    double speed = optimizedDesiredState.speedMetersPerSecond;
+    double angle = optimizedDesiredState.angle.getRadians();
+    if (holdAngleAtZeroSpeed && Math.abs(speed) < ModuleConstants.kSetpointZeroSpeed && !Double.isNaN(m_sentAngle)) {
+      // Stay pointed where we are and only keep the part of the tiny speed that
+      // lies along that direction
+      speed *= Math.cos(angle - m_sentAngle);
+      angle = m_sentAngle;
+    }
 
-    // Command driving and turning SPARKS MAX towards their respective setpoints.
-    m_drivingPIDController.setReference(optimizedDesiredState.speedMetersPerSecond, CANSparkMax.ControlType.kVelocity);
-    m_turningPIDController.setReference(optimizedDesiredState.angle.getRadians(), CANSparkMax.ControlType.kPosition);
+    // Command driving and turning SPARKS MAX towards their respective setpoints,
+    // skipping frames that would repeat what the controller already has.
+    if (++m_drivingLoopsSinceSent >= ModuleConstants.kSetpointResendLoops || Double.isNaN(m_sentSpeed)
+        || Math.abs(speed - m_sentSpeed) > ModuleConstants.kSetpointSpeedTolerance) {
+      m_drivingPIDController.setReference(speed, CANSparkMax.ControlType.kVelocity);
+      m_sentSpeed = speed;
+      m_drivingLoopsSinceSent = 0;
+      m_setpointFramesSent++;
+    } else {
+      m_setpointFramesSuppressed++;
+    }
+    if (++m_turningLoopsSinceSent >= ModuleConstants.kSetpointResendLoops || Double.isNaN(m_sentAngle)
+        || Math.abs(MathUtil.angleModulus(angle - m_sentAngle)) > ModuleConstants.kSetpointAngleTolerance) {
+      m_turningPIDController.setReference(angle, CANSparkMax.ControlType.kPosition);
+      m_sentAngle = angle;
+      m_turningLoopsSinceSent = 0;
+      m_setpointFramesSent++;
+    } else {
+      m_setpointFramesSuppressed++;
+    }
+    if (m_sim != null) {
+      m_sim.setSetpoints(m_sentSpeed, m_sentAngle);
+    }
 
     m_desiredState = desiredState;
   }
 
+  /** @return The state last passed to {@link #setDesiredState}, chassis relative. */
+  public SwerveModuleState getDesiredState() {
+    return m_desiredState;
+  }
+
+  /**
+   * Makes the next {@link #setDesiredState} send both setpoints regardless. The
+   * last sent angle is kept, so a stopped wheel still holds where it points.
+   */
+  public void invalidateSetpoints() {
+    m_drivingLoopsSinceSent = ModuleConstants.kSetpointResendLoops;
+    m_turningLoopsSinceSent = ModuleConstants.kSetpointResendLoops;
+  }
+
+  /** @return Number of setReference frames sent to the SPARKS MAX. */
+  public long getSetpointFramesSent() {
+    return m_setpointFramesSent;
+  }
+
+  /** @return Number of setReference frames skipped as unchanged. */
+  public long getSetpointFramesSuppressed() {
+    return m_setpointFramesSuppressed;
+  }
+
   /** Zeroes all the SwerveModule encoders. */
   public void resetEncoders() {
     m_drivingEncoder.setPosition(0);
+    if (m_sim != null) {
+      m_sim.resetDrivePosition();
+    }
+    m_drivingPosition = 0;
   }
 }
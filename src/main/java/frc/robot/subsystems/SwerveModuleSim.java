@@ -0,0 +1,69 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import frc.robot.Constants.ModuleConstants;
+import frc.utils.SwerveUtils;
+
+/**
+ * Physics stand-in for one MAXSwerve module, used in place of the SPARK MAX
+ * encoders when running in simulation.
+ * <p>
+ * The on-controller velocity and position loops are modeled as first-order
+ * responses towards their setpoints: the wheel speed approaches the commanded
+ * speed with the driving time constant, and the module angle takes the short
+ * way round towards the commanded angle, no faster than the turning motor's
+ * top speed.
+ */
+public class SwerveModuleSim {
+
+  private double m_driveSetpoint = 0;
+  private double m_turnSetpoint = 0;
+
+  private double m_driveVelocity = 0;
+  private double m_drivePosition = 0;
+  private double m_turnPosition = 0;
+
+  /**
+   * Sets what the module's controllers are chasing.
+   *
+   * @param velocityMetersPerSecond Wheel speed setpoint.
+   * @param angleRadians            Turning encoder setpoint.
+   */
+  public void setSetpoints(double velocityMetersPerSecond, double angleRadians) {
+    m_driveSetpoint = velocityMetersPerSecond;
+    m_turnSetpoint = angleRadians;
+  }
+
+  /** Advances the model by {@code dtSeconds}. */
+  public void update(double dtSeconds) {
+    double driveAlpha = 1 - Math.exp(-dtSeconds / ModuleConstants.kSimDrivingTimeConstant);
+    m_driveVelocity += (m_driveSetpoint - m_driveVelocity) * driveAlpha;
+    m_drivePosition += m_driveVelocity * dtSeconds;
+
+    double turnAlpha = 1 - Math.exp(-dtSeconds / ModuleConstants.kSimTurningTimeConstant);
+    double maxStep = ModuleConstants.kSimTurningMaxRate * dtSeconds;
+    double step = MathUtil.clamp(MathUtil.angleModulus(m_turnSetpoint - m_turnPosition) * turnAlpha,
+        -maxStep, maxStep);
+    m_turnPosition = SwerveUtils.WrapAngle(m_turnPosition + step);
+  }
+
+  /** @return Simulated driving encoder position, in meters. */
+  public double getDrivePositionMeters() {
+    return m_drivePosition;
+  }
+
+  /** @return Simulated driving encoder velocity, in meters per second. */
+  public double getDriveVelocityMetersPerSecond() {
+    return m_driveVelocity;
+  }
+
+  /** @return Simulated turning encoder position, in radians from 0 to 2*PI. */
+  public double getTurnPositionRadians() {
+    return m_turnPosition;
+  }
+
+  /** Zeroes the simulated driving encoder. */
+  public void resetDrivePosition() {
+    m_drivePosition = 0;
+  }
+}
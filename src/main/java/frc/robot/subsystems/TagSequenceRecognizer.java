@@ -0,0 +1,114 @@
+package frc.robot.subsystems;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import frc.utils.ConsoleLog;
+
+/**
+ * State machine for the tag-scanning protocol: showing tag {@link #START_TAG}
+ * starts a new sequence, tag {@link #ARM_TAG} arms it so the next other tag
+ * seen is recorded, and tag {@link #END_TAG} finishes it.
+ * <p>
+ * Every frame is fed through {@link #accept(long[])}, so tags shown between
+ * robot loops are not missed. A tag stays in view for many frames, so the
+ * protocol tags only act on the frame they come into view, and once armed
+ * the first other tag listed in a later frame is recorded, once. Holding the
+ * arm tag next to another one records that tag a single time, whatever order
+ * the vision server lists them in.
+ * <p>
+ * Plain Java with primitive storage, so frame streams can be replayed through
+ * it off-robot as fast as they can be generated.
+ */
+public class TagSequenceRecognizer {
+
+  public static final long START_TAG = 5;
+  public static final long ARM_TAG = 11;
+  public static final long END_TAG = 35;
+
+  public static final int MAX_SEQUENCE_LENGTH = 32;
+
+  private static final ConsoleLog.Site kLog = ConsoleLog.site("TagSequenceRecognizer", 10);
+
+  private final long[] m_sequence = new long[MAX_SEQUENCE_LENGTH];
+  private int m_length = 0;
+  private boolean m_started = false;
+  private boolean m_armed = false;
+
+  // Which protocol tags were in the previous frame
+  private boolean m_startInView = false;
+  private boolean m_armInView = false;
+  private boolean m_endInView = false;
+
+  private final Consumer<long[]> m_onSequence;
+
+  /**
+   * @param onSequence Called with a copy of each completed sequence.
+   */
+  public TagSequenceRecognizer(Consumer<long[]> onSequence) {
+    m_onSequence = onSequence;
+  }
+
+  /** Runs one vision frame through the state machine. */
+  public void accept(long[] ids) {
+    boolean start = false;
+    boolean arm = false;
+    boolean end = false;
+    boolean hasTag = false;
+    long tag = -1;
+    for (long id : ids) {
+      if (id == START_TAG) {
+        start = true;
+      } else if (id == ARM_TAG) {
+        arm = true;
+      } else if (id == END_TAG) {
+        end = true;
+      } else if (!hasTag) {
+        hasTag = true;
+        tag = id;
+      }
+    }
+    boolean startAppeared = start && !m_startInView;
+    boolean armAppeared = arm && !m_armInView;
+    boolean endAppeared = end && !m_endInView;
+    m_startInView = start;
+    m_armInView = arm;
+    m_endInView = end;
+
+    if (startAppeared) {
+      m_started = true;
+      m_armed = false;
+      m_length = 0;
+    } else if (m_armed && m_started && hasTag && m_length < MAX_SEQUENCE_LENGTH) {
+      // Armed by an earlier frame, so this tag was shown after the arm tag
+      m_sequence[m_length++] = tag;
+      m_armed = false;
+      ConsoleLog.log(kLog, "TAG SCANNED: {}", tag);
+    }
+    if (armAppeared) {
+      m_armed = true;
+    }
+    if (endAppeared) {
+      if (m_started && m_length > 0) {
+        m_onSequence.accept(Arrays.copyOf(m_sequence, m_length));
+      }
+      m_started = false;
+      m_armed = false;
+    }
+  }
+
+  /** @return Whether a sequence has been started and not yet ended. */
+  public boolean isStarted() {
+    return m_started;
+  }
+
+  /** @return Whether the next tag seen will be recorded. */
+  public boolean isArmed() {
+    return m_armed;
+  }
+
+  /** @return A copy of the tags recorded so far in the current sequence. */
+  public long[] getSequence() {
+    return Arrays.copyOf(m_sequence, m_length);
+  }
+}
@@ -0,0 +1,100 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * One immutable snapshot of the tag IDs the vision server reported, taken
+ * once per loop by {@link VisionSubsystem}. Everyone reading tags during that
+ * loop sees the same frame, and visibility lookups of IDs up to
+ * {@link #MAX_BITMAP_ID} are a single bit test. The IDs come off the network,
+ * so anything larger (or garbage) is only kept in the ID list and found by a
+ * scan, and never sizes an allocation.
+ */
+public final class VisionFrame {
+
+  /** Largest tag ID tracked in the visibility bitmap; the field's go up to 16. */
+  public static final long MAX_BITMAP_ID = 63;
+
+  /** The frame used before the vision server has published anything. */
+  public static final VisionFrame EMPTY = new VisionFrame(new long[0], 0, 0);
+
+  private final long[] m_ids;
+  private final long m_visible;
+  private final boolean m_hasLargeIds;
+  private final long m_timestampMicros;
+  private final long m_frameNumber;
+
+  /**
+   * @param ids             Tag IDs in the order the vision server sent them.
+   * @param timestampMicros NetworkTables arrival time, in microseconds.
+   * @param frameNumber     Count of frames received so far.
+   */
+  public VisionFrame(long[] ids, long timestampMicros, long frameNumber) {
+    m_ids = ids;
+    m_timestampMicros = timestampMicros;
+    m_frameNumber = frameNumber;
+
+    long visible = 0;
+    boolean hasLargeIds = false;
+    for (long id : ids) {
+      if (id >= 0 && id <= MAX_BITMAP_ID) {
+        visible |= 1L << id;
+      } else if (id > MAX_BITMAP_ID) {
+        hasLargeIds = true;
+      }
+    }
+    m_visible = visible;
+    m_hasLargeIds = hasLargeIds;
+  }
+
+  /** @return Whether the tag was seen in this frame. */
+  public boolean isVisible(long tagID) {
+    if (tagID < 0) {
+      return false;
+    }
+    if (tagID <= MAX_BITMAP_ID) {
+      return (m_visible & (1L << tagID)) != 0;
+    }
+    if (m_hasLargeIds) {
+      for (long id : m_ids) {
+        if (id == tagID) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** @return The first tag ID the vision server listed, or -1 if none. */
+  public long firstId() {
+    return m_ids.length == 0 ? -1 : m_ids[0];
+  }
+
+  /** @return Number of tags in this frame. */
+  public int getTagCount() {
+    return m_ids.length;
+  }
+
+  /** @return The tag ID at {@code index}, in vision server order. */
+  public long getId(int index) {
+    return m_ids[index];
+  }
+
+  /** @return How many frames had been received when this one arrived. */
+  public long getFrameNumber() {
+    return m_frameNumber;
+  }
+
+  /** @return NetworkTables arrival time of this frame, in seconds. */
+  public double getTimestampSeconds() {
+    return m_timestampMicros * 1e-6;
+  }
+
+  /**
+   * @return Seconds since this frame arrived. Grows without bound if the vision
+   *         server stops publishing, so it doubles as a staleness check.
+   */
+  public double getAgeSeconds() {
+    return (WPIUtilJNI.now() - m_timestampMicros) * 1e-6;
+  }
+}
@@ -4,25 +4,57 @@
 
 package frc.robot.subsystems;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
 import edu.wpi.first.networktables.DoubleTopic;
 import edu.wpi.first.networktables.FloatArrayTopic;
 import edu.wpi.first.networktables.IntegerArraySubscriber;
 import edu.wpi.first.networktables.IntegerArrayTopic;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import edu.wpi.first.networktables.TimestampedIntegerArray;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.Constants.VisionConstants;
+import frc.utils.ConsoleLog;
+import frc.utils.LoopProfiler;
 
 public class VisionSubsystem extends SubsystemBase {
+  private static final ConsoleLog.Site kSequenceLog = ConsoleLog.site("VisionSubsystem", 5);
+
+  /** Receives vision robot poses, see {@link VisionConstants#kRobotPoseTopic}. */
+  @FunctionalInterface
+  public interface PoseConsumer {
+    /**
+     * @param pose             Robot pose on the field.
+     * @param timestampSeconds FPGA time the camera frame was captured.
+     */
+    void accept(Pose2d pose, double timestampSeconds);
+  }
+
   public NetworkTableInstance instance;
   public IntegerArrayTopic topic1;
   public final IntegerArraySubscriber idSub;
-  private boolean startAdd;
-  private ArrayList<Long> idList = new ArrayList<Long>();
-  private long lastTagSeen;
-  private boolean canContinue;
+  public final DoubleArraySubscriber poseSub;
+  private PoseConsumer poseConsumer;
+  // Fed from the NetworkTables listener thread with every published frame
+  private final TagSequenceRecognizer recognizer;
+  private final Queue<long[]> recognizedSequences = new ConcurrentLinkedQueue<>();
+  private long[] sequenceThisLoop = null;
+  private long[] lastSequence = new long[0];
+  private VisionFrame frame = VisionFrame.EMPTY;
+  private long frameCount = 0;
+  private final LoopProfiler.Section m_periodicProfile = LoopProfiler.getInstance().section("VisionSubsystem.periodic");
 
   // public NetworkTable table;
   /** Creates a new VisionSubsystem. */
@@ -30,64 +62,117 @@ public class VisionSubsystem extends SubsystemBase {
     instance = NetworkTableInstance.getDefault();
     topic1 = instance.getIntegerArrayTopic("/Vision Server/Pipelines/driverCam/ids");
     idSub = topic1.subscribe(new long[0]);
-    startAdd = false;
-    lastTagSeen = 0;
-    canContinue = false;
+    // Keep every pose update, not just the latest, so none are lost between loops
+    poseSub = instance.getDoubleArrayTopic(VisionConstants.kRobotPoseTopic)
+        .subscribe(new double[0], PubSubOption.keepDuplicates(true), PubSubOption.pollStorage(10));
+
+    // Run the tag-scanning protocol on every frame as it arrives rather than on
+    // whatever frame happens to be there when the loop polls
+    recognizer = new TagSequenceRecognizer(recognizedSequences::add);
+    instance.addListener(idSub, EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+        event -> recognizer.accept(event.valueData.value.getIntegerArray()));
   }
 
   @Override
   public void periodic() {
+    m_periodicProfile.begin();
     // This method will be called once per scheduler run
-    long[] ids = idSub.get();
-    // if (ids.length != 0)
-    setTagList();
-    System.out.println(startAdd + "," + canContinue + "," + idList);
+    updateFrame();
+    updateSequences();
+    forwardPoseMeasurements();
+    m_periodicProfile.end();
+  }
+
+  /**
+   * Sets who receives the vision robot pose measurements, along with the FPGA
+   * time (in seconds) the camera frame was captured.
+   */
+  public void setPoseConsumer(PoseConsumer consumer) {
+    poseConsumer = consumer;
+  }
+
+  /**
+   * Hands every pose published since the last loop to the pose consumer. The
+   * capture time is the NetworkTables arrival time (which uses the FPGA clock)
+   * minus the pipeline latency reported by the vision server.
+   */
+  private void forwardPoseMeasurements() {
+    TimestampedDoubleArray[] updates = poseSub.readQueue();
+    if (poseConsumer == null) {
+      return;
+    }
+    for (TimestampedDoubleArray update : updates) {
+      double[] v = update.value;
+      if (v.length < 4) {
+        continue;
+      }
+      double captureTime = update.timestamp * 1e-6 - v[3] * 1e-3;
+      poseConsumer.accept(new Pose2d(v[0], v[1], Rotation2d.fromDegrees(v[2])), captureTime);
+    }
+  }
+
+  /**
+   * Takes this loop's snapshot of the tag IDs. If nothing new was published the
+   * previous frame is kept, and its age shows how stale it is.
+   */
+  private void updateFrame() {
+    TimestampedIntegerArray[] updates = idSub.readQueue();
+    if (updates.length > 0) {
+      TimestampedIntegerArray latest = updates[updates.length - 1];
+      frameCount += updates.length;
+      frame = new VisionFrame(latest.value, latest.timestamp, frameCount);
+    }
+  }
+
+  /**
+   * @return The tag snapshot taken at the start of this loop.
+   */
+  public VisionFrame getFrame() {
+    return frame;
   }
 
   // Search for a tag ID in the tags list
   public boolean isTagVisible(int tagID) {
-    long[] ids = idSub.get();
-    if (ids.length == 0) return false;
-    if (ids.length == 1 && ids[0] == tagID) return true;
-    for (int i=0;i<ids.length;i++) {
-      if (ids[i]==tagID)
-        return true;
-    }
-    return false;
+    return frame.isVisible(tagID);
   }
 
   public long whichTagVisible() {
-    long[] ids = idSub.get();
-    if (ids.length == 0)
-    {
-      return -1;
-    }
-    return ids[0];
+    return frame.firstId();
   }
   
-  public void setTagList() {
-    long id = whichTagVisible();
-    if (id == -1) {
-      return;
-    }
-    if(id == 5) {
-      startAdd = true;
-      idList.clear();
-    }
-    if (id == 35) {
-      startAdd = false;
-      canContinue = false;
-    }
-    if(id == 11) {
-      canContinue = true;
-    }
-    if(startAdd && canContinue && id != 11 && id != 5) {
-      idList.add(id);
-      System.out.println("TAG SCANNED: " + id);
-      canContinue = false;
+  /**
+   * Hands out at most one recognized sequence per loop, so every binding sees
+   * it for exactly one loop.
+   */
+  private void updateSequences() {
+    sequenceThisLoop = recognizedSequences.poll();
+    if (sequenceThisLoop != null) {
+      lastSequence = sequenceThisLoop;
+      ConsoleLog.log(kSequenceLog, "TAG SEQUENCE: {}", sequenceThisLoop);
     }
   }
 
-  // public void onTagVisible(int tagID, Command cmd) { }
+  /**
+   * @return A trigger that is true for one loop each time a tag sequence is
+   *         completed.
+   */
+  public Trigger sequenceRecognized() {
+    return new Trigger(() -> sequenceThisLoop != null);
+  }
+
+  /**
+   * @return A trigger that is true for one loop each time exactly this tag
+   *         sequence is completed.
+   */
+  public Trigger sequenceRecognized(long... sequence) {
+    return new Trigger(() -> sequenceThisLoop != null && Arrays.equals(sequenceThisLoop, sequence));
+  }
+
+  /**
+   * @return The most recently completed tag sequence, empty if none yet.
+   */
+  public long[] getLastSequence() {
+    return lastSequence.clone();
+  }
 
 }
@@ -0,0 +1,88 @@
+package frc.utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes the current thread allocates between
+ * {@link #start()} and {@link #stop()}. Backed by the HotSpot per-thread
+ * allocation counter, so it works headless (desktop JVM or roboRIO) without a
+ * profiler attached.
+ * <p>
+ * If the JVM does not support per-thread allocation accounting every
+ * measurement reads as {@code -1}.
+ */
+public class AllocationCounter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+    private long startBytes;
+    private long lastBytes = -1;
+    private long totalBytes;
+    private long samples;
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether allocation accounting is available on this JVM.
+     */
+    public static boolean isSupported() {
+        return THREAD_BEAN != null;
+    }
+
+    /**
+     * @return The total number of bytes allocated so far by the calling thread,
+     *         or -1 if unsupported.
+     */
+    public static long currentThreadAllocatedBytes() {
+        return THREAD_BEAN == null ? -1 : THREAD_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    /** Marks the beginning of a measured section. */
+    public void start() {
+        startBytes = currentThreadAllocatedBytes();
+    }
+
+    /**
+     * Marks the end of a measured section started on the same thread.
+     *
+     * @return The number of bytes allocated since {@link #start()}, or -1 if
+     *         unsupported.
+     */
+    public long stop() {
+        if (THREAD_BEAN == null) {
+            return -1;
+        }
+        lastBytes = currentThreadAllocatedBytes() - startBytes;
+        totalBytes += lastBytes;
+        samples++;
+        return lastBytes;
+    }
+
+    /**
+     * @return Bytes allocated during the most recent measured section.
+     */
+    public long getLastBytes() {
+        return lastBytes;
+    }
+
+    /**
+     * @return Average bytes allocated per measured section since the last reset.
+     */
+    public double getAverageBytes() {
+        return samples == 0 ? 0 : (double) totalBytes / samples;
+    }
+
+    /** Clears the accumulated totals. */
+    public void reset() {
+        lastBytes = -1;
+        totalBytes = 0;
+        samples = 0;
+    }
+}
@@ -0,0 +1,221 @@
+package frc.utils;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Button bindings for every controller, evaluated together. Once per loop
+ * {@link #poll()} reads each registered controller's buttons with one driver
+ * station call and packs them into a single {@code long}, 16 bits per
+ * controller. The bits that changed since the last loop are found with an
+ * XOR, and a binding is only looked at if one of its buttons is among them
+ * (or it is waiting out a debounce), so a loop where nothing was pressed
+ * costs one comparison no matter how many bindings there are.
+ * <p>
+ * A binding's mask can hold several buttons, even on different controllers,
+ * making it a chord: it is active while all of them are held. A debounced
+ * binding only changes state once its chord has been steady for the debounce
+ * time, in either direction.
+ * <p>
+ * Bind with {@link #onTrue}, {@link #whileTrue} and friends using masks from
+ * {@link #button(int, int)}, and have the scheduler poll the engine, e.g.
+ * {@code scheduler.getDefaultButtonLoop().bind(engine::poll)}.
+ */
+public class ButtonEngine {
+
+    public static final int MAX_CONTROLLERS = 4;
+    public static final int MAX_BUTTONS = 16;
+
+    private final int[] ports = new int[MAX_CONTROLLERS];
+    private int controllerCount = 0;
+
+    private long[] masks = new long[16];
+    private double[] debounceSeconds = new double[16];
+    private boolean[] startOnRise = new boolean[16];
+    private Runnable[] starts = new Runnable[16];
+    private Runnable[] stops = new Runnable[16];
+    private boolean[] active = new boolean[16];
+    private boolean[] pending = new boolean[16];
+    private double[] changedAt = new double[16];
+    private int bindingCount = 0;
+    private int pendingCount = 0;
+
+    private long state = 0;
+
+    /**
+     * Registers a controller to be sampled.
+     *
+     * @param port Driver station port.
+     * @return The controller's slot, for {@link #button(int, int)}.
+     */
+    public int addController(int port) {
+        if (controllerCount == MAX_CONTROLLERS) {
+            throw new IllegalStateException("At most " + MAX_CONTROLLERS + " controllers");
+        }
+        ports[controllerCount] = port;
+        return controllerCount++;
+    }
+
+    /**
+     * @param controller Slot from {@link #addController(int)}.
+     * @param button     Button number, from 1 like the driver station.
+     * @return The bit for the button, to bind on its own or OR into a chord.
+     */
+    public static long button(int controller, int button) {
+        if (controller < 0 || controller >= MAX_CONTROLLERS || button < 1 || button > MAX_BUTTONS) {
+            throw new IllegalArgumentException("No button " + button + " on controller " + controller);
+        }
+        return 1L << (controller * MAX_BUTTONS + button - 1);
+    }
+
+    /** Starts the command when the chord becomes held. */
+    public void onTrue(long mask, Command command) {
+        bind(mask, 0, true, command::schedule, null);
+    }
+
+    /** Starts the command when the chord is released. */
+    public void onFalse(long mask, Command command) {
+        bind(mask, 0, false, command::schedule, null);
+    }
+
+    /** Runs the command while the chord is held. */
+    public void whileTrue(long mask, Command command) {
+        bind(mask, 0, true, command::schedule, command::cancel);
+    }
+
+    /** Runs the command from when the chord is released until it is held again. */
+    public void whileFalse(long mask, Command command) {
+        bind(mask, 0, false, command::schedule, command::cancel);
+    }
+
+    /** Starts the command when the chord becomes held, or cancels it if it is running. */
+    public void toggleOnTrue(long mask, Command command) {
+        bind(mask, 0, true, () -> {
+            if (command.isScheduled()) {
+                command.cancel();
+            } else {
+                command.schedule();
+            }
+        }, null);
+    }
+
+    /**
+     * Adds a binding.
+     *
+     * @param mask            Buttons that must all be held for it to be active.
+     * @param debounceSeconds How long the chord must be steady before the
+     *                        binding follows it, or 0.
+     * @param startOnRise     Whether {@code start} runs when the binding becomes
+     *                        active (and {@code stop} when it becomes inactive),
+     *                        or the other way round.
+     * @param start           Run on the starting edge.
+     * @param stop            Run on the opposite edge, or null.
+     * @return The binding's index.
+     */
+    public int bind(long mask, double debounceSeconds, boolean startOnRise, Runnable start, Runnable stop) {
+        if (mask == 0) {
+            throw new IllegalArgumentException("A binding needs at least one button");
+        }
+        if (bindingCount == masks.length) {
+            int size = bindingCount * 2;
+            masks = Arrays.copyOf(masks, size);
+            this.debounceSeconds = Arrays.copyOf(this.debounceSeconds, size);
+            this.startOnRise = Arrays.copyOf(this.startOnRise, size);
+            starts = Arrays.copyOf(starts, size);
+            stops = Arrays.copyOf(stops, size);
+            active = Arrays.copyOf(active, size);
+            pending = Arrays.copyOf(pending, size);
+            changedAt = Arrays.copyOf(changedAt, size);
+        }
+        int i = bindingCount++;
+        masks[i] = mask;
+        this.debounceSeconds[i] = debounceSeconds;
+        this.startOnRise[i] = startOnRise;
+        starts[i] = start;
+        stops[i] = stop;
+        // Like a WPILib trigger, start from whatever is held right now
+        active[i] = (state & mask) == mask;
+        return i;
+    }
+
+    /** Samples every controller and fires the bindings whose state changed. */
+    public void poll() {
+        long sampled = 0;
+        for (int slot = 0; slot < controllerCount; slot++) {
+            long buttons = DriverStation.getStickButtons(ports[slot]) & ((1L << MAX_BUTTONS) - 1);
+            sampled |= buttons << (slot * MAX_BUTTONS);
+        }
+        poll(sampled, Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Fires the bindings for a new button state.
+     *
+     * @param buttons    Every button, laid out like {@link #button(int, int)}.
+     * @param nowSeconds The current time, for debouncing.
+     */
+    public void poll(long buttons, double nowSeconds) {
+        long changed = buttons ^ state;
+        state = buttons;
+        if (changed == 0 && pendingCount == 0) {
+            return;
+        }
+        for (int i = 0; i < bindingCount; i++) {
+            long mask = masks[i];
+            if ((changed & mask) == 0 && !pending[i]) {
+                continue;
+            }
+            boolean held = (buttons & mask) == mask;
+            double debounce = debounceSeconds[i];
+            if (debounce > 0) {
+                if (held == active[i]) {
+                    // Bounced back before the debounce ran out
+                    setPending(i, false);
+                    continue;
+                }
+                if (!pending[i] || (changed & mask) != 0) {
+                    // Start (or restart) waiting for the chord to settle
+                    changedAt[i] = nowSeconds;
+                    setPending(i, true);
+                    continue;
+                }
+                if (nowSeconds - changedAt[i] < debounce) {
+                    continue;
+                }
+                setPending(i, false);
+            } else if (held == active[i]) {
+                // A button outside the chord, or the chord is still incomplete
+                continue;
+            }
+            active[i] = held;
+            Runnable action = held == startOnRise[i] ? starts[i] : stops[i];
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+
+    private void setPending(int i, boolean isPending) {
+        if (pending[i] != isPending) {
+            pending[i] = isPending;
+            pendingCount += isPending ? 1 : -1;
+        }
+    }
+
+    /** @return Whether every button in the mask was held at the last poll. */
+    public boolean isHeld(long mask) {
+        return (state & mask) == mask;
+    }
+
+    /** @return Whether the binding is active, after debouncing. */
+    public boolean isActive(int binding) {
+        return active[binding];
+    }
+
+    public int getBindingCount() {
+        return bindingCount;
+    }
+}
@@ -0,0 +1,295 @@
+package frc.utils;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.StringLogEntry;
+
+/**
+ * Console logging that keeps string building and stdout off the robot loop.
+ * <p>
+ * A call only drops the format string and up to two arguments into a slot of
+ * a lock-free ring buffer; a low-priority daemon thread formats the messages,
+ * prints them, and also appends them to the {@code messages} entry of the
+ * {@link DataRecorder} log when recording. If the ring is full the message is
+ * dropped and counted rather than blocking the caller.
+ * <p>
+ * Every call site owns a {@link Site} with its own rate limit. Messages over
+ * the limit are counted and reported with the site's next message that gets
+ * through.
+ * Formats use {@code {}} placeholders; doubles print with two decimals and
+ * {@code long[]} arguments print like {@link Arrays#toString(long[])}.
+ * Primitive arguments are stored unboxed, so logging allocates nothing.
+ */
+public final class ConsoleLog {
+
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static final int NONE = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int OBJECT = 3;
+
+    /** A logging call site: a name for reports plus a token-bucket rate limit. */
+    public static final class Site {
+        private final String name;
+        private final double maxPerSecond;
+        private final double burst;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+        private final AtomicLong suppressed = new AtomicLong();
+
+        private Site(String name, double maxPerSecond, double burst) {
+            this.name = name;
+            this.maxPerSecond = maxPerSecond;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        /** Each site is meant to be used from one thread. */
+        private boolean tryAcquire() {
+            if (maxPerSecond <= 0) {
+                return true;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * 1e-9 * maxPerSecond);
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            suppressed.incrementAndGet();
+            return false;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** @return Messages not yet reported as suppressed. */
+        public long getSuppressed() {
+            return suppressed.get();
+        }
+    }
+
+    private static final class Slot {
+        // Sequence number, Vyukov style: equals the ring position when the slot
+        // is free for that position, position + 1 once it holds a message
+        volatile long sequence;
+        long suppressedBefore;
+        String format;
+        int kinds;
+        long long0;
+        long long1;
+        double double0;
+        double double1;
+        Object object0;
+        Object object1;
+    }
+
+    private static final Slot[] slots = new Slot[CAPACITY];
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile long head = 0;
+    private static volatile PrintStream output = System.out;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+        Thread drainer = new Thread(ConsoleLog::drainLoop, "ConsoleLog");
+        drainer.setDaemon(true);
+        drainer.setPriority(Thread.MIN_PRIORITY);
+        drainer.start();
+    }
+
+    private ConsoleLog() {
+    }
+
+    /**
+     * @param name         Identifies the call site.
+     * @param maxPerSecond Sustained message rate allowed, or 0 for no limit.
+     */
+    public static Site site(String name, double maxPerSecond) {
+        return new Site(name, maxPerSecond, Math.max(1, maxPerSecond));
+    }
+
+    /** Redirects the printed output, e.g. away from stdout in benchmarks. */
+    public static void setOutput(PrintStream stream) {
+        output = stream;
+    }
+
+    /** @return Messages thrown away because the ring was full. */
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    public static void log(Site site, String message) {
+        if (site.tryAcquire()) {
+            enqueue(site, message, NONE, 0, 0, 0, 0, null, null);
+        }
+    }
+
+    public static void log(Site site, String format, long arg) {
+        if (site.tryAcquire()) {
+            enqueue(site, format, LONG, arg, 0, 0, 0, null, null);
+        }
+    }
+
+    public static void log(Site site, String format, long arg0, long arg1) {
+        if (site.tryAcquire()) {
+            enqueue(site, format, LONG | LONG << 2, arg0, arg1, 0, 0, null, null);
+        }
+    }
+
+    public static void log(Site site, String format, double arg) {
+        if (site.tryAcquire()) {
+            enqueue(site, format, DOUBLE, 0, 0, arg, 0, null, null);
+        }
+    }
+
+    public static void log(Site site, String format, long arg0, double arg1) {
+        if (site.tryAcquire()) {
+            enqueue(site, format, LONG | DOUBLE << 2, arg0, 0, 0, arg1, null, null);
+        }
+    }
+
+    /** Object arguments are formatted later, so they must not be changed afterwards. */
+    public static void log(Site site, String format, Object arg) {
+        if (site.tryAcquire()) {
+            enqueue(site, format, OBJECT, 0, 0, 0, 0, arg, null);
+        }
+    }
+
+    /** Object arguments are formatted later, so they must not be changed afterwards. */
+    public static void log(Site site, String format, Object arg0, double arg1) {
+        if (site.tryAcquire()) {
+            enqueue(site, format, OBJECT | DOUBLE << 2, 0, 0, 0, arg1, arg0, null);
+        }
+    }
+
+    /** Object arguments are formatted later, so they must not be changed afterwards. */
+    public static void log(Site site, String format, Object arg0, Object arg1) {
+        if (site.tryAcquire()) {
+            enqueue(site, format, OBJECT | OBJECT << 2, 0, 0, 0, 0, arg0, arg1);
+        }
+    }
+
+    /**
+     * Waits until everything logged so far has been printed, for harnesses that
+     * exit right after logging. Gives up after {@code timeoutMillis}.
+     */
+    public static void flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (head < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static void enqueue(Site site, String format, int kinds, long long0, long long1, double double0,
+            double double1, Object object0, Object object1) {
+        while (true) {
+            long position = tail.get();
+            Slot slot = slots[(int) (position & MASK)];
+            long sequence = slot.sequence;
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.suppressedBefore = site.suppressed.getAndSet(0);
+                    slot.format = format;
+                    slot.kinds = kinds;
+                    slot.long0 = long0;
+                    slot.long1 = long1;
+                    slot.double0 = double0;
+                    slot.double1 = double1;
+                    slot.object0 = object0;
+                    slot.object1 = object1;
+                    // Volatile write publishes the fields above to the drainer
+                    slot.sequence = position + 1;
+                    return;
+                }
+            } else if (sequence < position) {
+                // The drainer has not freed this slot yet: the ring is full
+                dropped.incrementAndGet();
+                return;
+            }
+            // Another producer claimed this position first, try the next one
+        }
+    }
+
+    private static void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        StringLogEntry messages = null;
+        DataLog messagesLog = null;
+        long reportedDropped = 0;
+        while (true) {
+            long position = head;
+            Slot slot = slots[(int) (position & MASK)];
+            if (slot.sequence != position + 1) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            line.setLength(0);
+            format(line, slot);
+            if (slot.suppressedBefore > 0) {
+                line.append(" [+").append(slot.suppressedBefore).append(" suppressed]");
+            }
+            long droppedNow = dropped.get();
+            if (droppedNow != reportedDropped) {
+                line.append(" [").append(droppedNow - reportedDropped).append(" dropped, log full]");
+                reportedDropped = droppedNow;
+            }
+
+            // Free the slot for the position one lap ahead
+            slot.object0 = null;
+            slot.object1 = null;
+            slot.sequence = position + CAPACITY;
+            head = position + 1;
+
+            String text = line.toString();
+            output.println(text);
+            DataLog log = DataRecorder.getInstance().getLog();
+            if (log != null) {
+                if (log != messagesLog) {
+                    messagesLog = log;
+                    messages = new StringLogEntry(log, "messages");
+                }
+                messages.append(text);
+            }
+        }
+    }
+
+    private static void format(StringBuilder line, Slot slot) {
+        String format = slot.format;
+        int start = 0;
+        for (int arg = 0; arg < 2; arg++) {
+            int kind = (slot.kinds >> (arg * 2)) & 3;
+            if (kind == NONE) {
+                break;
+            }
+            int placeholder = format.indexOf("{}", start);
+            if (placeholder < 0) {
+                break;
+            }
+            line.append(format, start, placeholder);
+            start = placeholder + 2;
+            if (kind == LONG) {
+                line.append(arg == 0 ? slot.long0 : slot.long1);
+            } else if (kind == DOUBLE) {
+                line.append(Math.round((arg == 0 ? slot.double0 : slot.double1) * 100) / 100.0);
+            } else {
+                Object value = arg == 0 ? slot.object0 : slot.object1;
+                line.append(value instanceof long[] ? Arrays.toString((long[]) value) : String.valueOf(value));
+            }
+        }
+        line.append(format, start, format.length());
+    }
+}
@@ -0,0 +1,252 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerArrayLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+
+/**
+ * Records robot signals into a WPILib {@link DataLog} for post-match
+ * analysis and {@code LogReplay}. Subsystems register what to record in
+ * their constructors, the same way they register dashboard values with
+ * {@link SenderNT}, and {@link #record()} samples everything once per loop
+ * with a single timestamp.
+ * <p>
+ * A value is only appended when it changed since the last loop. The DataLog
+ * buffers appends in memory and writes them to storage on its own thread, so
+ * recording costs the loop no file I/O. Until {@link #start(DataLog)} is
+ * called (the replay and simulation harnesses never call it), registering and
+ * recording do nothing but remember the signals.
+ */
+public class DataRecorder {
+
+    private static DataRecorder instance;
+
+    private final List<Signal> signals = new ArrayList<>();
+    // Read by the ConsoleLog thread
+    private volatile DataLog log = null;
+
+    public static DataRecorder getInstance() {
+        if (instance == null) {
+            instance = new DataRecorder();
+        }
+        return instance;
+    }
+
+    /** Starts recording into the log, e.g. {@code DataLogManager.getLog()}. */
+    public void start(DataLog log) {
+        this.log = log;
+        for (Signal signal : signals) {
+            signal.open(log);
+        }
+    }
+
+    /** @return The log being recorded into, or null if not started. */
+    public DataLog getLog() {
+        return log;
+    }
+
+    public void addDouble(String name, DoubleSupplier supplier) {
+        add(new DoubleSignal(name, supplier));
+    }
+
+    public void addBoolean(String name, BooleanSupplier supplier) {
+        add(new BooleanSignal(name, supplier));
+    }
+
+    public void addInteger(String name, LongSupplier supplier) {
+        add(new IntegerSignal(name, supplier));
+    }
+
+    /**
+     * @param filler Fills in the values. It is handed the same array every loop.
+     */
+    public void addDoubleArray(String name, int length, Consumer<double[]> filler) {
+        add(new DoubleArraySignal(name, length, filler));
+    }
+
+    /**
+     * @param filler Fills in the values. It is handed the same array every loop.
+     */
+    public void addIntegerArray(String name, int length, Consumer<long[]> filler) {
+        add(new IntegerArraySignal(name, length, filler));
+    }
+
+    private void add(Signal signal) {
+        signals.add(signal);
+        if (log != null) {
+            signal.open(log);
+        }
+    }
+
+    /** Samples every signal and appends the ones that changed. Call once per loop. */
+    public void record() {
+        if (log == null) {
+            return;
+        }
+        long timestamp = WPIUtilJNI.now();
+        for (int i = 0; i < signals.size(); i++) {
+            signals.get(i).record(timestamp);
+        }
+    }
+
+    private abstract static class Signal {
+        final String name;
+        boolean first = true;
+
+        Signal(String name) {
+            this.name = name;
+        }
+
+        abstract void open(DataLog log);
+
+        abstract void record(long timestamp);
+    }
+
+    private static final class DoubleSignal extends Signal {
+        private final DoubleSupplier supplier;
+        private DoubleLogEntry entry;
+        private double last;
+
+        DoubleSignal(String name, DoubleSupplier supplier) {
+            super(name);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void open(DataLog log) {
+            entry = new DoubleLogEntry(log, name);
+        }
+
+        @Override
+        void record(long timestamp) {
+            double value = supplier.getAsDouble();
+            if (first || Double.doubleToLongBits(value) != Double.doubleToLongBits(last)) {
+                first = false;
+                last = value;
+                entry.append(value, timestamp);
+            }
+        }
+    }
+
+    private static final class BooleanSignal extends Signal {
+        private final BooleanSupplier supplier;
+        private BooleanLogEntry entry;
+        private boolean last;
+
+        BooleanSignal(String name, BooleanSupplier supplier) {
+            super(name);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void open(DataLog log) {
+            entry = new BooleanLogEntry(log, name);
+        }
+
+        @Override
+        void record(long timestamp) {
+            boolean value = supplier.getAsBoolean();
+            if (first || value != last) {
+                first = false;
+                last = value;
+                entry.append(value, timestamp);
+            }
+        }
+    }
+
+    private static final class IntegerSignal extends Signal {
+        private final LongSupplier supplier;
+        private IntegerLogEntry entry;
+        private long last;
+
+        IntegerSignal(String name, LongSupplier supplier) {
+            super(name);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void open(DataLog log) {
+            entry = new IntegerLogEntry(log, name);
+        }
+
+        @Override
+        void record(long timestamp) {
+            long value = supplier.getAsLong();
+            if (first || value != last) {
+                first = false;
+                last = value;
+                entry.append(value, timestamp);
+            }
+        }
+    }
+
+    private static final class DoubleArraySignal extends Signal {
+        private final Consumer<double[]> filler;
+        private final double[] values;
+        private final double[] last;
+        private DoubleArrayLogEntry entry;
+
+        DoubleArraySignal(String name, int length, Consumer<double[]> filler) {
+            super(name);
+            this.filler = filler;
+            this.values = new double[length];
+            this.last = new double[length];
+        }
+
+        @Override
+        void open(DataLog log) {
+            entry = new DoubleArrayLogEntry(log, name);
+        }
+
+        @Override
+        void record(long timestamp) {
+            filler.accept(values);
+            if (first || !Arrays.equals(values, last)) {
+                first = false;
+                System.arraycopy(values, 0, last, 0, values.length);
+                entry.append(values, timestamp);
+            }
+        }
+    }
+
+    private static final class IntegerArraySignal extends Signal {
+        private final Consumer<long[]> filler;
+        private final long[] values;
+        private final long[] last;
+        private IntegerArrayLogEntry entry;
+
+        IntegerArraySignal(String name, int length, Consumer<long[]> filler) {
+            super(name);
+            this.filler = filler;
+            this.values = new long[length];
+            this.last = new long[length];
+        }
+
+        @Override
+        void open(DataLog log) {
+            entry = new IntegerArrayLogEntry(log, name);
+        }
+
+        @Override
+        void record(long timestamp) {
+            filler.accept(values);
+            if (first || !Arrays.equals(values, last)) {
+                first = false;
+                System.arraycopy(values, 0, last, 0, values.length);
+                entry.append(values, timestamp);
+            }
+        }
+    }
+}
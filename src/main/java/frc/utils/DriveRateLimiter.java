@@ -0,0 +1,108 @@
+package frc.utils;
+
+/**
+ * Rate limits the drive inputs for smoother control. Translation is limited in
+ * polar form: the direction slews at a rate that shrinks as speed grows (an
+ * estimate of lateral acceleration), and the magnitude and rotation slew at
+ * fixed rates.
+ * <p>
+ * Time is passed in by the caller instead of read from the FPGA, so this
+ * class is plain math and can run (and be benchmarked) without the HAL.
+ */
+public class DriveRateLimiter {
+
+    private final double directionSlewRate;
+    private final double magnitudeSlewRate;
+    private final double rotationalSlewRate;
+
+    private double currentTranslationDir = 0.0;
+    private double currentTranslationMag = 0.0;
+    private double currentRotation = 0.0;
+    private double prevTime;
+
+    private double xSpeed;
+    private double ySpeed;
+
+    /**
+     * @param directionSlewRate  Direction slew rate in radians per second at
+     *                           full speed.
+     * @param magnitudeSlewRate  Magnitude slew rate in percent per second (1 =
+     *                           100%).
+     * @param rotationalSlewRate Rotation slew rate in percent per second (1 =
+     *                           100%).
+     * @param nowSeconds         The current time.
+     */
+    public DriveRateLimiter(double directionSlewRate, double magnitudeSlewRate, double rotationalSlewRate,
+            double nowSeconds) {
+        this.directionSlewRate = directionSlewRate;
+        this.magnitudeSlewRate = magnitudeSlewRate;
+        this.rotationalSlewRate = rotationalSlewRate;
+        this.prevTime = nowSeconds;
+    }
+
+    /**
+     * Steps the limited outputs towards the inputs. Read the results with
+     * {@link #getXSpeed()}, {@link #getYSpeed()} and {@link #getRotation()}.
+     *
+     * @param xSpeedInput Requested x speed, -1 to 1.
+     * @param ySpeedInput Requested y speed, -1 to 1.
+     * @param rotInput    Requested rotation, -1 to 1.
+     * @param nowSeconds  The current time.
+     */
+    public void calculate(double xSpeedInput, double ySpeedInput, double rotInput, double nowSeconds) {
+        final boolean isStopped = xSpeedInput == 0 && ySpeedInput == 0;
+        // Convert XY to polar for rate limiting
+        double inputTranslationDir = isStopped ? currentTranslationDir : Math.atan2(ySpeedInput, xSpeedInput);
+        double inputTranslationMag = Math.sqrt(xSpeedInput * xSpeedInput + ySpeedInput * ySpeedInput);
+
+        // Calculate the direction slew rate based on an estimate of the lateral
+        // acceleration
+        double dirSlewRate;
+        if (currentTranslationMag != 0.0) {
+            dirSlewRate = Math.abs(directionSlewRate / currentTranslationMag);
+        } else {
+            dirSlewRate = 500.0; // some high number that means the slew rate is effectively instantaneous
+        }
+
+        double elapsedTime = nowSeconds - prevTime;
+        double magStep = magnitudeSlewRate * elapsedTime;
+        double angleDif = SwerveUtils.AngleDifference(inputTranslationDir, currentTranslationDir);
+        if (angleDif < 0.45 * Math.PI) {
+            currentTranslationDir = SwerveUtils.StepTowardsCircular(currentTranslationDir, inputTranslationDir,
+                    dirSlewRate * elapsedTime);
+            currentTranslationMag = SwerveUtils.StepTowards(currentTranslationMag, inputTranslationMag, magStep);
+        } else if (angleDif > 0.85 * Math.PI) {
+            if (currentTranslationMag > 1e-4) { // some small number to avoid floating-point errors with equality checking
+                // keep currentTranslationDir unchanged
+                currentTranslationMag = SwerveUtils.StepTowards(currentTranslationMag, 0.0, magStep);
+            } else {
+                currentTranslationDir = SwerveUtils.WrapAngle(currentTranslationDir + Math.PI);
+                currentTranslationMag = SwerveUtils.StepTowards(currentTranslationMag, inputTranslationMag, magStep);
+            }
+        } else {
+            currentTranslationDir = SwerveUtils.StepTowardsCircular(currentTranslationDir, inputTranslationDir,
+                    dirSlewRate * elapsedTime);
+            currentTranslationMag = SwerveUtils.StepTowards(currentTranslationMag, 0.0, magStep);
+        }
+        currentRotation = SwerveUtils.StepTowards(currentRotation, rotInput, rotationalSlewRate * elapsedTime);
+        prevTime = nowSeconds;
+
+        xSpeed = currentTranslationMag * Math.cos(currentTranslationDir);
+        ySpeed = currentTranslationMag * Math.sin(currentTranslationDir);
+    }
+
+    /** @return The limited x speed, -1 to 1. */
+    public double getXSpeed() {
+        return xSpeed;
+    }
+
+    /** @return The limited y speed, -1 to 1. */
+    public double getYSpeed() {
+        return ySpeed;
+    }
+
+    /** @return The limited rotation, -1 to 1. */
+    public double getRotation() {
+        return currentRotation;
+    }
+}
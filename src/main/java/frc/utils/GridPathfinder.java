@@ -0,0 +1,399 @@
+package frc.utils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds short, obstacle-free paths across a {@link NavGrid}.
+ * <p>
+ * For the spots the robot drives to over and over, {@link #addTarget} builds a
+ * distance field (the path length from every cell to the target) and a
+ * visibility bitset (which cells see the target in a straight line) once, so
+ * a path to a target is just a walk downhill through the field. Any other
+ * goal goes through A*. Every search works in the grid's fixed number of
+ * cells, so the time per query is bounded, and the results are kept in an LRU
+ * cache keyed by the start and goal cells.
+ * <p>
+ * Paths come back as {@code {x0, y0, x1, y1, ...}} in meters, from the exact
+ * start to the exact goal, with the corners in between cut wherever there is
+ * line of sight. Not thread safe; the search scratch space is shared.
+ */
+public class GridPathfinder {
+
+    private static final float SQRT2 = (float) Math.sqrt(2);
+    private static final int[] NEIGHBOR_COLUMNS = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] NEIGHBOR_ROWS = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+    private final NavGrid grid;
+    private final int cellCount;
+
+    private int targetCount = 0;
+    private int[] targetCells = new int[0];
+    private double[] targetPositions = new double[0];
+    private float[][] targetDistances = new float[0][];
+    private long[][] targetVisible = new long[0][];
+
+    private final Map<Long, int[]> cache;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    // Search scratch space, reused by every query
+    private final float[] cost;
+    private final int[] cameFrom;
+    private final int[] visited;
+    private int visitStamp = 0;
+    private final int[] heapCells;
+    private final float[] heapKeys;
+    private int heapSize = 0;
+    private final int[] pathScratch;
+
+    /**
+     * @param grid      The grid to search.
+     * @param cacheSize How many paths to remember.
+     */
+    public GridPathfinder(NavGrid grid, int cacheSize) {
+        this.grid = grid;
+        this.cellCount = grid.getCellCount();
+        this.cache = new LinkedHashMap<Long, int[]>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        cost = new float[cellCount];
+        cameFrom = new int[cellCount];
+        visited = new int[cellCount];
+        // Cells can be pushed once per incoming edge
+        heapCells = new int[cellCount * NEIGHBOR_COLUMNS.length + 1];
+        heapKeys = new float[heapCells.length];
+        pathScratch = new int[cellCount];
+    }
+
+    /**
+     * Precomputes the distance field and visibility for a target.
+     *
+     * @return The target's ID for {@link #findPathToTarget}.
+     */
+    public int addTarget(double xMeters, double yMeters) {
+        int goal = nearestFree(grid.indexAt(xMeters, yMeters));
+
+        float[] distances = new float[cellCount];
+        long[] visible = new long[(cellCount + 63) >> 6];
+        if (goal >= 0) {
+            search(goal, -1);
+            for (int i = 0; i < cellCount; i++) {
+                distances[i] = visited[i] == visitStamp ? cost[i] : Float.POSITIVE_INFINITY;
+                if (!grid.isBlocked(i) && grid.hasLineOfSight(i, goal)) {
+                    visible[i >> 6] |= 1L << i;
+                }
+            }
+        } else {
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        }
+
+        targetCells = Arrays.copyOf(targetCells, targetCount + 1);
+        targetPositions = Arrays.copyOf(targetPositions, (targetCount + 1) * 2);
+        targetDistances = Arrays.copyOf(targetDistances, targetCount + 1);
+        targetVisible = Arrays.copyOf(targetVisible, targetCount + 1);
+        targetCells[targetCount] = goal;
+        // If the target sat in a blocked cell, end at the free cell it moved to
+        boolean moved = goal != grid.indexAt(xMeters, yMeters);
+        targetPositions[targetCount * 2] = moved ? grid.centerX(goal) : xMeters;
+        targetPositions[targetCount * 2 + 1] = moved ? grid.centerY(goal) : yMeters;
+        targetDistances[targetCount] = distances;
+        targetVisible[targetCount] = visible;
+        return targetCount++;
+    }
+
+    /**
+     * @return Length in meters of the shortest grid path from the position to
+     *         the target, or infinity if it cannot be reached.
+     */
+    public double getDistanceToTarget(int target, double xMeters, double yMeters) {
+        int start = nearestFree(grid.indexAt(xMeters, yMeters));
+        return start < 0 ? Double.POSITIVE_INFINITY : targetDistances[target][start] * grid.getNodeSizeMeters();
+    }
+
+    /**
+     * @return Whether the position is within one cell of a target added with
+     *         {@link #addTarget}, too close for a path to be worth driving.
+     */
+    public boolean isNearTarget(int target, double xMeters, double yMeters) {
+        return Math.hypot(targetPositions[target * 2] - xMeters, targetPositions[target * 2 + 1] - yMeters)
+                <= grid.getNodeSizeMeters();
+    }
+
+    /**
+     * @return Waypoints from the position to a target added with
+     *         {@link #addTarget}, or null if it cannot be reached.
+     */
+    public double[] findPathToTarget(int target, double startX, double startY) {
+        int goal = targetCells[target];
+        int start = nearestFree(grid.indexAt(startX, startY));
+        if (goal < 0 || start < 0) {
+            return null;
+        }
+
+        // Targets are keyed as negative goals so they never collide with cells
+        long key = cacheKey(start, -1 - target);
+        int[] cells = cache.get(key);
+        if (cells != null) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+            cells = descend(target, start, goal);
+            if (cells == null) {
+                return null;
+            }
+            cache.put(key, cells);
+        }
+        return toWaypoints(cells, startX, startY, targetPositions[target * 2], targetPositions[target * 2 + 1]);
+    }
+
+    /**
+     * @return Waypoints between two arbitrary positions, or null if the goal
+     *         cannot be reached.
+     */
+    public double[] findPath(double startX, double startY, double goalX, double goalY) {
+        int start = nearestFree(grid.indexAt(startX, startY));
+        int goal = nearestFree(grid.indexAt(goalX, goalY));
+        if (start < 0 || goal < 0) {
+            return null;
+        }
+
+        long key = cacheKey(start, goal);
+        int[] cells = cache.get(key);
+        if (cells != null) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+            if (!search(start, goal)) {
+                return null;
+            }
+            int length = 0;
+            for (int cell = goal; cell != start; cell = cameFrom[cell]) {
+                pathScratch[length++] = cell;
+            }
+            pathScratch[length++] = start;
+            // Walked backwards from the goal, so flip it around
+            for (int i = 0, j = length - 1; i < j; i++, j--) {
+                int swap = pathScratch[i];
+                pathScratch[i] = pathScratch[j];
+                pathScratch[j] = swap;
+            }
+            cells = shortcut(pathScratch, length);
+            cache.put(key, cells);
+        }
+        return toWaypoints(cells, startX, startY, goalX, goalY);
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private static long cacheKey(int start, int goal) {
+        return ((long) start << 32) | (goal & 0xffffffffL);
+    }
+
+    /** Follows the target's distance field downhill from the start. */
+    private int[] descend(int target, int start, int goal) {
+        float[] distances = targetDistances[target];
+        if (distances[start] == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        if ((targetVisible[target][start >> 6] & (1L << start)) != 0) {
+            return start == goal ? new int[] { start } : new int[] { start, goal };
+        }
+
+        int length = 0;
+        int cell = start;
+        pathScratch[length++] = cell;
+        while (cell != goal && length < cellCount) {
+            int next = -1;
+            float best = distances[cell];
+            for (int n = 0; n < NEIGHBOR_COLUMNS.length; n++) {
+                int neighbor = neighbor(cell, n);
+                if (neighbor >= 0 && distances[neighbor] < best) {
+                    best = distances[neighbor];
+                    next = neighbor;
+                }
+            }
+            if (next < 0) {
+                return null;
+            }
+            cell = next;
+            pathScratch[length++] = cell;
+        }
+        return shortcut(pathScratch, length);
+    }
+
+    /**
+     * Dijkstra (no goal) or A* (with a goal) over the 8-connected grid, filling
+     * {@code cost} and {@code cameFrom} for every cell stamped in
+     * {@code visited}.
+     *
+     * @return Whether the goal was reached.
+     */
+    private boolean search(int start, int goal) {
+        visitStamp++;
+        heapSize = 0;
+        cost[start] = 0;
+        cameFrom[start] = start;
+        visited[start] = visitStamp;
+        push(start, heuristic(start, goal));
+
+        while (heapSize > 0) {
+            float key = heapKeys[0];
+            int cell = pop();
+            if (key - heuristic(cell, goal) > cost[cell] + 1e-4f) {
+                continue; // stale entry, the cell was reached more cheaply since
+            }
+            if (cell == goal) {
+                return true;
+            }
+            for (int n = 0; n < NEIGHBOR_COLUMNS.length; n++) {
+                int neighbor = neighbor(cell, n);
+                if (neighbor < 0) {
+                    continue;
+                }
+                float next = cost[cell] + (n < 4 ? 1f : SQRT2);
+                if (visited[neighbor] != visitStamp || next < cost[neighbor]) {
+                    visited[neighbor] = visitStamp;
+                    cost[neighbor] = next;
+                    cameFrom[neighbor] = cell;
+                    push(neighbor, next + heuristic(neighbor, goal));
+                }
+            }
+        }
+        return goal < 0;
+    }
+
+    /** Octile distance in cells, or 0 for a Dijkstra search. */
+    private float heuristic(int cell, int goal) {
+        if (goal < 0) {
+            return 0;
+        }
+        int dx = Math.abs(grid.columnOf(cell) - grid.columnOf(goal));
+        int dy = Math.abs(grid.rowOf(cell) - grid.rowOf(goal));
+        return Math.max(dx, dy) + (SQRT2 - 1) * Math.min(dx, dy);
+    }
+
+    /**
+     * @return The free neighbor in direction {@code n}, or -1. Diagonal moves
+     *         need both cells beside them free so they do not clip a corner.
+     */
+    private int neighbor(int cell, int n) {
+        int column = grid.columnOf(cell);
+        int row = grid.rowOf(cell);
+        int dc = NEIGHBOR_COLUMNS[n];
+        int dr = NEIGHBOR_ROWS[n];
+        if (grid.isBlocked(column + dc, row + dr)) {
+            return -1;
+        }
+        if (n >= 4 && (grid.isBlocked(column + dc, row) || grid.isBlocked(column, row + dr))) {
+            return -1;
+        }
+        return grid.index(column + dc, row + dr);
+    }
+
+    /** Keeps only the cells where the path has to bend to stay in line of sight. */
+    private int[] shortcut(int[] cells, int length) {
+        int[] result = new int[length];
+        int count = 0;
+        result[count++] = cells[0];
+        int anchor = cells[0];
+        for (int i = 2; i < length; i++) {
+            if (!grid.hasLineOfSight(anchor, cells[i])) {
+                anchor = cells[i - 1];
+                result[count++] = anchor;
+            }
+        }
+        if (length > 1) {
+            result[count++] = cells[length - 1];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private double[] toWaypoints(int[] cells, double startX, double startY, double goalX, double goalY) {
+        int count = Math.max(cells.length, 2);
+        double[] waypoints = new double[count * 2];
+        for (int i = 1; i < count - 1; i++) {
+            waypoints[i * 2] = grid.centerX(cells[i]);
+            waypoints[i * 2 + 1] = grid.centerY(cells[i]);
+        }
+        waypoints[0] = startX;
+        waypoints[1] = startY;
+        waypoints[count * 2 - 2] = goalX;
+        waypoints[count * 2 - 1] = goalY;
+        return waypoints;
+    }
+
+    /** @return The closest free cell, searching outwards ring by ring, or -1. */
+    private int nearestFree(int index) {
+        if (!grid.isBlocked(index)) {
+            return index;
+        }
+        int column = grid.columnOf(index);
+        int row = grid.rowOf(index);
+        int maxRadius = Math.max(grid.getColumns(), grid.getRows());
+        for (int radius = 1; radius < maxRadius; radius++) {
+            for (int dc = -radius; dc <= radius; dc++) {
+                for (int dr = -radius; dr <= radius; dr++) {
+                    if (Math.max(Math.abs(dc), Math.abs(dr)) == radius && !grid.isBlocked(column + dc, row + dr)) {
+                        return grid.index(column + dc, row + dr);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void push(int cell, float key) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapCells[i] = heapCells[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        int top = heapCells[0];
+        int lastCell = heapCells[--heapSize];
+        float lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= lastKey) {
+                break;
+            }
+            heapCells[i] = heapCells[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapCells[i] = lastCell;
+        heapKeys[i] = lastKey;
+        return top;
+    }
+}
@@ -0,0 +1,103 @@
+package frc.utils;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Heading hold for teleop driving. The driver's rotation input moves a target
+ * heading, and a PID loop on the wrapped heading error turns the robot to it.
+ * <p>
+ * Everything is primitive radians and seconds, so a loop allocates nothing.
+ * Time is passed in by the caller like {@link DriveRateLimiter}. The integral
+ * only grows while holding a heading, not while the driver turns. It is
+ * clamped and stops growing while the output is saturated, and a gap of
+ * more than {@link #MAX_GAP_SECONDS} between calls (another command had the
+ * drivetrain, the robot was disabled) resets the target to the current
+ * heading instead of snapping back to a stale one.
+ */
+public class HeadingController {
+
+    /** Longer than this between calls counts as a fresh start. */
+    public static final double MAX_GAP_SECONDS = 0.1;
+
+    private final double kP;
+    private final double kI;
+    private final double kD;
+    private final double maxIntegral;
+    private final double maxOutput;
+
+    private double targetRadians = 0;
+    private double integral = 0;
+    private double prevError = 0;
+    private double prevTime = Double.NaN;
+    private double error = 0;
+
+    /**
+     * @param kP          Proportional gain, (radians per second) per radian.
+     * @param kI          Integral gain.
+     * @param kD          Derivative gain.
+     * @param maxIntegral Largest magnitude of the error integral, in radian
+     *                    seconds.
+     * @param maxOutput   Largest rotation rate output, in radians per second.
+     */
+    public HeadingController(double kP, double kI, double kD, double maxIntegral, double maxOutput) {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+        this.maxIntegral = maxIntegral;
+        this.maxOutput = maxOutput;
+    }
+
+    /** Holds the given heading from now on and clears the integral. */
+    public void reset(double headingRadians, double nowSeconds) {
+        targetRadians = MathUtil.angleModulus(headingRadians);
+        integral = 0;
+        prevError = 0;
+        error = 0;
+        prevTime = nowSeconds;
+    }
+
+    /**
+     * Advances the target by the commanded rate and returns the rotation rate
+     * that steers the robot towards it.
+     *
+     * @param rateRadiansPerSecond How fast the driver wants to turn.
+     * @param headingRadians       The robot's current heading.
+     * @param nowSeconds           The current time.
+     * @return Rotation rate to command, in radians per second.
+     */
+    public double calculate(double rateRadiansPerSecond, double headingRadians, double nowSeconds) {
+        double dt = nowSeconds - prevTime;
+        if (Double.isNaN(prevTime) || dt > MAX_GAP_SECONDS || dt < 0) {
+            reset(headingRadians, nowSeconds);
+            dt = 0;
+        }
+        prevTime = nowSeconds;
+
+        targetRadians = MathUtil.angleModulus(targetRadians + rateRadiansPerSecond * dt);
+        error = MathUtil.angleModulus(targetRadians - headingRadians);
+
+        double newIntegral = MathUtil.clamp(integral + error * dt, -maxIntegral, maxIntegral);
+        double derivative = dt > 0 ? (error - prevError) / dt : 0;
+        prevError = error;
+
+        double output = kP * error + kI * newIntegral + kD * derivative;
+        // While the driver is turning the error is just the robot lagging the
+        // moving target, so only integrate while holding, and only while that
+        // does not push further into saturation
+        if (rateRadiansPerSecond == 0
+                && (Math.abs(output) < maxOutput || Math.signum(error) != Math.signum(output))) {
+            integral = newIntegral;
+        }
+        return MathUtil.clamp(output, -maxOutput, maxOutput);
+    }
+
+    /** @return The heading being held, in radians from -PI to PI. */
+    public double getTargetRadians() {
+        return targetRadians;
+    }
+
+    /** @return The heading error at the last update, in radians. */
+    public double getError() {
+        return error;
+    }
+}
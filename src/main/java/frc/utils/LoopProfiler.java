@@ -0,0 +1,212 @@
+package frc.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.utils.SenderNT.Rate;
+
+/**
+ * Records how long each instrumented piece of the robot loop takes (subsystem
+ * {@code periodic()}s, command {@code execute()}s, the whole loop) into
+ * fixed-size histograms, so a loop overrun can be traced to whoever ate the
+ * budget.
+ * <p>
+ * Recording a sample is a couple of {@code System.nanoTime()} calls and an
+ * array increment, and never allocates, so it is cheap enough to leave on in
+ * competition. Summaries (p50/p99/max in microseconds) of the named sections
+ * are published on the slow {@link SenderNT} tier, and {@link #printReport()}
+ * dumps everything, per-command timings included.
+ */
+public final class LoopProfiler {
+
+    private static final ConsoleLog.Site REPORT_LOG = ConsoleLog.site("LoopProfiler", 0);
+
+    private static LoopProfiler instance;
+
+    private final List<Section> sections = new ArrayList<>();
+    private final Map<Command, Section> commandSections = new HashMap<>();
+    private long commandPhaseStart;
+    private long lastCommandMark;
+
+    private LoopProfiler() {
+    }
+
+    public static synchronized LoopProfiler getInstance() {
+        if (instance == null) {
+            instance = new LoopProfiler();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the timing section with the given name, creating it (and its
+     * dashboard summary) the first time.
+     */
+    public synchronized Section section(String name) {
+        for (Section s : sections) {
+            if (s.name.equals(name)) {
+                return s;
+            }
+        }
+        Section s = new Section(name);
+        sections.add(s);
+        SenderNT telemetry = SenderNT.getDashboard();
+        telemetry.addNumber("Profiler/" + name + "/p50 us", () -> s.getPercentileNanos(0.50) * 1e-3, Rate.SLOW);
+        telemetry.addNumber("Profiler/" + name + "/p99 us", () -> s.getPercentileNanos(0.99) * 1e-3, Rate.SLOW);
+        telemetry.addNumber("Profiler/" + name + "/max us", () -> s.getMaxNanos() * 1e-3, Rate.SLOW);
+        return s;
+    }
+
+    /**
+     * Times the command phase of every loop, and each scheduled command.
+     * <p>
+     * The whole phase, from the button loop (polled right before commands run)
+     * to the last command's {@code execute()}, is the published "Commands"
+     * section, created here so nothing new is published mid-match.
+     * <p>
+     * The scheduler has no "before execute" hook, only one after it, so each
+     * command is charged the time since the previous mark. That is its own
+     * {@code execute()} plus the previous command's {@code isFinished()}, and
+     * {@code end()} if it just finished. Per-command sections are created the
+     * first time a command runs, are not published, and only appear in
+     * {@link #printReport()}.
+     * <p>
+     * Call this after all button bindings are made so the mark is the last
+     * thing in the button loop.
+     */
+    public void instrumentScheduler(CommandScheduler scheduler) {
+        Section phase = section("Commands");
+        scheduler.getActiveButtonLoop().bind(() -> {
+            long now = System.nanoTime();
+            // Charge the previous loop's phase if any command ran in it
+            if (lastCommandMark != commandPhaseStart) {
+                phase.record(lastCommandMark - commandPhaseStart);
+            }
+            commandPhaseStart = now;
+            lastCommandMark = now;
+        });
+        scheduler.onCommandExecute(command -> {
+            long now = System.nanoTime();
+            Section s = commandSections.get(command);
+            if (s == null) {
+                s = new Section(command.getName() + ".execute");
+                synchronized (this) {
+                    commandSections.put(command, s);
+                }
+            }
+            s.record(now - lastCommandMark);
+            lastCommandMark = now;
+        });
+    }
+
+    /** Prints every section's summary to the console. */
+    public synchronized void printReport() {
+        StringBuilder report = new StringBuilder("---- Loop timing report (us) ----\n");
+        report.append(String.format("%-40s %8s %8s %8s %8s%n", "section", "count", "p50", "p99", "max"));
+        List<Section> all = new ArrayList<>(sections);
+        all.addAll(commandSections.values());
+        for (Section s : all) {
+            report.append(String.format("%-40s %8d %8.1f %8.1f %8.1f%n", s.name, s.getCount(),
+                    s.getPercentileNanos(0.50) * 1e-3, s.getPercentileNanos(0.99) * 1e-3, s.getMaxNanos() * 1e-3));
+        }
+        report.setLength(report.length() - System.lineSeparator().length());
+        ConsoleLog.log(REPORT_LOG, report.toString());
+    }
+
+    /** Clears every section's histogram. */
+    public synchronized void reset() {
+        for (Section s : sections) {
+            s.reset();
+        }
+        for (Section s : commandSections.values()) {
+            s.reset();
+        }
+    }
+
+    /**
+     * One timed piece of the loop. Bucket boundaries grow by 2^(1/4), from 1 us
+     * up to about 1 s, so percentiles are accurate to within ~19%.
+     */
+    public static final class Section {
+        private static final int SUB_BUCKETS = 4;
+        private static final int BUCKETS = 20 * SUB_BUCKETS;
+        private static final double MIN_NANOS = 1000;
+
+        private final String name;
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long maxNanos;
+        private long startNanos;
+
+        private Section(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Marks the start of a timed run. */
+        public void begin() {
+            startNanos = System.nanoTime();
+        }
+
+        /** Marks the end of a timed run started with {@link #begin()}. */
+        public void end() {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /** Adds one duration to the histogram. */
+        public void record(long nanos) {
+            int bucket = 0;
+            if (nanos > MIN_NANOS) {
+                bucket = (int) (Math.log(nanos / MIN_NANOS) * (SUB_BUCKETS / Math.log(2))) + 1;
+                bucket = Math.min(bucket, BUCKETS - 1);
+            }
+            counts[bucket]++;
+            count++;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param percentile From 0 to 1.
+         * @return The upper bound of the bucket holding that percentile, capped at
+         *         the maximum seen.
+         */
+        public double getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(MIN_NANOS * Math.pow(2, (double) i / SUB_BUCKETS), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        public void reset() {
+            Arrays.fill(counts, 0);
+            count = 0;
+            maxNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package frc.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * The PathPlanner navigation grid ({@code navgrid.json}) packed into a bitset,
+ * one bit per cell, set where the cell is blocked. Cells are addressed either
+ * by column and row or by a single index, {@code row * columns + column}.
+ */
+public class NavGrid {
+
+    private final int columns;
+    private final int rows;
+    private final double nodeSizeMeters;
+    private final long[] blocked;
+
+    /** Creates a grid with every cell free. */
+    public NavGrid(int columns, int rows, double nodeSizeMeters) {
+        this.columns = columns;
+        this.rows = rows;
+        this.nodeSizeMeters = nodeSizeMeters;
+        this.blocked = new long[(columns * rows + 63) >> 6];
+    }
+
+    /**
+     * Reads a grid in PathPlanner's format: {@code nodeSizeMeters} plus a
+     * {@code grid} array of rows, each an array of booleans that are true where
+     * the cell is blocked.
+     */
+    public static NavGrid fromJson(Reader reader) throws IOException, ParseException {
+        JSONObject json = (JSONObject) new JSONParser().parse(reader);
+        double nodeSize = ((Number) json.get("nodeSizeMeters")).doubleValue();
+        JSONArray gridRows = (JSONArray) json.get("grid");
+        int rowCount = gridRows.size();
+        int columnCount = rowCount == 0 ? 0 : ((JSONArray) gridRows.get(0)).size();
+
+        NavGrid grid = new NavGrid(columnCount, rowCount, nodeSize);
+        for (int row = 0; row < rowCount; row++) {
+            JSONArray cells = (JSONArray) gridRows.get(row);
+            for (int column = 0; column < columnCount && column < cells.size(); column++) {
+                grid.setBlocked(column, row, Boolean.TRUE.equals(cells.get(column)));
+            }
+        }
+        return grid;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCellCount() {
+        return columns * rows;
+    }
+
+    public double getNodeSizeMeters() {
+        return nodeSizeMeters;
+    }
+
+    public void setBlocked(int column, int row, boolean isBlocked) {
+        int index = index(column, row);
+        if (isBlocked) {
+            blocked[index >> 6] |= 1L << index;
+        } else {
+            blocked[index >> 6] &= ~(1L << index);
+        }
+    }
+
+    /** @return Whether the cell is blocked. Cells off the grid count as blocked. */
+    public boolean isBlocked(int column, int row) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return true;
+        }
+        return isBlocked(index(column, row));
+    }
+
+    public boolean isBlocked(int index) {
+        return (blocked[index >> 6] & (1L << index)) != 0;
+    }
+
+    public int index(int column, int row) {
+        return row * columns + column;
+    }
+
+    public int columnOf(int index) {
+        return index % columns;
+    }
+
+    public int rowOf(int index) {
+        return index / columns;
+    }
+
+    /** @return Index of the cell containing the field position, clamped to the grid. */
+    public int indexAt(double xMeters, double yMeters) {
+        int column = Math.max(0, Math.min(columns - 1, (int) Math.floor(xMeters / nodeSizeMeters)));
+        int row = Math.max(0, Math.min(rows - 1, (int) Math.floor(yMeters / nodeSizeMeters)));
+        return index(column, row);
+    }
+
+    public double centerX(int index) {
+        return (columnOf(index) + 0.5) * nodeSizeMeters;
+    }
+
+    public double centerY(int index) {
+        return (rowOf(index) + 0.5) * nodeSizeMeters;
+    }
+
+    /**
+     * Walks every cell the straight line between two cell centers passes
+     * through. Where the line crosses exactly through a corner, both cells
+     * beside the corner have to be free, so paths cannot slip between two
+     * diagonal obstacles.
+     *
+     * @return Whether none of those cells is blocked.
+     */
+    public boolean hasLineOfSight(int fromIndex, int toIndex) {
+        int column = columnOf(fromIndex);
+        int row = rowOf(fromIndex);
+        int endColumn = columnOf(toIndex);
+        int endRow = rowOf(toIndex);
+        int stepColumn = Integer.signum(endColumn - column);
+        int stepRow = Integer.signum(endRow - row);
+        int dx = Math.abs(endColumn - column);
+        int dy = Math.abs(endRow - row);
+
+        // Starting from a cell center, the first boundary is half a cell away
+        double tDeltaX = dx == 0 ? Double.POSITIVE_INFINITY : 1.0 / dx;
+        double tDeltaY = dy == 0 ? Double.POSITIVE_INFINITY : 1.0 / dy;
+        double tMaxX = tDeltaX * 0.5;
+        double tMaxY = tDeltaY * 0.5;
+
+        for (int steps = dx + dy; steps >= 0; steps--) {
+            if (isBlocked(column, row)) {
+                return false;
+            }
+            if (column == endColumn && row == endRow) {
+                return true;
+            }
+            if (tMaxX < tMaxY) {
+                column += stepColumn;
+                tMaxX += tDeltaX;
+            } else if (tMaxY < tMaxX) {
+                row += stepRow;
+                tMaxY += tDeltaY;
+            } else {
+                if (isBlocked(column + stepColumn, row) || isBlocked(column, row + stepRow)) {
+                    return false;
+                }
+                column += stepColumn;
+                row += stepRow;
+                tMaxX += tDeltaX;
+                tMaxY += tDeltaY;
+            }
+        }
+        return false;
+    }
+}
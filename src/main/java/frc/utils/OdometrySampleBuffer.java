@@ -0,0 +1,121 @@
+package frc.utils;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer / single-consumer ring buffer of timestamped
+ * odometry samples (gyro yaw plus each module's distance and angle).
+ * <p>
+ * Samples are stored in flat primitive arrays so writing one never allocates.
+ * The producer (the odometry thread) never waits on the consumer: if the
+ * consumer falls more than {@code capacity} samples behind, the oldest samples
+ * are overwritten and counted as dropped.
+ */
+public final class OdometrySampleBuffer {
+
+    /** Receives drained samples. The arrays are reused between calls. */
+    @FunctionalInterface
+    public interface SampleConsumer {
+        void accept(double timestampSeconds, double yawRadians, double[] distancesMeters, double[] anglesRadians);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int modules;
+
+    private final double[] timestamps;
+    private final double[] yaws;
+    private final double[] distances;
+    private final double[] angles;
+
+    private final AtomicLong writeIndex = new AtomicLong();
+
+    // Consumer-side state, only touched by the reading thread
+    private long readIndex;
+    private long dropped;
+    private final double[] readDistances;
+    private final double[] readAngles;
+
+    /**
+     * @param capacity Number of samples held, rounded up to a power of two.
+     * @param modules  Number of swerve modules per sample.
+     */
+    public OdometrySampleBuffer(int capacity, int modules) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.modules = modules;
+        this.timestamps = new double[size];
+        this.yaws = new double[size];
+        this.distances = new double[size * modules];
+        this.angles = new double[size * modules];
+        this.readDistances = new double[modules];
+        this.readAngles = new double[modules];
+    }
+
+    /**
+     * Publishes one sample. Must only be called from the single producer thread.
+     */
+    public void write(double timestampSeconds, double yawRadians, double[] distancesMeters, double[] anglesRadians) {
+        long index = writeIndex.get();
+        int slot = (int) (index & mask);
+        timestamps[slot] = timestampSeconds;
+        yaws[slot] = yawRadians;
+        System.arraycopy(distancesMeters, 0, distances, slot * modules, modules);
+        System.arraycopy(anglesRadians, 0, angles, slot * modules, modules);
+        // Release-store so the consumer sees the slot contents before the index
+        writeIndex.lazySet(index + 1);
+    }
+
+    /**
+     * Hands every sample written since the last drain to {@code consumer}, oldest
+     * first. Must only be called from the single consumer thread.
+     *
+     * @return The number of samples delivered.
+     */
+    public int drain(SampleConsumer consumer) {
+        long end = writeIndex.get();
+        if (end - readIndex > capacity) {
+            dropped += end - capacity - readIndex;
+            readIndex = end - capacity;
+        }
+
+        int delivered = 0;
+        for (; readIndex < end; readIndex++) {
+            int slot = (int) (readIndex & mask);
+            double timestamp = timestamps[slot];
+            double yaw = yaws[slot];
+            System.arraycopy(distances, slot * modules, readDistances, 0, modules);
+            System.arraycopy(angles, slot * modules, readAngles, 0, modules);
+
+            // If the producer lapped us while copying, the slot may be torn
+            VarHandle.acquireFence();
+            if (writeIndex.get() - readIndex >= capacity) {
+                dropped++;
+                continue;
+            }
+            consumer.accept(timestamp, yaw, readDistances, readAngles);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    /**
+     * @return Total samples written by the producer.
+     */
+    public long getWrittenCount() {
+        return writeIndex.get();
+    }
+
+    /**
+     * @return Samples the consumer lost because it fell too far behind.
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,200 @@
+package frc.utils;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * One snapshot per loop of every operator control. {@link #sample()} reads
+ * all axes and buttons of the registered controllers back to back, stamps
+ * them with the FPGA time, shapes the axes that have a {@link ResponseCurve}
+ * and hands the buttons to a {@link ButtonEngine}. Everything that reads
+ * operator input during the rest of the loop sees the same values, instead of
+ * each supplier going back to the driver station on its own.
+ * <p>
+ * Whatever turns the input into an output (the drive command) calls
+ * {@link #markOutput()} once it has done so; the time since the snapshot is
+ * the input-to-output latency for the loop, kept as the latest value and the
+ * worst over the last {@link #WINDOW_CYCLES} loops. That only covers the part
+ * of the loop between the snapshot and the output: how old the driver station
+ * packet already was when it was sampled, and how long the output takes to
+ * go out on the CAN bus, are not included, since the driver station does not
+ * hand out the time a packet arrived.
+ * <p>
+ * Axes are addressed by the index from {@link #axis(int, int)}, with
+ * controller slots from {@link #addController(int)} that line up with the
+ * slots in {@link ButtonEngine#button(int, int)}.
+ */
+public class OperatorInput {
+
+    public static final int MAX_CONTROLLERS = ButtonEngine.MAX_CONTROLLERS;
+    public static final int MAX_AXES = 6;
+    public static final int WINDOW_CYCLES = 50;
+
+    private final int[] ports = new int[MAX_CONTROLLERS];
+    private int controllerCount = 0;
+    private final ButtonEngine buttonEngine;
+
+    private final double[] raw = new double[MAX_CONTROLLERS * MAX_AXES];
+    private final double[] shaped = new double[MAX_CONTROLLERS * MAX_AXES];
+    private final ResponseCurve[] curves = new ResponseCurve[MAX_CONTROLLERS * MAX_AXES];
+    private long buttons = 0;
+    private long timestampMicros = 0;
+    private long cycle = 0;
+
+    private long markedCycle = -1;
+    private long latencyMicros = 0;
+    private long windowMaxMicros = 0;
+    private long maxLatencyMicros = 0;
+    private int windowCycles = 0;
+
+    /**
+     * @param buttonEngine Polled with the buttons of every snapshot, or null.
+     */
+    public OperatorInput(ButtonEngine buttonEngine) {
+        this.buttonEngine = buttonEngine;
+        Arrays.fill(curves, ResponseCurve.LINEAR);
+    }
+
+    /**
+     * Registers a controller to be sampled.
+     *
+     * @param port Driver station port.
+     * @return The controller's slot.
+     */
+    public int addController(int port) {
+        if (controllerCount == MAX_CONTROLLERS) {
+            throw new IllegalStateException("At most " + MAX_CONTROLLERS + " controllers");
+        }
+        ports[controllerCount] = port;
+        return controllerCount++;
+    }
+
+    /**
+     * @param controller Slot from {@link #addController(int)}.
+     * @param axis       Axis number, from 0 like {@code GenericHID.getRawAxis}.
+     * @return The index to read the axis with.
+     */
+    public static int axis(int controller, int axis) {
+        if (controller < 0 || controller >= MAX_CONTROLLERS || axis < 0 || axis >= MAX_AXES) {
+            throw new IllegalArgumentException("No axis " + axis + " on controller " + controller);
+        }
+        return controller * MAX_AXES + axis;
+    }
+
+    /** Sets the curve an axis is shaped with; axes start out linear. */
+    public void setCurve(int axis, ResponseCurve curve) {
+        curves[axis] = curve;
+        shaped[axis] = curve.apply(raw[axis]);
+    }
+
+    /** Takes this loop's snapshot of every registered controller. */
+    public void sample() {
+        long sampled = 0;
+        for (int slot = 0; slot < controllerCount; slot++) {
+            int port = ports[slot];
+            int count = Math.min(DriverStation.getStickAxisCount(port), MAX_AXES);
+            int base = slot * MAX_AXES;
+            for (int axis = 0; axis < MAX_AXES; axis++) {
+                // Missing axes read 0 rather than warning about an unplugged stick
+                raw[base + axis] = axis < count ? DriverStation.getStickAxis(port, axis) : 0;
+            }
+            long pressed = DriverStation.getStickButtons(port) & ((1L << ButtonEngine.MAX_BUTTONS) - 1);
+            sampled |= pressed << (slot * ButtonEngine.MAX_BUTTONS);
+        }
+        update(sampled, RobotController.getFPGATime());
+    }
+
+    /**
+     * Finishes a snapshot from values already in place; {@link #sample()} does
+     * the driver station reads and calls this.
+     *
+     * @param buttons         Every button, laid out like
+     *                        {@link ButtonEngine#button(int, int)}.
+     * @param timestampMicros FPGA time the snapshot was taken.
+     */
+    public void update(long buttons, long timestampMicros) {
+        for (int i = 0; i < controllerCount * MAX_AXES; i++) {
+            shaped[i] = curves[i].apply(raw[i]);
+        }
+        this.buttons = buttons;
+        this.timestampMicros = timestampMicros;
+        cycle++;
+        if (buttonEngine != null) {
+            buttonEngine.poll(buttons, timestampMicros * 1e-6);
+        }
+    }
+
+    /** Sets a raw axis value, for replaying input without a driver station. */
+    public void setRaw(int axis, double value) {
+        raw[axis] = value;
+    }
+
+    /** Records that this loop's input has reached the outputs. */
+    public void markOutput() {
+        markOutput(RobotController.getFPGATime());
+    }
+
+    /**
+     * Records the input-to-output latency for this loop; only the first mark
+     * after each snapshot counts.
+     *
+     * @param nowMicros FPGA time the output was set.
+     */
+    public void markOutput(long nowMicros) {
+        if (markedCycle == cycle) {
+            return;
+        }
+        markedCycle = cycle;
+        latencyMicros = nowMicros - timestampMicros;
+        windowMaxMicros = Math.max(windowMaxMicros, latencyMicros);
+        if (++windowCycles == WINDOW_CYCLES) {
+            maxLatencyMicros = windowMaxMicros;
+            windowMaxMicros = 0;
+            windowCycles = 0;
+        }
+    }
+
+    /** @return The axis value through its curve. */
+    public double get(int axis) {
+        return shaped[axis];
+    }
+
+    /** @return The axis value as the driver station reported it. */
+    public double getRaw(int axis) {
+        return raw[axis];
+    }
+
+    /** @return Every button in the snapshot. */
+    public long getButtons() {
+        return buttons;
+    }
+
+    /** @return Whether every button in the mask was held in the snapshot. */
+    public boolean isHeld(long mask) {
+        return (buttons & mask) == mask;
+    }
+
+    public long getTimestampMicros() {
+        return timestampMicros;
+    }
+
+    /** @return How many snapshots have been taken. */
+    public long getCycle() {
+        return cycle;
+    }
+
+    /**
+     * @return Snapshot-to-output latency of the most recent loop that set an
+     *         output.
+     */
+    public long getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    /** @return Worst latency over the last full window of loops. */
+    public long getMaxLatencyMicros() {
+        return maxLatencyMicros;
+    }
+}
@@ -0,0 +1,83 @@
+package frc.utils;
+
+/**
+ * Joystick response curve: a deadband, rescaled so the output still starts
+ * from zero at its edge, followed by an expo blend of linear and cubic,
+ * {@code (1 - expo) * d + expo * d^3}. Expo keeps full deflection at full
+ * speed while giving finer control near the centre.
+ * <p>
+ * The curve past the deadband is precomputed into a lookup table when it is
+ * built, so shaping an axis is a subtraction, a table read and one
+ * interpolation. The deadband itself stays exact rather than being smeared
+ * across a table segment, and with no expo the result matches
+ * {@code MathUtil.applyDeadband}.
+ */
+public final class ResponseCurve {
+
+    public static final int SEGMENTS = 1024;
+
+    public static final ResponseCurve LINEAR = new ResponseCurve(0, 0);
+
+    private final double deadband;
+    private final double expo;
+    private final double scale;
+    private final double[] table = new double[SEGMENTS + 1];
+
+    /**
+     * @param deadband Inputs at or below this magnitude give 0, in [0, 1).
+     * @param expo     How much of the cubic to blend in, in [0, 1].
+     */
+    public ResponseCurve(double deadband, double expo) {
+        if (!(deadband >= 0 && deadband < 1)) {
+            throw new IllegalArgumentException("Deadband must be in [0, 1), got " + deadband);
+        }
+        if (!(expo >= 0 && expo <= 1)) {
+            throw new IllegalArgumentException("Expo must be in [0, 1], got " + expo);
+        }
+        this.deadband = deadband;
+        this.expo = expo;
+        // Table positions per unit of input past the deadband
+        this.scale = SEGMENTS / (1 - deadband);
+        for (int i = 0; i <= SEGMENTS; i++) {
+            table[i] = shape((double) i / SEGMENTS, 0, expo);
+        }
+    }
+
+    /** The exact curve, which the table is built from. */
+    public static double shape(double input, double deadband, double expo) {
+        double magnitude = Math.abs(input);
+        if (!(magnitude > deadband)) {
+            return 0;
+        }
+        double d = Math.min(1, (magnitude - deadband) / (1 - deadband));
+        return Math.copySign((1 - expo) * d + expo * d * d * d, input);
+    }
+
+    /**
+     * @param input Raw axis value in [-1, 1]; anything outside is clamped and
+     *              NaN gives 0.
+     * @return The shaped value, with the input's sign.
+     */
+    public double apply(double input) {
+        double magnitude = Math.abs(input);
+        if (!(magnitude > deadband)) {
+            return 0;
+        }
+        if (magnitude >= 1) {
+            return Math.copySign(table[SEGMENTS], input);
+        }
+        double position = (magnitude - deadband) * scale;
+        // An input just under 1 can round onto the last entry
+        int i = Math.min((int) position, SEGMENTS - 1);
+        double value = table[i] + (table[i + 1] - table[i]) * (position - i);
+        return Math.copySign(value, input);
+    }
+
+    public double getDeadband() {
+        return deadband;
+    }
+
+    public double getExpo() {
+        return expo;
+    }
+}
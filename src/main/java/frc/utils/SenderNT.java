@@ -1,8 +1,14 @@
 package frc.utils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.util.sendable.Sendable;
@@ -13,15 +19,45 @@ import edu.wpi.first.wpilibj.smartdashboard.SendableBuilderImpl;
  * Acts like {@link edu.wpi.first.wpilibj.smartdashboard.SmartDashboard} but is
  * not limited to the default NT parent table name,
  * and can be instanced so that different tables can be updated at different
- * frequencies. Currently only useful for scheduling
- * {@link edu.wpi.first.util.sendable.Sendable} objects and not generic value
- * pushes.
+ * frequencies.
+ * <p>
+ * Besides {@link edu.wpi.first.util.sendable.Sendable} objects, values can be
+ * registered once as suppliers with a publish {@link Rate}. Each
+ * {@link #updateValues()} then only samples the suppliers that are due, only
+ * publishes values that moved by more than their deadband, and stops once the
+ * per-cycle time budget is used up (the rest are published next cycle).
  */
 public final class SenderNT {
 
+	/** How often a registered value is sampled and published. */
+	public static enum Rate {
+		/** Every robot loop (20 ms). */
+		FAST(1),
+		/** Every 5th robot loop (100 ms). */
+		NORMAL(5),
+		/** Every 25th robot loop (500 ms). */
+		SLOW(25);
+
+		public final int periodCycles;
+
+		private Rate(int periodCycles) {
+			this.periodCycles = periodCycles;
+		}
+	}
+
+	public static final long DEFAULT_BUDGET_NANOS = 1_000_000;
+
+	private static SenderNT dashboard;
+
 	private NetworkTable table;
 	private final Map<String, Sendable> data_tables = new HashMap<>();
 
+	private final List<Entry> entries = new ArrayList<>();
+	private long budgetNanos = DEFAULT_BUDGET_NANOS;
+	private long cycle = 0;
+	private int cursor = 0;
+	private long budgetOverruns = 0;
+
 	public SenderNT(String srcn) {
 		this(NetworkTableInstance.getDefault().getTable(srcn));
 	}
@@ -30,6 +66,17 @@ public final class SenderNT {
 		this.table = src;
 	}
 
+	/**
+	 * @return The shared instance publishing into the SmartDashboard table, so
+	 *         existing dashboard layouts keep working.
+	 */
+	public static synchronized SenderNT getDashboard() {
+		if (dashboard == null) {
+			dashboard = new SenderNT("SmartDashboard");
+		}
+		return dashboard;
+	}
+
 	/* Copied straight from the SmartDashboard class. */
 	public synchronized void putData(String key, Sendable data) {
 		Sendable current = this.data_tables.get(key);
@@ -51,10 +98,138 @@ public final class SenderNT {
 		}
 	}
 
+	/**
+	 * Registers a number to be published at the given rate whenever it changes
+	 * by more than {@code deadband}.
+	 */
+	public synchronized void addNumber(String key, DoubleSupplier value, Rate rate, double deadband) {
+		this.entries.add(new NumberEntry(this.table.getDoubleTopic(key).publish(), value, rate, deadband,
+				this.entries.size()));
+	}
+
+	/** Registers a number to be published at the given rate whenever it changes. */
+	public void addNumber(String key, DoubleSupplier value, Rate rate) {
+		this.addNumber(key, value, rate, 0.0);
+	}
+
+	/** Registers a boolean to be published at the given rate whenever it changes. */
+	public synchronized void addBoolean(String key, BooleanSupplier value, Rate rate) {
+		this.entries.add(new BooleanEntry(this.table.getBooleanTopic(key).publish(), value, rate,
+				this.entries.size()));
+	}
+
+	/**
+	 * Sets how long a single {@link #updateValues()} may spend publishing
+	 * registered values.
+	 */
+	public void setBudgetNanos(long budgetNanos) {
+		this.budgetNanos = budgetNanos;
+	}
+
+	/**
+	 * @return How many cycles ran out of time before publishing everything due.
+	 */
+	public long getBudgetOverruns() {
+		return this.budgetOverruns;
+	}
+
 	public synchronized void updateValues() {
 		for (Sendable data : this.data_tables.values()) {
 			SendableRegistry.update(data);
 		}
+
+		int count = this.entries.size();
+		if (count == 0) {
+			return;
+		}
+		this.cycle++;
+		for (int i = 0; i < count; i++) {
+			Entry e = this.entries.get(i);
+			// Entries are phase-shifted by index so slow values don't all land on the
+			// same cycle
+			if ((this.cycle + e.phase) % e.rate.periodCycles == 0) {
+				e.due = true;
+			}
+		}
+
+		// Round-robin from where the last cycle stopped so nothing starves when the
+		// budget runs out
+		long start = System.nanoTime();
+		for (int n = 0; n < count; n++) {
+			int i = (this.cursor + n) % count;
+			Entry e = this.entries.get(i);
+			if (!e.due) {
+				continue;
+			}
+			e.due = false;
+			e.publish();
+			if (System.nanoTime() - start > this.budgetNanos) {
+				this.cursor = (i + 1) % count;
+				this.budgetOverruns++;
+				return;
+			}
+		}
+	}
+
+	private static abstract class Entry {
+		final Rate rate;
+		final int phase;
+		boolean due = true;
+
+		Entry(Rate rate, int phase) {
+			this.rate = rate;
+			this.phase = phase;
+		}
+
+		abstract void publish();
+	}
+
+	private static final class NumberEntry extends Entry {
+		private final DoublePublisher publisher;
+		private final DoubleSupplier supplier;
+		private final double deadband;
+		private boolean published = false;
+		private double last;
+
+		NumberEntry(DoublePublisher publisher, DoubleSupplier supplier, Rate rate, double deadband, int phase) {
+			super(rate, phase);
+			this.publisher = publisher;
+			this.supplier = supplier;
+			this.deadband = deadband;
+		}
+
+		@Override
+		void publish() {
+			double value = this.supplier.getAsDouble();
+			if (!this.published || Math.abs(value - this.last) > this.deadband) {
+				this.publisher.set(value);
+				this.last = value;
+				this.published = true;
+			}
+		}
+	}
+
+	private static final class BooleanEntry extends Entry {
+		private final BooleanPublisher publisher;
+		private final BooleanSupplier supplier;
+		private boolean published = false;
+		private boolean last;
+
+		BooleanEntry(BooleanPublisher publisher, BooleanSupplier supplier, Rate rate, int phase) {
+			super(rate, phase);
+			this.publisher = publisher;
+			this.supplier = supplier;
+		}
+
+		@Override
+		void publish() {
+			boolean value = this.supplier.getAsBoolean();
+			if (!this.published || value != this.last) {
+				this.publisher.set(value);
+				this.last = value;
+				this.published = true;
+			}
+		}
 	}
 
 }
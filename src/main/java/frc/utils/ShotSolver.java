@@ -0,0 +1,114 @@
+package frc.utils;
+
+/**
+ * Shoot-while-moving solution from a {@link ShotTable}. The note keeps the
+ * robot's velocity after it leaves, so the shot is aimed at a virtual target
+ * moved back along that velocity by the time of flight. The time of flight
+ * depends on the range to the virtual target, so the two are iterated a few
+ * times until they agree; with the robot standing still the answer is the
+ * table's row for the real range.
+ * <p>
+ * All inputs and outputs are primitive and the result is kept in fields, so
+ * solving allocates nothing.
+ */
+public class ShotSolver {
+
+    private final ShotTable table;
+    private final int maxIterations;
+    private final double toleranceSeconds;
+
+    private double range;
+    private double rpm;
+    private double heading;
+    private double timeOfFlight;
+    private double aimX;
+    private double aimY;
+    private int iterations;
+
+    /**
+     * @param table            Shots by range.
+     * @param maxIterations    Most refinements of the time of flight per solve.
+     * @param toleranceSeconds Stop refining once the time of flight changes by
+     *                         less than this.
+     */
+    public ShotSolver(ShotTable table, int maxIterations, double toleranceSeconds) {
+        this.table = table;
+        this.maxIterations = maxIterations;
+        this.toleranceSeconds = toleranceSeconds;
+    }
+
+    /**
+     * Solves for a shot from the robot's position and field-relative velocity.
+     * Read the result with the getters.
+     *
+     * @param robotX  Robot position, meters.
+     * @param robotY  Robot position, meters.
+     * @param vx      Robot velocity, meters per second, field relative.
+     * @param vy      Robot velocity, meters per second, field relative.
+     * @param targetX Target position, meters.
+     * @param targetY Target position, meters.
+     */
+    public void solve(double robotX, double robotY, double vx, double vy, double targetX, double targetY) {
+        double dx = targetX - robotX;
+        double dy = targetY - robotY;
+        double tof = table.getTimeOfFlight(Math.hypot(dx, dy));
+        iterations = 0;
+        while (true) {
+            aimX = targetX - vx * tof;
+            aimY = targetY - vy * tof;
+            dx = aimX - robotX;
+            dy = aimY - robotY;
+            range = Math.hypot(dx, dy);
+            double next = table.getTimeOfFlight(range);
+            iterations++;
+            boolean converged = Math.abs(next - tof) < toleranceSeconds;
+            tof = next;
+            if (converged || iterations >= maxIterations) {
+                break;
+            }
+        }
+        timeOfFlight = tof;
+        rpm = table.getRPM(range);
+        heading = Math.atan2(dy, dx) + table.getHeadingOffset(range);
+    }
+
+    /** @return Range to the virtual target, in meters. */
+    public double getRange() {
+        return range;
+    }
+
+    /** @return Flywheel speed for the shot. */
+    public double getRPM() {
+        return rpm;
+    }
+
+    /** @return Field-relative heading to shoot along, in radians. */
+    public double getHeading() {
+        return heading;
+    }
+
+    /** @return Time of flight of the shot, in seconds. */
+    public double getTimeOfFlight() {
+        return timeOfFlight;
+    }
+
+    /** @return Where the shot is aimed, in meters. */
+    public double getAimX() {
+        return aimX;
+    }
+
+    /** @return Where the shot is aimed, in meters. */
+    public double getAimY() {
+        return aimY;
+    }
+
+    /** @return Time of flight refinements in the last solve. */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** @return Whether the last solution's range is covered by the table. */
+    public boolean isInRange() {
+        return range >= table.getMinRange() && range <= table.getMaxRange();
+    }
+}
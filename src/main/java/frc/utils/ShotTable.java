@@ -0,0 +1,158 @@
+package frc.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Shots by range: flywheel RPM, heading offset and time of flight for each
+ * distance to the speaker, linearly interpolated in between. Ranges beyond
+ * either end of the table get the end row's values.
+ * <p>
+ * A table only counts as {@link #isMeasured() measured} if its file says so;
+ * until then the rows are placeholders and nothing should shoot from them.
+ * <p>
+ * The rows are kept in parallel primitive arrays sorted by range, and a
+ * lookup is a binary search plus a lerp, so it allocates nothing.
+ */
+public class ShotTable {
+
+    private final double[] ranges;
+    private final double[] rpms;
+    private final double[] headingOffsets;
+    private final double[] timesOfFlight;
+    private final boolean measured;
+
+    /**
+     * Creates a table that is not marked as measured.
+     *
+     * @see #ShotTable(double[], double[], double[], double[], boolean)
+     */
+    public ShotTable(double[] ranges, double[] rpms, double[] headingOffsets, double[] timesOfFlight) {
+        this(ranges, rpms, headingOffsets, timesOfFlight, false);
+    }
+
+    /**
+     * @param ranges         Distances to the target, in meters, strictly
+     *                       increasing.
+     * @param rpms           Flywheel speed for each range.
+     * @param headingOffsets Heading correction for each range, in radians,
+     *                       added to the direction of the target.
+     * @param timesOfFlight  Seconds from leaving the flywheel to reaching the
+     *                       target, for each range.
+     * @param measured       Whether the rows were measured on the robot.
+     */
+    public ShotTable(double[] ranges, double[] rpms, double[] headingOffsets, double[] timesOfFlight,
+            boolean measured) {
+        int count = ranges.length;
+        if (count == 0 || rpms.length != count || headingOffsets.length != count || timesOfFlight.length != count) {
+            throw new IllegalArgumentException("Shot table columns must be non-empty and the same length");
+        }
+        for (int i = 1; i < count; i++) {
+            if (!(ranges[i] > ranges[i - 1])) {
+                throw new IllegalArgumentException("Shot table ranges must be strictly increasing");
+            }
+        }
+        this.ranges = ranges.clone();
+        this.rpms = rpms.clone();
+        this.headingOffsets = headingOffsets.clone();
+        this.timesOfFlight = timesOfFlight.clone();
+        this.measured = measured;
+    }
+
+    /**
+     * Reads a table from a {@code shots} array of objects with {@code range}
+     * (meters), {@code rpm}, {@code headingOffsetDegrees} and
+     * {@code timeOfFlight} (seconds). Rows may be in any order. The table is
+     * only measured if the file has {@code "measured": true}.
+     */
+    public static ShotTable fromJson(Reader reader) throws IOException, ParseException {
+        JSONObject json = (JSONObject) new JSONParser().parse(reader);
+        JSONArray shots = (JSONArray) json.get("shots");
+        int count = shots.size();
+        double[][] rows = new double[count][];
+        for (int i = 0; i < count; i++) {
+            JSONObject shot = (JSONObject) shots.get(i);
+            rows[i] = new double[] {
+                    ((Number) shot.get("range")).doubleValue(),
+                    ((Number) shot.get("rpm")).doubleValue(),
+                    Math.toRadians(((Number) shot.get("headingOffsetDegrees")).doubleValue()),
+                    ((Number) shot.get("timeOfFlight")).doubleValue()
+            };
+        }
+        Arrays.sort(rows, (a, b) -> Double.compare(a[0], b[0]));
+
+        double[] ranges = new double[count];
+        double[] rpms = new double[count];
+        double[] headingOffsets = new double[count];
+        double[] timesOfFlight = new double[count];
+        for (int i = 0; i < count; i++) {
+            ranges[i] = rows[i][0];
+            rpms[i] = rows[i][1];
+            headingOffsets[i] = rows[i][2];
+            timesOfFlight[i] = rows[i][3];
+        }
+        return new ShotTable(ranges, rpms, headingOffsets, timesOfFlight, Boolean.TRUE.equals(json.get("measured")));
+    }
+
+    public int size() {
+        return ranges.length;
+    }
+
+    public double getMinRange() {
+        return ranges[0];
+    }
+
+    public double getMaxRange() {
+        return ranges[ranges.length - 1];
+    }
+
+    /** @return Whether the rows were measured on the robot, rather than placeholders. */
+    public boolean isMeasured() {
+        return measured;
+    }
+
+    /** @return Flywheel RPM for the range, in meters. */
+    public double getRPM(double range) {
+        return interpolate(rpms, range);
+    }
+
+    /** @return Heading offset for the range, in radians. */
+    public double getHeadingOffset(double range) {
+        return interpolate(headingOffsets, range);
+    }
+
+    /** @return Time of flight for the range, in seconds. */
+    public double getTimeOfFlight(double range) {
+        return interpolate(timesOfFlight, range);
+    }
+
+    private double interpolate(double[] column, double range) {
+        int last = ranges.length - 1;
+        if (!(range > ranges[0])) {
+            // Also catches NaN
+            return column[0];
+        }
+        if (range >= ranges[last]) {
+            return column[last];
+        }
+        // Largest row at or below the range
+        int low = 0;
+        int high = last;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (ranges[mid] <= range) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        double t = (range - ranges[low]) / (ranges[high] - ranges[low]);
+        return column[low] + (column[high] - column[low]) * t;
+    }
+}
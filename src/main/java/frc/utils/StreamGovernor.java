@@ -0,0 +1,131 @@
+package frc.utils;
+
+/**
+ * Picks a quality level for a video stream so its measured data rate stays
+ * under a bandwidth cap. Levels run from best (0) to cheapest, each with a
+ * relative cost, roughly pixels times frames per second.
+ * <p>
+ * A level is dropped once the stream has been over the cap for
+ * {@code downSeconds}. A level is regained once the measured rate, scaled by
+ * the better level's cost, predicts it would fit within {@code headroom} of
+ * the cap for {@code upSeconds}. After every change the measurements are
+ * ignored for {@code settleSeconds} while the rate average catches up, so a
+ * change is never judged on the old level's numbers. Time is passed in by the
+ * caller like {@link HeadingController}.
+ */
+public class StreamGovernor {
+
+    private final double[] costs;
+    private final double downSeconds;
+    private final double upSeconds;
+    private final double settleSeconds;
+    private final double headroom;
+    private double capBytesPerSecond;
+
+    private int level;
+    private double settleUntil = Double.NEGATIVE_INFINITY;
+    private double overSince = Double.NaN;
+    private double underSince = Double.NaN;
+
+    /**
+     * @param costs             Relative cost of each level, decreasing.
+     * @param capBytesPerSecond Bandwidth cap.
+     * @param startLevel        Level to start at.
+     * @param downSeconds       How long over the cap before dropping a level.
+     * @param upSeconds         How long a better level must be predicted to
+     *                          fit before moving up to it.
+     * @param settleSeconds     How long to ignore measurements after a change.
+     * @param headroom          Share of the cap a better level must fit in.
+     */
+    public StreamGovernor(double[] costs, double capBytesPerSecond, int startLevel, double downSeconds,
+            double upSeconds, double settleSeconds, double headroom) {
+        if (costs.length == 0) {
+            throw new IllegalArgumentException("A stream needs at least one level");
+        }
+        for (int i = 1; i < costs.length; i++) {
+            if (!(costs[i] > 0 && costs[i] <= costs[i - 1])) {
+                throw new IllegalArgumentException("Level costs must be positive and decreasing");
+            }
+        }
+        if (startLevel < 0 || startLevel >= costs.length) {
+            throw new IllegalArgumentException("No level " + startLevel);
+        }
+        this.costs = costs.clone();
+        this.capBytesPerSecond = capBytesPerSecond;
+        this.level = startLevel;
+        this.downSeconds = downSeconds;
+        this.upSeconds = upSeconds;
+        this.settleSeconds = settleSeconds;
+        this.headroom = headroom;
+    }
+
+    /**
+     * Feeds one measurement.
+     *
+     * @param bytesPerSecond Measured data rate of the stream at the current
+     *                       level; 0 or less (nothing streaming, camera
+     *                       unplugged) says nothing about the level.
+     * @param nowSeconds     The current time.
+     * @return The level to stream at.
+     */
+    public int update(double bytesPerSecond, double nowSeconds) {
+        if (nowSeconds < settleUntil || !(bytesPerSecond > 0)) {
+            overSince = Double.NaN;
+            underSince = Double.NaN;
+            return level;
+        }
+
+        if (bytesPerSecond > capBytesPerSecond) {
+            underSince = Double.NaN;
+            if (Double.isNaN(overSince)) {
+                overSince = nowSeconds;
+            }
+            if (level < costs.length - 1 && nowSeconds - overSince >= downSeconds) {
+                change(level + 1, nowSeconds);
+            }
+            return level;
+        }
+        overSince = Double.NaN;
+
+        double predicted = level > 0 ? bytesPerSecond * costs[level - 1] / costs[level] : Double.POSITIVE_INFINITY;
+        if (predicted > capBytesPerSecond * headroom) {
+            underSince = Double.NaN;
+            return level;
+        }
+        if (Double.isNaN(underSince)) {
+            underSince = nowSeconds;
+        }
+        if (nowSeconds - underSince >= upSeconds) {
+            change(level - 1, nowSeconds);
+        }
+        return level;
+    }
+
+    /**
+     * Starts the settle time over without changing level, e.g. when the
+     * stream switches to another camera.
+     */
+    public void restart(double nowSeconds) {
+        change(level, nowSeconds);
+    }
+
+    private void change(int newLevel, double nowSeconds) {
+        level = newLevel;
+        settleUntil = nowSeconds + settleSeconds;
+        overSince = Double.NaN;
+        underSince = Double.NaN;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public double getCapBytesPerSecond() {
+        return capBytesPerSecond;
+    }
+
+    /** Changes the cap; the current level is judged against it from the next update. */
+    public void setCapBytesPerSecond(double capBytesPerSecond) {
+        this.capBytesPerSecond = capBytesPerSecond;
+    }
+}
@@ -0,0 +1,58 @@
+package frc.utils;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * The pure math between the drive inputs and the module setpoints, kept apart
+ * from the SPARK MAXes so the drive subsystem, the swerve modules and the
+ * benchmarks all run the same code.
+ */
+public final class SwerveDriveMath {
+
+    private SwerveDriveMath() {
+    }
+
+    /**
+     * Converts chassis speeds into module states, scaled down together so no
+     * wheel is asked to go faster than it can.
+     *
+     * @param kinematics    Kinematics of the drivetrain.
+     * @param xSpeed        Speed in the x direction (forward), in m/s.
+     * @param ySpeed        Speed in the y direction (sideways), in m/s.
+     * @param rot           Angular rate, in rad/s.
+     * @param fieldRelative Whether x and y are relative to the field.
+     * @param heading       Robot heading, only used when field relative.
+     * @param maxSpeed      Fastest a module can drive, in m/s.
+     * @return Module states, in the kinematics' module order.
+     */
+    public static SwerveModuleState[] toModuleStates(SwerveDriveKinematics kinematics, double xSpeed,
+            double ySpeed, double rot, boolean fieldRelative, Rotation2d heading, double maxSpeed) {
+        SwerveModuleState[] states = kinematics.toSwerveModuleStates(
+                fieldRelative
+                        ? ChassisSpeeds.fromFieldRelativeSpeeds(xSpeed, ySpeed, rot, heading)
+                        : new ChassisSpeeds(xSpeed, ySpeed, rot));
+        SwerveDriveKinematics.desaturateWheelSpeeds(states, maxSpeed);
+        return states;
+    }
+
+    /**
+     * Turns a chassis relative module state into the setpoint for that module:
+     * the chassis angular offset is applied, then the state is optimized so the
+     * wheel never turns further than 90 degrees.
+     *
+     * @param desiredState         Chassis relative state.
+     * @param chassisAngularOffset Angle of the module relative to the chassis,
+     *                             in radians.
+     * @param turningPosition      Current angle of the module, in radians.
+     * @return The state to send to the module.
+     */
+    public static SwerveModuleState toModuleSetpoint(SwerveModuleState desiredState, double chassisAngularOffset,
+            double turningPosition) {
+        SwerveModuleState corrected = new SwerveModuleState(desiredState.speedMetersPerSecond,
+                desiredState.angle.plus(Rotation2d.fromRadians(chassisAngularOffset)));
+        return SwerveModuleState.optimize(corrected, new Rotation2d(turningPosition));
+    }
+}
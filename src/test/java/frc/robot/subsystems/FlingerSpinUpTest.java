@@ -0,0 +1,139 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.Constants.FlingerConstants;
+
+/**
+ * Simulated shots of the flinger, against the old open-loop command. Two
+ * wheels with slightly different time constants, both loaded below what the
+ * feedforward expects, spin up from rest in 20 ms loops. The old command drove
+ * them at a fixed duty cycle and fed the note right away; the new one runs the
+ * velocity loops and feeds once they are in tolerance. Waiting costs time to
+ * the shot, in exchange for the note leaving at the planned speed.
+ */
+class FlingerSpinUpTest {
+  private static final double kLoopSeconds = 0.02;
+  private static final double kNoteTravelSeconds = 0.15;
+  private static final double kTimeoutSeconds = 3;
+  private static final double kWheel1TimeConstant = FlingerConstants.FLINGER_SIM_TIME_CONSTANT;
+  private static final double kWheel2TimeConstant = FlingerConstants.FLINGER_SIM_TIME_CONSTANT * 1.2;
+  private static final double kTarget = FlingerConstants.FLINGER_SHOOT_SPEED * FlingerConstants.FLINGER_MAX_RPM;
+
+  /** When the note was fed and how far off the wheels were when it got there. */
+  private static final class Shot {
+    double feedSeconds = Double.NaN;
+    double wheel1Error = Double.NaN;
+    double wheel2Error = Double.NaN;
+  }
+
+  @Test
+  void velocityLoopShootsAtSpeed() {
+    Shot shot = simulate(true);
+    assertTrue(shot.feedSeconds < FlingerConstants.FLINGER_SPIN_UP_TIMEOUT_SECONDS,
+        "fed after " + shot.feedSeconds + " s");
+    assertEquals(0, shot.wheel1Error, FlingerConstants.FLINGER_RPM_TOLERANCE);
+    assertEquals(0, shot.wheel2Error, FlingerConstants.FLINGER_RPM_TOLERANCE);
+  }
+
+  @Test
+  void feedingAtOnceShootsSoonerButSlow() {
+    Shot old = simulate(false);
+    Shot shot = simulate(true);
+    assertEquals(0, old.feedSeconds);
+    assertTrue(shot.feedSeconds > old.feedSeconds + 0.5, "velocity loop fed after " + shot.feedSeconds + " s");
+    assertTrue(old.wheel1Error < -10 * FlingerConstants.FLINGER_RPM_TOLERANCE, "wheel 1 off by " + old.wheel1Error);
+    assertTrue(old.wheel2Error < -10 * FlingerConstants.FLINGER_RPM_TOLERANCE, "wheel 2 off by " + old.wheel2Error);
+  }
+
+  @Test
+  void velocityLoopRecoversFromANoteSooner() {
+    double closedLoop = recoverySeconds(true);
+    double openLoop = recoverySeconds(false);
+    assertTrue(closedLoop < openLoop, "velocity loop " + closedLoop + " s, open loop " + openLoop + " s");
+  }
+
+  private static FlingerWheelSim[] wheels(boolean velocityLoop) {
+    FlingerWheelSim wheel1 = new FlingerWheelSim(kWheel1TimeConstant);
+    FlingerWheelSim wheel2 = new FlingerWheelSim(kWheel2TimeConstant);
+    if (velocityLoop) {
+      wheel1.setVelocity(kTarget);
+      wheel2.setVelocity(kTarget);
+    } else {
+      // What fling() used to do: a fixed duty cycle
+      wheel1.setDutyCycle(FlingerConstants.FLINGER_SHOOT_SPEED);
+      wheel2.setDutyCycle(FlingerConstants.FLINGER_SHOOT_SPEED);
+    }
+    return new FlingerWheelSim[] { wheel1, wheel2 };
+  }
+
+  private static Shot simulate(boolean velocityLoop) {
+    FlingerWheelSim[] wheels = wheels(velocityLoop);
+    Shot shot = new Shot();
+    double time = 0;
+    double inToleranceSince = Double.NaN;
+    if (!velocityLoop) {
+      shot.feedSeconds = 0;
+    }
+    while (Double.isNaN(shot.feedSeconds) && time < kTimeoutSeconds) {
+      time += kLoopSeconds;
+      wheels[0].update(kLoopSeconds);
+      wheels[1].update(kLoopSeconds);
+      // Same readiness rule as Flinger.isAtSpeed()
+      boolean inTolerance = Math.abs(wheels[0].getRPM() - kTarget) < FlingerConstants.FLINGER_RPM_TOLERANCE
+          && Math.abs(wheels[1].getRPM() - kTarget) < FlingerConstants.FLINGER_RPM_TOLERANCE;
+      if (!inTolerance) {
+        inToleranceSince = Double.NaN;
+      } else if (Double.isNaN(inToleranceSince)) {
+        inToleranceSince = time;
+      }
+      if (!Double.isNaN(inToleranceSince)
+          && time - inToleranceSince >= FlingerConstants.FLINGER_READY_DEBOUNCE_SECONDS - 1e-9) {
+        shot.feedSeconds = time;
+      }
+    }
+    if (Double.isNaN(shot.feedSeconds)) {
+      return shot;
+    }
+
+    double shotTime = shot.feedSeconds + kNoteTravelSeconds;
+    while (time < shotTime - 1e-9) {
+      time += kLoopSeconds;
+      wheels[0].update(kLoopSeconds);
+      wheels[1].update(kLoopSeconds);
+    }
+    shot.wheel1Error = wheels[0].getRPM() - kTarget;
+    shot.wheel2Error = wheels[1].getRPM() - kTarget;
+    return shot;
+  }
+
+  /**
+   * Lets the wheels settle, takes the speed a note squeezes out of them, and
+   * returns how long until both are back within tolerance of their speed
+   * before the note.
+   */
+  private static double recoverySeconds(boolean velocityLoop) {
+    FlingerWheelSim[] wheels = wheels(velocityLoop);
+    for (double time = 0; time < kTimeoutSeconds; time += kLoopSeconds) {
+      wheels[0].update(kLoopSeconds);
+      wheels[1].update(kLoopSeconds);
+    }
+    double settled1 = wheels[0].getRPM();
+    double settled2 = wheels[1].getRPM();
+    wheels[0].applySpeedLoss(FlingerConstants.FLINGER_SIM_NOTE_SPEED_LOSS_RPM);
+    wheels[1].applySpeedLoss(FlingerConstants.FLINGER_SIM_NOTE_SPEED_LOSS_RPM);
+
+    double time = 0;
+    while (time < kTimeoutSeconds
+        && (Math.abs(wheels[0].getRPM() - settled1) >= FlingerConstants.FLINGER_RPM_TOLERANCE
+            || Math.abs(wheels[1].getRPM() - settled2) >= FlingerConstants.FLINGER_RPM_TOLERANCE)) {
+      time += kLoopSeconds;
+      wheels[0].update(kLoopSeconds);
+      wheels[1].update(kLoopSeconds);
+    }
+    return time;
+  }
+}
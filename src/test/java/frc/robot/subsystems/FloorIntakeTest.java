@@ -0,0 +1,85 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants.IntakeConstants;
+import frc.robot.subsystems.NoteTracker.State;
+
+/**
+ * Toggles the simulated beam break DIOs under a real {@link FloorIntake} and
+ * waits for its interrupt threads to pick the edges up, including a note that
+ * crosses both sensors within one robot loop.
+ */
+class FloorIntakeTest {
+  private static final long kInterruptTimeoutMillis = 1000;
+
+  @BeforeAll
+  static void initializeHal() {
+    assertTrue(HAL.initialize(500, 0));
+    SimHooks.pauseTiming();
+  }
+
+  @AfterAll
+  static void resumeTiming() {
+    SimHooks.resumeTiming();
+  }
+
+  @Test
+  void interruptsTrackANoteThroughTheIntake() throws InterruptedException {
+    FloorIntake intake = new FloorIntake();
+    NoteTracker tracker = intake.getNoteTracker();
+    // Simulated inputs start out high, so clear them first
+    DIOSim bot = new DIOSim(IntakeConstants.BOT_DIO_SENSOR);
+    DIOSim top = new DIOSim(IntakeConstants.TOP_DIO_SENSOR);
+    bot.setValue(false);
+    top.setValue(false);
+    long deadline = System.currentTimeMillis() + kInterruptTimeoutMillis;
+    while (tracker.getState() != State.NONE && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(State.NONE, tracker.getState());
+
+    long edges = tracker.getEdges();
+    SimHooks.stepTiming(0.005);
+    bot.setValue(true);
+    edges = awaitEdges(tracker, edges + 1);
+    assertEquals(State.ENTERING, tracker.getState());
+    SimHooks.stepTiming(0.005);
+    top.setValue(true);
+    edges = awaitEdges(tracker, edges + 1);
+    assertEquals(State.CENTERED, tracker.getState());
+
+    // Fling, with every edge well inside one loop
+    intake.setFeeding(true);
+    SimHooks.stepTiming(0.004);
+    bot.setValue(false);
+    SimHooks.stepTiming(0.004);
+    top.setValue(false);
+    // Robot time is paused, so this is exactly when the edge happened
+    double exitTime = Timer.getFPGATimestamp();
+    awaitEdges(tracker, edges + 2);
+    assertEquals(State.NONE, tracker.getState());
+    assertEquals(1, tracker.getNotesExited());
+    assertEquals(exitTime, tracker.getExitTimestamp(), 0.001);
+    intake.setFeeding(false);
+  }
+
+  /** Waits for the interrupt threads to report edges, up to a timeout. */
+  private static long awaitEdges(NoteTracker tracker, long edges) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + kInterruptTimeoutMillis;
+    while (tracker.getEdges() < edges && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(tracker.getEdges() >= edges, "edges reported " + tracker.getEdges() + "/" + edges);
+    return tracker.getEdges();
+  }
+}
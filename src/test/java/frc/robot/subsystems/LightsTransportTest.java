@@ -0,0 +1,140 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives {@link LightsTransport} against a recording endpoint and a simulated
+ * clock: every strip goes out as its own one-byte write, only the newest byte
+ * per strip is sent, and aborted writes are retried with backoff.
+ */
+class LightsTransportTest {
+  private static final long kMillis = 1_000_000L;
+
+  private final long[] m_now = { 0 };
+
+  private static byte animation(int strip, int animation) {
+    return (byte) (strip << 5 | animation);
+  }
+
+  private static void assertWrites(List<byte[]> writes, byte... expected) {
+    assertEquals(expected.length, writes.size(), "number of writes");
+    for (int i = 0; i < expected.length; i++) {
+      assertArrayEquals(new byte[] { expected[i] }, writes.get(i), "write " + i);
+    }
+  }
+
+  @Test
+  void sendsTheNewestByteForEachStripInItsOwnWrite() {
+    LightsTransport.FakeEndpoint endpoint = new LightsTransport.FakeEndpoint();
+    LightsTransport transport = new LightsTransport(endpoint, 4, () -> m_now[0]);
+
+    transport.queue(2, animation(2, 4));
+    m_now[0] += 3 * kMillis;
+    transport.queue(1, animation(1, 2));
+    transport.queue(1, animation(1, 3));
+    m_now[0] += 2 * kMillis;
+    assertTrue(transport.sendPending());
+
+    assertWrites(endpoint.getWrites(), animation(1, 3), animation(2, 4));
+    assertEquals(2, transport.getWritesSent());
+    assertEquals(1, transport.getSupersededCount());
+    assertEquals(0.005, transport.getLastLatencySeconds(), 1e-12);
+  }
+
+  @Test
+  void changesQueuedDuringASendGoOutInTheNextOne() {
+    List<byte[]> writes = new ArrayList<>();
+    LightsTransport[] transport = new LightsTransport[1];
+    transport[0] = new LightsTransport((data, size) -> {
+      writes.add(new byte[] { data[0] });
+      if (writes.size() == 1) {
+        transport[0].queue(0, animation(0, 7));
+        transport[0].queue(3, animation(3, 1));
+      }
+      return false;
+    }, 4, () -> m_now[0]);
+
+    transport[0].queue(0, animation(0, 5));
+    transport[0].queue(3, animation(3, 6));
+    transport[0].sendPending();
+    assertWrites(writes, animation(0, 5), animation(3, 6));
+
+    transport[0].sendPending();
+    assertWrites(writes, animation(0, 5), animation(3, 6), animation(0, 7), animation(3, 1));
+  }
+
+  @Test
+  void retriesAbortedWritesWithBackoff() {
+    LightsTransport.FakeEndpoint endpoint = new LightsTransport.FakeEndpoint();
+    endpoint.failNext(3);
+    LightsTransport transport = new LightsTransport(endpoint, 4, () -> m_now[0]);
+
+    transport.queue(0, animation(0, 5));
+    transport.queue(3, animation(3, 6));
+    assertTrue(transport.sendPending());
+    // 10, 20 and 40 ms between the attempts
+    for (long backoff : new long[] { 10, 20, 40 }) {
+      m_now[0] += (backoff - 1) * kMillis;
+      assertFalse(transport.sendPending(), "sent before the " + backoff + " ms backoff ran out");
+      m_now[0] += kMillis;
+      assertTrue(transport.sendPending());
+    }
+
+    byte first = animation(0, 5);
+    assertWrites(endpoint.getWrites(), first, first, first, first, animation(3, 6));
+    assertEquals(3, transport.getFailedWrites());
+    assertEquals(2, transport.getWritesSent());
+    assertEquals(0.070, transport.getLastLatencySeconds(), 1e-12);
+
+    // A success resets the backoff
+    endpoint.failNext(1);
+    transport.queue(1, animation(1, 1));
+    transport.sendPending();
+    m_now[0] += 10 * kMillis;
+    assertTrue(transport.sendPending());
+    assertEquals(3, transport.getWritesSent());
+  }
+
+  @Test
+  void onlyTheUnsentStripsAreRetried() {
+    List<byte[]> writes = new ArrayList<>();
+    LightsTransport transport = new LightsTransport((data, size) -> {
+      writes.add(new byte[] { data[0] });
+      return writes.size() == 2;
+    }, 4, () -> m_now[0]);
+
+    transport.queue(0, animation(0, 1));
+    transport.queue(1, animation(1, 1));
+    transport.queue(2, animation(2, 1));
+    transport.sendPending();
+    m_now[0] += 10 * kMillis;
+    transport.sendPending();
+
+    assertWrites(writes, animation(0, 1), animation(1, 1), animation(1, 1), animation(2, 1));
+    assertEquals(3, transport.getWritesSent());
+  }
+
+  @Test
+  void newerAnimationReplacesAFailedOne() {
+    LightsTransport.FakeEndpoint endpoint = new LightsTransport.FakeEndpoint();
+    endpoint.failNext(1);
+    LightsTransport transport = new LightsTransport(endpoint, 4, () -> m_now[0]);
+
+    transport.queue(0, animation(0, 1));
+    transport.queue(1, animation(1, 1));
+    transport.sendPending();
+    transport.queue(0, animation(0, 2));
+    m_now[0] += 10 * kMillis;
+    transport.sendPending();
+
+    assertWrites(endpoint.getWrites(), animation(0, 1), animation(0, 2), animation(1, 1));
+  }
+}
@@ -0,0 +1,138 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import frc.robot.subsystems.NoteTracker.State;
+
+/** Scripted beam break edges straight into a {@link NoteTracker}. */
+class NoteTrackerTest {
+  private static final int BOT = NoteTracker.BOT_SENSOR;
+  private static final int TOP = NoteTracker.TOP_SENSOR;
+
+  private final List<State> m_changes = new ArrayList<>();
+  private NoteTracker m_tracker;
+
+  @BeforeEach
+  void setup() {
+    m_changes.clear();
+    m_tracker = new NoteTracker(m_changes::add);
+  }
+
+  @Test
+  void intakeWithOverTravel() {
+    m_tracker.onEdge(BOT, true, 1.000);
+    assertEquals(State.ENTERING, m_tracker.getState());
+    m_tracker.onEdge(TOP, true, 1.050);
+    assertEquals(State.CENTERED, m_tracker.getState());
+    assertEquals(1.050, m_tracker.getCenteredTimestamp(), 0);
+    m_tracker.onEdge(BOT, false, 1.055);
+    assertEquals(State.OVER_TRAVEL, m_tracker.getState());
+    m_tracker.onEdge(BOT, true, 1.090);
+    assertEquals(State.CENTERED, m_tracker.getState());
+    assertEquals(1.090, m_tracker.getCenteredTimestamp(), 0);
+    assertEquals(List.of(State.ENTERING, State.CENTERED, State.OVER_TRAVEL, State.CENTERED), m_changes);
+  }
+
+  @Test
+  void flingCountsTheExit() {
+    m_tracker.sync(true, true, 1.0);
+    m_tracker.setFeeding(true, 2.000);
+    m_tracker.onEdge(BOT, false, 2.030);
+    assertEquals(State.EXITING, m_tracker.getState());
+    m_tracker.onEdge(TOP, false, 2.041);
+    assertEquals(State.NONE, m_tracker.getState());
+    assertEquals(1, m_tracker.getNotesExited());
+    assertEquals(2.041, m_tracker.getExitTimestamp(), 0);
+  }
+
+  @Test
+  void fastPassInsideOneLoopCounts() {
+    m_tracker.setFeeding(true, 3.000);
+    m_tracker.onEdge(BOT, true, 3.001);
+    m_tracker.onEdge(TOP, true, 3.004);
+    m_tracker.onEdge(BOT, false, 3.008);
+    m_tracker.onEdge(TOP, false, 3.012);
+    assertEquals(State.NONE, m_tracker.getState());
+    assertEquals(1, m_tracker.getNotesExited());
+    assertEquals(3.012, m_tracker.getExitTimestamp(), 0);
+    assertEquals(0, m_tracker.getReordered());
+  }
+
+  @Test
+  void lateEdgeFromOtherSensorIsReordered() {
+    // Bottom sensor thread runs late: the note is centered at 1.050, not
+    // entering
+    m_tracker.onEdge(TOP, true, 1.050);
+    assertEquals(State.OVER_TRAVEL, m_tracker.getState());
+    m_tracker.onEdge(BOT, true, 1.000);
+    assertEquals(State.CENTERED, m_tracker.getState());
+    assertEquals(1.050, m_tracker.getCenteredTimestamp(), 0);
+    assertEquals(1.050, m_tracker.getStateTimestamp(), 0);
+    assertEquals(1, m_tracker.getReordered());
+    assertEquals(State.CENTERED, m_changes.get(m_changes.size() - 1));
+  }
+
+  @Test
+  void fastPassWithEdgesInThreadOrder() {
+    // Both top edges before either bottom edge, as two interrupt threads can
+    // deliver them
+    m_tracker.setFeeding(true, 3.000);
+    m_tracker.onEdge(TOP, true, 3.004);
+    m_tracker.onEdge(TOP, false, 3.012);
+    m_tracker.onEdge(BOT, true, 3.001);
+    m_tracker.onEdge(BOT, false, 3.008);
+
+    assertEquals(State.NONE, m_tracker.getState());
+    assertEquals(1, m_tracker.getNotesExited());
+    assertEquals(3.012, m_tracker.getExitTimestamp(), 0);
+    assertEquals(3.004, m_tracker.getCenteredTimestamp(), 0);
+    assertEquals(2, m_tracker.getReordered());
+  }
+
+  @Test
+  void lateFeedingChangeIsReordered() {
+    m_tracker.sync(true, true, 1.0);
+    // The note left past the top sensor after feeding started, so it is an
+    // exit, even though the feeding change was reported last
+    m_tracker.onEdge(BOT, false, 2.030);
+    m_tracker.onEdge(TOP, false, 2.041);
+    m_tracker.setFeeding(true, 2.000);
+    assertEquals(State.NONE, m_tracker.getState());
+    assertEquals(1, m_tracker.getNotesExited());
+  }
+
+  @Test
+  void edgeOlderThanSyncIsIgnored() {
+    m_tracker.sync(true, false, 5.0);
+    m_tracker.onEdge(BOT, false, 4.9);
+    assertEquals(State.ENTERING, m_tracker.getState());
+    assertEquals(1, m_tracker.getEdges());
+  }
+
+  @Test
+  void keepsTrackingPastTheHistory() {
+    // Many notes in order, more inputs than the history holds
+    int notes = NoteTracker.kHistory;
+    m_tracker.setFeeding(true, 0);
+    for (int i = 1; i <= notes; i++) {
+      m_tracker.onEdge(BOT, true, i);
+      m_tracker.onEdge(TOP, true, i + 0.1);
+      m_tracker.onEdge(BOT, false, i + 0.2);
+      m_tracker.onEdge(TOP, false, i + 0.3);
+    }
+    assertEquals(notes, m_tracker.getNotesExited());
+
+    // A late edge inside the history still lands in the right place
+    m_tracker.onEdge(TOP, true, notes + 1.1);
+    m_tracker.onEdge(BOT, true, notes + 1.0);
+    assertEquals(State.CENTERED, m_tracker.getState());
+    assertEquals(notes + 1.1, m_tracker.getCenteredTimestamp(), 0);
+    assertEquals(notes, m_tracker.getNotesExited());
+  }
+}
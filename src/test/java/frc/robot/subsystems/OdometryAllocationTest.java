@@ -0,0 +1,63 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.utils.AllocationCounter;
+
+/**
+ * The odometry loop reads every module through {@link SwerveModule#refreshSensors()}
+ * and {@link SwerveModule#updatePosition()}. Once warmed up, that path must not
+ * allocate while the wheels drive and the turning angle holds still.
+ */
+class OdometryAllocationTest {
+  private static final int kWarmupCycles = 20_000;
+  private static final int kMeasuredCycles = 5_000;
+  private static final double kLoopSeconds = 0.02;
+
+  @BeforeAll
+  static void initializeHal() {
+    assertTrue(HAL.initialize(500, 0));
+  }
+
+  @Test
+  void modulePositionUpdateAllocatesNothing() {
+    assumeTrue(AllocationCounter.isSupported(), "JVM has no per-thread allocation accounting");
+
+    // CAN IDs well away from the drivetrain's so nothing else claims them
+    SwerveModule[] modules = new SwerveModule[4];
+    for (int i = 0; i < modules.length; i++) {
+      modules[i] = new SwerveModule(40 + 2 * i, 41 + 2 * i, 0);
+      // Straight ahead, so the distance changes every loop and the angle never does
+      modules[i].setDesiredState(new SwerveModuleState(1.0, new Rotation2d()));
+    }
+    SwerveModulePosition[] positions = new SwerveModulePosition[modules.length];
+
+    AllocationCounter counter = new AllocationCounter();
+    for (int cycle = 0; cycle < kWarmupCycles + kMeasuredCycles; cycle++) {
+      if (cycle == kWarmupCycles) {
+        counter.reset();
+      }
+      for (SwerveModule module : modules) {
+        module.simulationUpdate(kLoopSeconds);
+      }
+      counter.start();
+      for (int i = 0; i < modules.length; i++) {
+        modules[i].refreshSensors();
+        positions[i] = modules[i].updatePosition();
+      }
+      counter.stop();
+    }
+
+    assertTrue(positions[0].distanceMeters > 0, "the simulated wheels should have moved");
+    assertEquals(0.0, counter.getAverageBytes(), "bytes allocated per odometry cycle");
+  }
+}
@@ -0,0 +1,96 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Steps the odometry sampler by hand against {@link OdometrySampler.SimulatedSource}
+ * and a simulated clock, draining it like the robot loop does. No HAL and no
+ * sampler thread are needed, so the results do not depend on the machine.
+ */
+class OdometrySamplerTest {
+  private static final double kFrequencyHz = 250;
+  private static final double kFramePeriodSeconds = 0.010;
+  private static final int kReadsPerLoop = 5;
+
+  private final double[] m_now = { 0 };
+
+  private OdometrySampler sampler(double framePeriodSeconds) {
+    OdometrySampler.SimulatedSource source = new OdometrySampler.SimulatedSource(1.0, 0.5, framePeriodSeconds,
+        () -> m_now[0]);
+    return new OdometrySampler(source, () -> m_now[0], kFrequencyHz, 4);
+  }
+
+  private void read(OdometrySampler sampler, int reads) {
+    for (int i = 0; i < reads; i++) {
+      sampler.sampleOnce();
+      m_now[0] += 1 / kFrequencyHz;
+    }
+  }
+
+  @Test
+  void publishesOneSamplePerStatusFrame() {
+    OdometrySampler sampler = sampler(kFramePeriodSeconds);
+
+    read(sampler, 250);
+
+    assertEquals(100, sampler.getSampleCount(), "one sample per 10 ms frame over a second");
+    assertEquals(150, sampler.getDuplicateCount());
+  }
+
+  @Test
+  void deliversEverySampleInOrder() {
+    OdometrySampler sampler = sampler(kFramePeriodSeconds);
+
+    double[] last = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+    boolean[] ordered = { true };
+    long delivered = 0;
+    for (int loop = 0; loop < 100; loop++) {
+      read(sampler, kReadsPerLoop);
+      delivered += sampler.drain((timestamp, yaw, distances, angles) -> {
+        ordered[0] &= timestamp > last[0] && distances[0] > last[1];
+        last[0] = timestamp;
+        last[1] = distances[0];
+      });
+    }
+
+    assertEquals(sampler.getSampleCount(), delivered, "every sample is delivered");
+    assertEquals(0, sampler.getDroppedCount(), "samples dropped between loops");
+    assertTrue(ordered[0], "samples arrive oldest first, each with new readings");
+  }
+
+  @Test
+  void slowConsumerLosesTheOldestSamples() {
+    OdometrySampler sampler = sampler(0);
+
+    read(sampler, 200);
+    double[] first = { Double.NaN };
+    int delivered = sampler.drain((timestamp, yaw, distances, angles) -> {
+      if (Double.isNaN(first[0])) {
+        first[0] = timestamp;
+      }
+    });
+
+    // A quarter second at 250 Hz, rounded up to 64 slots. The oldest slot is
+    // the next one the sampler writes, so it is dropped as well.
+    assertEquals(63, delivered);
+    assertEquals(200 - 63, sampler.getDroppedCount());
+    assertEquals((200 - 63) / kFrequencyHz, first[0], 1e-9, "the newest samples are kept");
+  }
+
+  @Test
+  void measuresPeriodAndJitterOnTheClock() {
+    OdometrySampler sampler = sampler(0);
+
+    for (double periodMs : new double[] { 4, 4, 6, 4, 3 }) {
+      sampler.sampleOnce();
+      m_now[0] += periodMs * 1e-3;
+    }
+    sampler.sampleOnce();
+
+    assertEquals(0.0042, sampler.getAveragePeriodSeconds(), 1e-9);
+    assertEquals(0.002, sampler.getMaxJitterSeconds(), 1e-9);
+  }
+}
@@ -0,0 +1,105 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replays scripted streams of vision frames through
+ * {@link TagSequenceRecognizer}. Each frame is held for several frames, like a
+ * tag held up to the camera.
+ */
+class TagSequenceRecognizerTest {
+  private static final long START = TagSequenceRecognizer.START_TAG;
+  private static final long ARM = TagSequenceRecognizer.ARM_TAG;
+  private static final long END = TagSequenceRecognizer.END_TAG;
+  private static final int kHeldFrames = 5;
+
+  private final List<long[]> m_sequences = new ArrayList<>();
+  private TagSequenceRecognizer m_recognizer;
+
+  @BeforeEach
+  void createRecognizer() {
+    m_sequences.clear();
+    m_recognizer = new TagSequenceRecognizer(m_sequences::add);
+  }
+
+  /** Shows each frame to the recognizer {@link #kHeldFrames} times in a row. */
+  private void play(long[]... frames) {
+    for (long[] frame : frames) {
+      for (int i = 0; i < kHeldFrames; i++) {
+        m_recognizer.accept(frame);
+      }
+    }
+  }
+
+  private static long[] frame(long... ids) {
+    return ids;
+  }
+
+  @Test
+  void recordsTagsShownOneAtATime() {
+    play(frame(START), frame(), frame(ARM), frame(3), frame(ARM), frame(7), frame(END));
+    assertEquals(1, m_sequences.size());
+    assertArrayEquals(new long[] { 3, 7 }, m_sequences.get(0));
+  }
+
+  @Test
+  void armTagHeldNextToAnotherRecordsItOnce() {
+    play(frame(START), frame(ARM, 3), frame(3, ARM), frame(ARM, 3), frame(END));
+    assertArrayEquals(new long[] { 3 }, m_sequences.get(0));
+  }
+
+  @Test
+  void tagInTheArmingFrameIsNotRecorded() {
+    m_recognizer.accept(frame(START));
+    m_recognizer.accept(frame(9, ARM));
+    assertEquals(0, m_recognizer.getSequence().length);
+    assertTrue(m_recognizer.isArmed());
+    m_recognizer.accept(frame(9, ARM));
+    assertArrayEquals(new long[] { 9 }, m_recognizer.getSequence());
+    assertFalse(m_recognizer.isArmed());
+  }
+
+  @Test
+  void everyArmRecordsOneTag() {
+    play(frame(START), frame(ARM, 3), frame(3), frame(ARM, 3), frame(4), frame(ARM), frame(4, 8), frame(END));
+    assertArrayEquals(new long[] { 3, 3, 4 }, m_sequences.get(0));
+  }
+
+  @Test
+  void tagsBeforeStartOrWithoutArmAreIgnored() {
+    play(frame(ARM), frame(3), frame(START), frame(4), frame(6), frame(END));
+    assertEquals(0, m_sequences.size(), "an empty sequence is not reported");
+  }
+
+  @Test
+  void heldStartDoesNotKeepClearingTheSequence() {
+    play(frame(START), frame(START, ARM), frame(START, 3), frame(END));
+    assertArrayEquals(new long[] { 3 }, m_sequences.get(0));
+  }
+
+  @Test
+  void newStartDiscardsTheOldSequence() {
+    play(frame(START), frame(ARM), frame(3), frame(START), frame(ARM), frame(4), frame(END));
+    assertEquals(1, m_sequences.size());
+    assertArrayEquals(new long[] { 4 }, m_sequences.get(0));
+  }
+
+  @Test
+  void stopsAtTheMaximumLength() {
+    play(frame(START));
+    for (int i = 0; i < TagSequenceRecognizer.MAX_SEQUENCE_LENGTH + 5; i++) {
+      play(frame(ARM), frame(100 + i));
+    }
+    play(frame(END));
+    assertEquals(TagSequenceRecognizer.MAX_SEQUENCE_LENGTH, m_sequences.get(0).length);
+  }
+}
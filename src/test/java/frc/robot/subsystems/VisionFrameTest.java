@@ -0,0 +1,41 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class VisionFrameTest {
+
+  @Test
+  void findsTagsInTheBitmap() {
+    VisionFrame frame = new VisionFrame(new long[] { 7, 0, 63 }, 0, 1);
+    assertTrue(frame.isVisible(0));
+    assertTrue(frame.isVisible(7));
+    assertTrue(frame.isVisible(63));
+    assertFalse(frame.isVisible(8));
+    assertFalse(frame.isVisible(-1));
+    assertEquals(7, frame.firstId());
+  }
+
+  @Test
+  void survivesGarbageIdsFromTheNetwork() {
+    long[] ids = { 3, Long.MAX_VALUE, -5, 1L << 40, 64 };
+    VisionFrame frame = new VisionFrame(ids, 0, 1);
+    assertTrue(frame.isVisible(3));
+    assertTrue(frame.isVisible(Long.MAX_VALUE));
+    assertTrue(frame.isVisible(1L << 40));
+    assertTrue(frame.isVisible(64));
+    assertFalse(frame.isVisible(65));
+    assertFalse(frame.isVisible(-5), "negative IDs are never visible");
+    assertEquals(5, frame.getTagCount());
+  }
+
+  @Test
+  void emptyFrameSeesNothing() {
+    assertFalse(VisionFrame.EMPTY.isVisible(1));
+    assertFalse(VisionFrame.EMPTY.isVisible(100));
+    assertEquals(-1, VisionFrame.EMPTY.firstId());
+  }
+}
@@ -0,0 +1,162 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks every kind of {@link ButtonEngine} binding against scripted button
+ * states: presses, releases, held buttons, chords across controllers,
+ * debouncing in both directions and bounces shorter than the debounce.
+ */
+class ButtonEngineTest {
+
+    private static final double LOOP_SECONDS = 0.02;
+
+    private static final long A = ButtonEngine.button(0, 1);
+    private static final long B = ButtonEngine.button(0, 2);
+    private static final long BOX = ButtonEngine.button(2, 16);
+
+    /** Counts how often a binding started and stopped. */
+    private static final class Counter {
+        int starts = 0;
+        int stops = 0;
+        boolean running = false;
+
+        void start() {
+            starts++;
+            running = true;
+        }
+
+        void stop() {
+            stops++;
+            running = false;
+        }
+    }
+
+    private ButtonEngine engine;
+    private Counter counter;
+    private double time;
+
+    @BeforeEach
+    void setup() {
+        engine = new ButtonEngine();
+        counter = new Counter();
+        time = 0;
+    }
+
+    @Test
+    void onTrueFiresOnEachPress() {
+        engine.bind(A, 0, true, counter::start, null);
+        play(0, A, A, A, 0, A, 0);
+        assertEquals(2, counter.starts);
+    }
+
+    @Test
+    void onFalseFiresOnEachRelease() {
+        engine.bind(A, 0, false, counter::start, null);
+        play(0, A, A, 0, 0, A, 0);
+        assertEquals(2, counter.starts);
+    }
+
+    @Test
+    void whileTrueStartsAndStops() {
+        engine.bind(A, 0, true, counter::start, counter::stop);
+        play(0, A, A, 0);
+        assertEquals(1, counter.starts);
+        assertEquals(1, counter.stops);
+        assertFalse(counter.running);
+    }
+
+    @Test
+    void whileFalseStartsOnReleaseAndStopsOnPress() {
+        play(A);
+        engine.bind(A, 0, false, counter::start, counter::stop);
+        play(0, 0);
+        assertEquals(1, counter.starts);
+        assertTrue(counter.running);
+        play(A);
+        assertEquals(1, counter.stops);
+        assertFalse(counter.running);
+    }
+
+    @Test
+    void toggleFlipsOnEachPress() {
+        engine.bind(A, 0, true, () -> {
+            if (counter.running) {
+                counter.stop();
+            } else {
+                counter.start();
+            }
+        }, null);
+        play(A, 0, A, 0, A, 0);
+        assertEquals(2, counter.starts);
+        assertEquals(1, counter.stops);
+        assertTrue(counter.running);
+    }
+
+    @Test
+    void chordNeedsAllItsButtons() {
+        engine.bind(A | BOX, 0, true, counter::start, counter::stop);
+        play(A, A | B, A | B | BOX);
+        assertEquals(1, counter.starts, "chord needs all its buttons");
+        play(B | BOX);
+        assertEquals(1, counter.stops, "chord ends when any is released");
+        play(A | BOX, A | B | BOX);
+        assertEquals(2, counter.starts, "other buttons do not retrigger a chord");
+        assertEquals(1, counter.stops);
+    }
+
+    @Test
+    void chordAndItsButtonsBothFire() {
+        Counter chord = new Counter();
+        engine.bind(A, 0, true, counter::start, null);
+        engine.bind(A | B, 0, true, chord::start, null);
+        play(A, A | B);
+        assertEquals(1, counter.starts);
+        assertEquals(1, chord.starts);
+    }
+
+    @Test
+    void debounceWaitsForASteadyChord() {
+        int binding = engine.bind(A, 0.05, true, counter::start, counter::stop);
+        play(0, A, A);
+        assertEquals(0, counter.starts, "debounced press waits");
+        assertFalse(engine.isActive(binding));
+        play(A, A);
+        assertEquals(1, counter.starts, "debounced press fires once steady");
+        assertTrue(engine.isActive(binding));
+        play(0, A, A, A, A);
+        assertEquals(0, counter.stops, "bounce shorter than the debounce is ignored");
+        assertEquals(1, counter.starts);
+        play(0, 0, 0, 0);
+        assertEquals(1, counter.stops, "debounced release fires once steady");
+        assertFalse(engine.isActive(binding));
+        play(A, 0, A, 0, A, 0);
+        assertEquals(1, counter.starts, "chatter never fires");
+        assertEquals(1, counter.stops);
+    }
+
+    @Test
+    void bindingToAHeldButtonDoesNotFire() {
+        play(A | B);
+        assertTrue(engine.isHeld(A | B));
+        assertFalse(engine.isHeld(A | BOX));
+        engine.bind(A, 0, true, counter::start, counter::stop);
+        play(A | B);
+        assertEquals(0, counter.starts);
+        play(0);
+        assertEquals(1, counter.stops, "releasing it then stops it");
+    }
+
+    /** Polls the engine once per state, one loop apart. */
+    private void play(long... states) {
+        for (long state : states) {
+            time += LOOP_SECONDS;
+            engine.poll(state, time);
+        }
+    }
+}
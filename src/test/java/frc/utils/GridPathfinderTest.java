@@ -0,0 +1,162 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GridPathfinderTest {
+
+    private static final double NODE_SIZE = 0.5;
+
+    // 10 x 6 cells with a wall down column 5, open only in the top row:
+    //
+    // row 5  . . . . . . . . . .
+    // row 4  . . . . . # . . . .
+    //  ...   . . . . . # . . . .
+    // row 0  . . . . . # . . . .
+    private NavGrid grid;
+    private GridPathfinder pathfinder;
+
+    @BeforeEach
+    void setup() {
+        grid = new NavGrid(10, 6, NODE_SIZE);
+        for (int row = 0; row < 5; row++) {
+            grid.setBlocked(5, row, true);
+        }
+        pathfinder = new GridPathfinder(grid, 8);
+    }
+
+    @Test
+    void pathToTargetGoesAroundTheWall() {
+        int target = pathfinder.addTarget(4.3, 0.4);
+        double[] waypoints = pathfinder.findPathToTarget(target, 0.6, 0.7);
+
+        assertNotNull(waypoints);
+        assertEndpoints(waypoints, 0.6, 0.7, 4.3, 0.4);
+        assertClear(waypoints);
+        assertTrue(passesThroughGap(waypoints), "path has to use the gap in the top row");
+    }
+
+    @Test
+    void searchGoesAroundTheWall() {
+        double[] waypoints = pathfinder.findPath(0.6, 0.7, 4.3, 0.4);
+
+        assertNotNull(waypoints);
+        assertEndpoints(waypoints, 0.6, 0.7, 4.3, 0.4);
+        assertClear(waypoints);
+        assertTrue(passesThroughGap(waypoints), "path has to use the gap in the top row");
+    }
+
+    @Test
+    void straightLineWhenInSight() {
+        int target = pathfinder.addTarget(2.2, 2.3);
+        double[] waypoints = pathfinder.findPathToTarget(target, 0.3, 0.2);
+        assertArrayEquals(new double[] { 0.3, 0.2, 2.2, 2.3 }, waypoints, 0);
+    }
+
+    @Test
+    void targetInBlockedCellMovesToFreeCell() {
+        int target = pathfinder.addTarget(2.7, 0.2);
+        double[] waypoints = pathfinder.findPathToTarget(target, 0.3, 0.2);
+
+        assertNotNull(waypoints);
+        int end = grid.indexAt(waypoints[waypoints.length - 2], waypoints[waypoints.length - 1]);
+        assertFalse(grid.isBlocked(end));
+        assertEquals(grid.centerX(end), waypoints[waypoints.length - 2], 0);
+        assertEquals(grid.centerY(end), waypoints[waypoints.length - 1], 0);
+    }
+
+    @Test
+    void cacheHitReturnsSamePath() {
+        int target = pathfinder.addTarget(4.3, 0.4);
+        double[] first = pathfinder.findPathToTarget(target, 0.6, 0.7);
+        assertEquals(0, pathfinder.getCacheHits());
+        assertEquals(1, pathfinder.getCacheMisses());
+
+        double[] second = pathfinder.findPathToTarget(target, 0.6, 0.7);
+        assertEquals(1, pathfinder.getCacheHits());
+        assertEquals(1, pathfinder.getCacheMisses());
+        assertArrayEquals(first, second, 0);
+
+        double[] searched = pathfinder.findPath(0.6, 0.7, 4.3, 0.4);
+        double[] searchedAgain = pathfinder.findPath(0.6, 0.7, 4.3, 0.4);
+        assertEquals(2, pathfinder.getCacheHits());
+        assertArrayEquals(searched, searchedAgain, 0);
+    }
+
+    @Test
+    void cacheHitKeepsExactStart() {
+        int target = pathfinder.addTarget(4.3, 0.4);
+        double[] first = pathfinder.findPathToTarget(target, 0.6, 0.7);
+        // Same cell, different spot in it
+        double[] second = pathfinder.findPathToTarget(target, 0.9, 0.55);
+
+        assertEquals(1, pathfinder.getCacheHits());
+        assertEquals(first.length, second.length);
+        assertEndpoints(second, 0.9, 0.55, 4.3, 0.4);
+        for (int i = 2; i < first.length - 2; i++) {
+            assertEquals(first[i], second[i], 0);
+        }
+    }
+
+    @Test
+    void unreachableGoalHasNoPath() {
+        grid.setBlocked(5, 5, true);
+        GridPathfinder walledOff = new GridPathfinder(grid, 8);
+        int target = walledOff.addTarget(4.3, 0.4);
+
+        assertNull(walledOff.findPathToTarget(target, 0.6, 0.7));
+        assertNull(walledOff.findPath(0.6, 0.7, 4.3, 0.4));
+        assertEquals(Double.POSITIVE_INFINITY, walledOff.getDistanceToTarget(target, 0.6, 0.7));
+    }
+
+    @Test
+    void nearTargetWithinOneCell() {
+        int target = pathfinder.addTarget(1.25, 1.25);
+        assertTrue(pathfinder.isNearTarget(target, 1.25, 1.25));
+        assertTrue(pathfinder.isNearTarget(target, 1.25 + NODE_SIZE, 1.25));
+        assertTrue(pathfinder.isNearTarget(target, 1.5, 1.5));
+        assertFalse(pathfinder.isNearTarget(target, 1.25 + NODE_SIZE, 1.25 + NODE_SIZE));
+        assertFalse(pathfinder.isNearTarget(target, 0.25, 0.25));
+    }
+
+    private static void assertEndpoints(double[] waypoints, double startX, double startY, double goalX,
+            double goalY) {
+        assertEquals(startX, waypoints[0], 0);
+        assertEquals(startY, waypoints[1], 0);
+        assertEquals(goalX, waypoints[waypoints.length - 2], 0);
+        assertEquals(goalY, waypoints[waypoints.length - 1], 0);
+    }
+
+    /** Samples every leg of the path and checks none of it is in a blocked cell. */
+    private void assertClear(double[] waypoints) {
+        for (int i = 0; i + 3 < waypoints.length; i += 2) {
+            double x0 = waypoints[i];
+            double y0 = waypoints[i + 1];
+            double x1 = waypoints[i + 2];
+            double y1 = waypoints[i + 3];
+            int steps = (int) Math.ceil(Math.hypot(x1 - x0, y1 - y0) / 0.01);
+            for (int s = 0; s <= steps; s++) {
+                double x = x0 + (x1 - x0) * s / steps;
+                double y = y0 + (y1 - y0) * s / steps;
+                assertFalse(grid.isBlocked(grid.indexAt(x, y)),
+                        "leg " + i / 2 + " crosses a blocked cell at " + x + ", " + y);
+            }
+        }
+    }
+
+    private static boolean passesThroughGap(double[] waypoints) {
+        for (int i = 1; i < waypoints.length; i += 2) {
+            if (waypoints[i] >= 5 * NODE_SIZE) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
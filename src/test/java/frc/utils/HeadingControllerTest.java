@@ -0,0 +1,194 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Simulated step response of the teleop heading hold. A robot whose yaw rate
+ * lags the command by a first-order time constant is driven with jittery 20 ms
+ * loops and a noisy gyro. The driver turns at full rate for half a second and
+ * lets go, and the robot has to settle on the new heading. The same runs are
+ * made with {@link LegacyHeadingHold}, the code it replaced.
+ */
+class HeadingControllerTest {
+
+    /** One loop of a heading hold, as both controllers are called. */
+    @FunctionalInterface
+    private interface HeadingHold {
+        double calculate(double rateRadiansPerSecond, double headingRadians, double nowSeconds);
+    }
+
+    private static final double LOOP_SECONDS = 0.02;
+    private static final double LOOP_JITTER_SECONDS = 0.006;
+    private static final double YAW_TIME_CONSTANT = 0.08;
+    private static final double GYRO_NOISE_RADIANS = Math.toRadians(0.1);
+    private static final double MAX_RATE = Math.PI;
+    private static final double MAX_OUTPUT = 2 * Math.PI;
+    private static final double TURN_SECONDS = 0.5;
+    private static final double RUN_SECONDS = 6;
+    private static final double SETTLED_RADIANS = Math.toRadians(1);
+    // A steady push on the robot, like a scrubbing wheel, from this time on
+    private static final double DISTURBANCE_RADIANS_PER_SECOND = 0.3;
+    private static final double DISTURBANCE_START_SECONDS = 2;
+
+    /** What one simulated run measured. */
+    private static final class StepResponse {
+        double overshoot = 0;
+        double settleSeconds = Double.NaN;
+        double finalError = 0;
+        double maxOutput = 0;
+        double jitter = 0;
+        double bytesPerLoop = 0;
+    }
+
+    @Test
+    void settlesQuicklyWithoutIntegral() {
+        StepResponse response = simulate(new HeadingController(6, 0, 0, 0.5, MAX_OUTPUT)::calculate, 0);
+        assertTrue(response.settleSeconds < 1, "settled after " + response.settleSeconds + " s");
+        assertTrue(response.overshoot < Math.toRadians(3), "overshoot " + response.overshoot + " rad");
+        assertTrue(Math.abs(response.finalError) < SETTLED_RADIANS, "final error " + response.finalError);
+        assertTrue(response.maxOutput <= MAX_OUTPUT, "output " + response.maxOutput + " rad/s");
+        assertTrue(response.jitter < 0.05, "output jitter " + response.jitter + " rad/s");
+        if (AllocationCounter.isSupported()) {
+            assertEquals(0, response.bytesPerLoop, 0);
+        }
+    }
+
+    @Test
+    void settlesWithIntegral() {
+        StepResponse response = simulate(new HeadingController(6, 2, 0, 0.5, MAX_OUTPUT)::calculate, 0);
+        // Nothing is integrated during the turn, so the integral barely slows
+        // the settle down
+        assertTrue(response.settleSeconds < 1, "settled after " + response.settleSeconds + " s");
+        assertTrue(response.overshoot < Math.toRadians(4), "overshoot " + response.overshoot + " rad");
+        assertTrue(Math.abs(response.finalError) < Math.toRadians(0.3), "final error " + response.finalError);
+        assertTrue(response.maxOutput <= MAX_OUTPUT, "output " + response.maxOutput + " rad/s");
+    }
+
+    @Test
+    void integralRemovesASteadyDisturbance() {
+        StepResponse proportional = simulate(new HeadingController(6, 0, 0, 0.5, MAX_OUTPUT)::calculate,
+                DISTURBANCE_RADIANS_PER_SECOND);
+        StepResponse integral = simulate(new HeadingController(6, 4, 0, 0.5, MAX_OUTPUT)::calculate,
+                DISTURBANCE_RADIANS_PER_SECOND);
+        // P alone leaves disturbance / kP of error
+        assertTrue(Math.abs(proportional.finalError) > Math.toRadians(2), "P final error " + proportional.finalError);
+        assertTrue(Math.abs(integral.finalError) < Math.toRadians(0.5), "PI final error " + integral.finalError);
+    }
+
+    @Test
+    void lessJitterThanTheLegacyHoldWithIntegral() {
+        StepResponse response = simulate(new HeadingController(6, 2, 0, 0.5, MAX_OUTPUT)::calculate, 0);
+        StepResponse legacy = simulate(new LegacyHeadingHold(6, 2, 0)::calculate, 0);
+        // The old integral summed the error per loop without a bound, so the
+        // same gain keeps it swinging long after the turn
+        assertTrue(response.jitter < legacy.jitter / 10,
+                "output jitter " + response.jitter + " rad/s, legacy " + legacy.jitter + " rad/s");
+        assertTrue(Double.isNaN(legacy.settleSeconds), "legacy settled after " + legacy.settleSeconds + " s");
+    }
+
+    @Test
+    void noMoreJitterAndLessAllocationThanTheLegacyHoldWithoutIntegral() {
+        StepResponse response = simulate(new HeadingController(6, 0, 0, 0.5, MAX_OUTPUT)::calculate, 0);
+        StepResponse legacy = simulate(new LegacyHeadingHold(6, 0, 0)::calculate, 0);
+        assertTrue(response.jitter <= legacy.jitter * 1.01,
+                "output jitter " + response.jitter + " rad/s, legacy " + legacy.jitter + " rad/s");
+        if (AllocationCounter.isSupported()) {
+            assertEquals(0, response.bytesPerLoop, 0);
+            assertTrue(legacy.bytesPerLoop > 0, "legacy allocated " + legacy.bytesPerLoop + " bytes per loop");
+        }
+    }
+
+    @Test
+    void errorWrapsAroundPi() {
+        HeadingController controller = new HeadingController(6, 0, 0, 0.5, MAX_OUTPUT);
+        controller.reset(Math.PI - 0.05, 0);
+        double output = controller.calculate(0, -Math.PI + 0.05, 0.02);
+        assertEquals(-0.1, controller.getError(), 1e-9);
+        assertEquals(-0.6, output, 1e-9);
+    }
+
+    @Test
+    void longGapHoldsCurrentHeading() {
+        HeadingController controller = new HeadingController(6, 2, 0, 0.5, MAX_OUTPUT);
+        controller.reset(0, 0);
+        controller.calculate(0, 0.5, 0.02);
+        // Another command had the drivetrain and turned the robot
+        double output = controller.calculate(0, 1.2, 0.02 + HeadingController.MAX_GAP_SECONDS + 0.01);
+        assertEquals(1.2, controller.getTargetRadians(), 1e-9);
+        assertEquals(0, output, 0);
+    }
+
+    @Test
+    void outputIsClamped() {
+        HeadingController controller = new HeadingController(6, 0, 0, 0.5, MAX_OUTPUT);
+        controller.reset(0, 0);
+        assertEquals(MAX_OUTPUT, controller.calculate(0, -3, 0.02), 0);
+        assertEquals(-MAX_OUTPUT, controller.calculate(0, 3, 0.04), 0);
+    }
+
+    private static StepResponse simulate(HeadingHold controller, double disturbance) {
+        Random random = new Random(3407);
+        AllocationCounter allocations = new AllocationCounter();
+        StepResponse response = new StepResponse();
+
+        double time = 1;
+        double heading = 0;
+        double yawRate = 0;
+        double target = heading;
+        double sum = 0;
+        double sumSquares = 0;
+        int settledLoops = 0;
+        long bytes = 0;
+        int loops = 0;
+
+        // Let the controller latch onto the starting heading
+        controller.calculate(0, heading, time);
+        double start = time;
+        while (time - start < RUN_SECONDS) {
+            double dt = LOOP_SECONDS + (random.nextDouble() - 0.5) * LOOP_JITTER_SECONDS;
+            time += dt;
+            // First-order yaw response to the last command
+            heading += yawRate * dt;
+            if (time - start > DISTURBANCE_START_SECONDS) {
+                heading += disturbance * dt;
+            }
+
+            double rate = time - start < TURN_SECONDS ? MAX_RATE : 0;
+            // Where the driver asked the robot to end up
+            target += rate * dt;
+            double measured = heading + random.nextGaussian() * GYRO_NOISE_RADIANS;
+            allocations.start();
+            double output = controller.calculate(rate, measured, time);
+            bytes += Math.max(0, allocations.stop());
+            loops++;
+            yawRate += (output - yawRate) * (1 - Math.exp(-dt / YAW_TIME_CONSTANT));
+
+            double elapsed = time - start;
+            response.maxOutput = Math.max(response.maxOutput, Math.abs(output));
+            if (elapsed > TURN_SECONDS) {
+                response.overshoot = Math.max(response.overshoot, heading - target);
+                if (Math.abs(heading - target) > SETTLED_RADIANS) {
+                    response.settleSeconds = Double.NaN;
+                } else if (Double.isNaN(response.settleSeconds)) {
+                    response.settleSeconds = elapsed - TURN_SECONDS;
+                }
+                // Output jitter once the turn has had a second to finish
+                if (elapsed > TURN_SECONDS + 1) {
+                    sum += output;
+                    sumSquares += output * output;
+                    settledLoops++;
+                }
+            }
+        }
+        double mean = sum / settledLoops;
+        response.jitter = Math.sqrt(Math.max(0, sumSquares / settledLoops - mean * mean));
+        response.finalError = heading - target;
+        response.bytesPerLoop = (double) bytes / loops;
+        return response;
+    }
+}
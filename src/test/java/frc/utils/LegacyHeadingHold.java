@@ -0,0 +1,37 @@
+package frc.utils;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * The teleop heading hold as it was in {@code DriveSubsystem.drive()} before
+ * {@link HeadingController}, kept to compare against. The clock is passed in
+ * and quantized to milliseconds like the {@code System.currentTimeMillis()} it
+ * used to read.
+ */
+final class LegacyHeadingHold {
+    private final double kp;
+    private final double ki;
+    private final double kd;
+    private Rotation2d intendedRotation = new Rotation2d();
+    private long timeOfLastLoop = 0;
+    private double integral = 0;
+    private double prevError = 0;
+
+    LegacyHeadingHold(double kp, double ki, double kd) {
+        this.kp = kp;
+        this.ki = ki;
+        this.kd = kd;
+    }
+
+    double calculate(double rateRadiansPerSecond, double headingRadians, double nowSeconds) {
+        long nowMillis = (long) (nowSeconds * 1000);
+        intendedRotation = intendedRotation
+                .rotateBy(new Rotation2d(rateRadiansPerSecond * ((nowMillis - timeOfLastLoop) / 1000.0)));
+        timeOfLastLoop = nowMillis;
+        double error = intendedRotation.minus(new Rotation2d(headingRadians)).getRadians();
+        integral += error;
+        double output = (error * kp) + (ki * integral) + (kd * (error - prevError));
+        prevError = error;
+        return output;
+    }
+}
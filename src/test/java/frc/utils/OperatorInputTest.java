@@ -0,0 +1,70 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+
+/** Checks {@link OperatorInput} snapshots and latency bookkeeping against scripted loops. */
+class OperatorInputTest {
+
+    private static final long TRIGGER = ButtonEngine.button(1, 1);
+
+    private int presses;
+    private OperatorInput input;
+    private int y;
+
+    @BeforeEach
+    void setup() {
+        presses = 0;
+        ButtonEngine engine = new ButtonEngine();
+        engine.bind(TRIGGER, 0, true, () -> presses++, null);
+        input = new OperatorInput(engine);
+        input.addController(0);
+        int right = input.addController(1);
+        y = OperatorInput.axis(right, 1);
+        input.setCurve(y, new ResponseCurve(0.1, 0));
+    }
+
+    @Test
+    void snapshotShapesAxesAndDrivesButtons() {
+        input.setRaw(y, 0.55);
+        input.update(0, 0);
+        assertEquals(MathUtil.applyDeadband(0.55, 0.1), input.get(y), 0);
+
+        input.setRaw(y, 0.05);
+        assertEquals(MathUtil.applyDeadband(0.55, 0.1), input.get(y), 0, "raw changes wait for the snapshot");
+
+        input.update(TRIGGER, 20000);
+        assertEquals(0, input.get(y), 0);
+        assertEquals(0.05, input.getRaw(y), 0);
+        assertEquals(1, presses);
+        assertTrue(input.isHeld(TRIGGER));
+    }
+
+    @Test
+    void latencyIsFromTheSnapshot() {
+        input.update(0, 20000);
+        input.markOutput(20000 + 1500);
+        // Only the first output after a snapshot counts
+        input.markOutput(20000 + 9000);
+        assertEquals(1500, input.getLatencyMicros());
+    }
+
+    @Test
+    void windowKeepsTheWorstLoop() {
+        long time = 20000;
+        input.update(0, time);
+        input.markOutput(time + 1500);
+        for (int i = 1; i < OperatorInput.WINDOW_CYCLES; i++) {
+            time += 20000;
+            input.update(0, time);
+            input.markOutput(time + (i == 10 ? 4000 : 800));
+        }
+        assertEquals(4000, input.getMaxLatencyMicros());
+        assertEquals(OperatorInput.WINDOW_CYCLES, input.getCycle(), "one snapshot per update");
+    }
+}
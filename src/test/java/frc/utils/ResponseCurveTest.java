@@ -0,0 +1,61 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+
+/** Checks {@link ResponseCurve} tables against the exact curve and {@code MathUtil.applyDeadband}. */
+class ResponseCurveTest {
+
+    private static final int SAMPLES = 200000;
+    private static final double DEADBAND = 0.1;
+
+    @Test
+    void withoutExpoMatchesApplyDeadband() {
+        Random random = new Random(3407);
+        ResponseCurve curve = new ResponseCurve(DEADBAND, 0);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = random.nextDouble() * 2 - 1;
+            assertEquals(MathUtil.applyDeadband(x, DEADBAND), curve.apply(x), 1e-12, "input " + x);
+        }
+    }
+
+    @Test
+    void mildExpo() {
+        checkCurve(0.3);
+    }
+
+    @Test
+    void fullExpo() {
+        checkCurve(1);
+    }
+
+    @Test
+    void expoIsGentlerNearTheCentre() {
+        assertTrue(new ResponseCurve(DEADBAND, 0.3).apply(0.4) < new ResponseCurve(DEADBAND, 0).apply(0.4));
+    }
+
+    /** Table close to the exact curve, monotone, odd, deadband kept, full scale reached. */
+    private static void checkCurve(double expo) {
+        ResponseCurve curve = new ResponseCurve(DEADBAND, expo);
+        double previous = -1;
+        for (int i = 0; i <= SAMPLES; i++) {
+            double x = -1 + 2.0 * i / SAMPLES;
+            double value = curve.apply(x);
+            assertEquals(ResponseCurve.shape(x, DEADBAND, expo), value, 1e-5, "input " + x);
+            assertTrue(value >= previous, "not monotone at " + x);
+            assertEquals(-value, curve.apply(-x), 0, "not odd at " + x);
+            previous = value;
+        }
+        assertEquals(0, curve.apply(DEADBAND), 0);
+        assertEquals(0, curve.apply(-0.05), 0);
+        assertEquals(1, curve.apply(1), 0);
+        assertEquals(-1, curve.apply(-1.2), 0);
+        assertEquals(0, curve.apply(Double.NaN), 0);
+    }
+}
@@ -0,0 +1,235 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Property checks for {@link ShotTable} interpolation and {@link ShotSolver},
+ * over thousands of random tables and queries. Every test walks the same
+ * seeded tables, so a failure names a reproducible counterexample.
+ */
+class ShotTableTest {
+
+    private static final int TABLES = 2000;
+    private static final int QUERIES = 50;
+    private static final double EPSILON = 1e-9;
+
+    /** A random table that gets faster and longer with range, like real ones. */
+    private static final class RandomTable {
+        final double[] ranges;
+        final double[] rpms;
+        final double[] offsets;
+        final double[] tofs;
+        final ShotTable table;
+
+        RandomTable(Random random) {
+            int count = 1 + random.nextInt(20);
+            ranges = new double[count];
+            rpms = new double[count];
+            offsets = new double[count];
+            tofs = new double[count];
+            double range = 0.5 + random.nextDouble();
+            double rpm = 2000 + random.nextDouble() * 1000;
+            double tof = 0.05 + random.nextDouble() * 0.1;
+            for (int i = 0; i < count; i++) {
+                ranges[i] = range;
+                rpms[i] = rpm;
+                offsets[i] = (random.nextDouble() - 0.5) * 0.1;
+                tofs[i] = tof;
+                double gap = 0.05 + random.nextDouble() * 0.8;
+                range += gap;
+                rpm += random.nextDouble() * 400;
+                tof += gap * (0.05 + random.nextDouble() * 0.07);
+            }
+            table = new ShotTable(ranges, rpms, offsets, tofs);
+        }
+
+        int last() {
+            return ranges.length - 1;
+        }
+
+        /** @return A range from half a meter before the first row to half a meter past the last. */
+        double randomQuery(Random random) {
+            return ranges[0] - 0.5 + random.nextDouble() * (ranges[last()] - ranges[0] + 1);
+        }
+    }
+
+    @Test
+    void exactAtRowsAndClampedAtEnds() {
+        Random random = new Random(3407);
+        for (int t = 0; t < TABLES; t++) {
+            RandomTable table = new RandomTable(random);
+            for (int i = 0; i <= table.last(); i++) {
+                assertEquals(table.rpms[i], table.table.getRPM(table.ranges[i]), 0, "table " + t + " row " + i);
+            }
+            assertEquals(table.rpms[0], table.table.getRPM(table.ranges[0] - 1), 0, "table " + t);
+            assertEquals(table.rpms[table.last()], table.table.getRPM(table.ranges[table.last()] + 1), 0,
+                    "table " + t);
+            assertEquals(table.rpms[0], table.table.getRPM(Double.NaN), 0, "NaN gets the first row, table " + t);
+        }
+    }
+
+    @Test
+    void matchesLinearScanAndIsMonotone() {
+        Random random = new Random(3407);
+        for (int t = 0; t < TABLES; t++) {
+            RandomTable table = new RandomTable(random);
+            double[] queries = new double[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                queries[q] = table.randomQuery(random);
+            }
+            Arrays.sort(queries);
+
+            double previous = Double.NEGATIVE_INFINITY;
+            for (double query : queries) {
+                double value = table.table.getRPM(query);
+                assertEquals(reference(table.ranges, table.rpms, query), value, EPSILON,
+                        "table " + t + " range " + query);
+                assertTrue(value >= previous - EPSILON, "not monotone, table " + t + " range " + query);
+                previous = value;
+            }
+        }
+    }
+
+    @Test
+    void headingOffsetBoundedByNeighbouringRows() {
+        Random random = new Random(3407);
+        for (int t = 0; t < TABLES; t++) {
+            RandomTable table = new RandomTable(random);
+            for (int q = 0; q < QUERIES; q++) {
+                double query = table.randomQuery(random);
+                double offset = table.table.getHeadingOffset(query);
+                int below = Math.max(0, lowerRow(table.ranges, query));
+                int above = Math.min(table.last(), below + 1);
+                assertTrue(offset >= Math.min(table.offsets[below], table.offsets[above]) - EPSILON
+                        && offset <= Math.max(table.offsets[below], table.offsets[above]) + EPSILON,
+                        "table " + t + " range " + query);
+            }
+        }
+    }
+
+    @Test
+    void midpointIsTheAverage() {
+        Random random = new Random(3407);
+        for (int t = 0; t < TABLES; t++) {
+            RandomTable table = new RandomTable(random);
+            for (int i = 0; i < table.last(); i++) {
+                double mid = (table.ranges[i] + table.ranges[i + 1]) / 2;
+                assertEquals((table.rpms[i] + table.rpms[i + 1]) / 2, table.table.getRPM(mid), 1e-6,
+                        "table " + t + " range " + mid);
+            }
+        }
+    }
+
+    @Test
+    void rowOrderInTheFileDoesNotMatter() throws Exception {
+        Random random = new Random(3407);
+        for (int t = 0; t < TABLES; t++) {
+            RandomTable table = new RandomTable(random);
+            List<String> rows = new ArrayList<>();
+            for (int i = 0; i <= table.last(); i++) {
+                rows.add(String.format("{\"range\":%s,\"rpm\":%s,\"headingOffsetDegrees\":%s,\"timeOfFlight\":%s}",
+                        table.ranges[i], table.rpms[i], Math.toDegrees(table.offsets[i]), table.tofs[i]));
+            }
+            Collections.shuffle(rows, random);
+            ShotTable parsed = ShotTable.fromJson(
+                    new StringReader("{\"shots\":[" + String.join(",", rows) + "]}"));
+
+            double query = table.randomQuery(random);
+            assertEquals(table.table.getRPM(query), parsed.getRPM(query), EPSILON, "table " + t + " range " + query);
+            assertEquals(table.table.getTimeOfFlight(query), parsed.getTimeOfFlight(query), EPSILON,
+                    "table " + t + " range " + query);
+        }
+    }
+
+    @Test
+    void onlyAFileMarkedMeasuredIsMeasured() throws Exception {
+        String shots = "\"shots\":[{\"range\":1,\"rpm\":3000,\"headingOffsetDegrees\":0,\"timeOfFlight\":0.1}]";
+        assertTrue(ShotTable.fromJson(new StringReader("{\"measured\":true," + shots + "}")).isMeasured());
+        assertFalse(ShotTable.fromJson(new StringReader("{\"measured\":false," + shots + "}")).isMeasured());
+        assertFalse(ShotTable.fromJson(new StringReader("{" + shots + "}")).isMeasured());
+    }
+
+    @Test
+    void rejectsUnsortedRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new ShotTable(new double[] { 2, 1 },
+                new double[] { 0, 0 }, new double[] { 0, 0 }, new double[] { 0, 0 }));
+        assertThrows(IllegalArgumentException.class, () -> new ShotTable(new double[0], new double[0],
+                new double[0], new double[0]));
+    }
+
+    @Test
+    void standingStillAimsAtTheTarget() {
+        Random random = new Random(3407);
+        for (int t = 0; t < TABLES; t++) {
+            RandomTable table = new RandomTable(random);
+            ShotSolver solver = new ShotSolver(table.table, 20, 1e-7);
+            double robotX = random.nextDouble() * 8;
+            double robotY = random.nextDouble() * 8;
+            double targetX = random.nextDouble() * 8;
+            double targetY = random.nextDouble() * 8;
+            double distance = Math.hypot(targetX - robotX, targetY - robotY);
+
+            solver.solve(robotX, robotY, 0, 0, targetX, targetY);
+            assertEquals(distance, solver.getRange(), EPSILON, "table " + t);
+            assertEquals(table.table.getRPM(distance), solver.getRPM(), 0, "table " + t);
+            double heading = Math.atan2(targetY - robotY, targetX - robotX) + table.table.getHeadingOffset(distance);
+            assertEquals(heading, solver.getHeading(), EPSILON, "table " + t);
+        }
+    }
+
+    @Test
+    void movingShotsLandOnTheTarget() {
+        Random random = new Random(3407);
+        for (int t = 0; t < TABLES; t++) {
+            RandomTable table = new RandomTable(random);
+            ShotSolver solver = new ShotSolver(table.table, 20, 1e-7);
+            double robotX = random.nextDouble() * 8;
+            double robotY = random.nextDouble() * 8;
+            double targetX = random.nextDouble() * 8;
+            double targetY = random.nextDouble() * 8;
+            double vx = (random.nextDouble() - 0.5) * 6;
+            double vy = (random.nextDouble() - 0.5) * 6;
+
+            // The note drifts with the robot for the time of flight
+            solver.solve(robotX, robotY, vx, vy, targetX, targetY);
+            double landX = solver.getAimX() + vx * solver.getTimeOfFlight();
+            double landY = solver.getAimY() + vy * solver.getTimeOfFlight();
+            assertTrue(Math.hypot(landX - targetX, landY - targetY) < 0.01,
+                    String.format("table %d robot (%.2f, %.2f) v (%.2f, %.2f)", t, robotX, robotY, vx, vy));
+        }
+    }
+
+    /** Plain linear scan to check the binary search against. */
+    private static double reference(double[] ranges, double[] column, double range) {
+        int last = ranges.length - 1;
+        if (range <= ranges[0]) {
+            return column[0];
+        }
+        for (int i = 0; i < last; i++) {
+            if (range < ranges[i + 1]) {
+                return column[i] + (column[i + 1] - column[i]) * (range - ranges[i]) / (ranges[i + 1] - ranges[i]);
+            }
+        }
+        return column[last];
+    }
+
+    private static int lowerRow(double[] ranges, double range) {
+        int row = -1;
+        for (int i = 0; i < ranges.length && ranges[i] <= range; i++) {
+            row = i;
+        }
+        return row;
+    }
+}
@@ -0,0 +1,113 @@
+package frc.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link StreamGovernor} against a simulated stream whose data rate is
+ * proportional to the cost of its level: that it settles on the best level
+ * under the cap without hunting, rides out short spikes, follows a lowered
+ * cap and ignores a dead camera.
+ */
+class StreamGovernorTest {
+
+    private static final double PERIOD_SECONDS = 0.25;
+    // Same shape as the robot's levels: pixels times frames per second
+    private static final double[] COSTS = {
+            320 * 240 * 15, 320 * 240 * 10, 320 * 240 * 7, 160 * 120 * 15, 160 * 120 * 7, 160 * 120 * 7 * 0.3 };
+    // Bytes per unit of cost, about what a 320x240 MJPEG camera sends
+    private static final double BYTES_PER_COST = 0.35;
+    // At this cap only levels 2 and below fit
+    private static final double CAP = 250_000;
+
+    private double time;
+
+    @BeforeEach
+    void setup() {
+        time = 0;
+    }
+
+    @Test
+    void dropsToTheBestLevelUnderTheCap() {
+        StreamGovernor governor = governor(0);
+        int changes = run(governor, 60, 1);
+        assertEquals(2, governor.getLevel());
+        assertEquals(2, changes, "drops without overshooting");
+        assertEquals(0, run(governor, 60, 1), "stays put once settled");
+    }
+
+    @Test
+    void climbsToTheBestLevelUnderTheCap() {
+        StreamGovernor governor = governor(COSTS.length - 1);
+        int changes = run(governor, 60, 1);
+        assertEquals(2, governor.getLevel());
+        assertEquals(COSTS.length - 3, changes, "climbs without hunting");
+    }
+
+    @Test
+    void shortSpikeIsIgnored() {
+        StreamGovernor governor = governor(1);
+        run(governor, 30, 1);
+        int before = governor.getLevel();
+        // A burst shorter than the drop time
+        run(governor, 0.75, 3);
+        assertEquals(before, governor.getLevel());
+    }
+
+    @Test
+    void followsALoweredCap() {
+        StreamGovernor governor = governor(0);
+        run(governor, 30, 1);
+        governor.setCapBytesPerSecond(60_000);
+        run(governor, 30, 1);
+        assertEquals(4, governor.getLevel());
+        governor.setCapBytesPerSecond(5_000);
+        run(governor, 60, 1);
+        assertEquals(COSTS.length - 1, governor.getLevel(), "stops at the cheapest level");
+    }
+
+    @Test
+    void deadCameraDoesNotRaiseTheLevel() {
+        StreamGovernor governor = governor(4);
+        for (int i = 0; i < 400; i++) {
+            time += PERIOD_SECONDS;
+            governor.update(0, time);
+        }
+        assertEquals(4, governor.getLevel());
+    }
+
+    @Test
+    void waitsOutTheSettleTime() {
+        StreamGovernor governor = governor(4);
+        run(governor, 30, 1);
+        int settled = governor.getLevel();
+        // Without the restart this spike would drop a level
+        governor.restart(time);
+        run(governor, 1.75, 10);
+        assertEquals(settled, governor.getLevel());
+    }
+
+    private static StreamGovernor governor(int start) {
+        return new StreamGovernor(COSTS, CAP, start, 1.0, 5.0, 2.0, 0.8);
+    }
+
+    /**
+     * Streams for a while with the data rate following the level.
+     *
+     * @param scale Multiplies the data rate, for spikes.
+     * @return How many times the level changed.
+     */
+    private int run(StreamGovernor governor, double seconds, double scale) {
+        int changes = 0;
+        for (double end = time + seconds; time < end;) {
+            time += PERIOD_SECONDS;
+            int level = governor.getLevel();
+            if (governor.update(COSTS[level] * BYTES_PER_COST * scale, time) != level) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+}